@@ -5,6 +5,7 @@ plugins {
     java
     id("org.springframework.boot") version "2.7.18"
     id("io.spring.dependency-management") version "1.1.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.teensconf"
@@ -22,6 +23,7 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-security")
     implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
 
     // DB
     implementation("org.postgresql:postgresql")
@@ -71,6 +73,13 @@ tasks.withType<Test> {
     }
 }
 
+// Бенчмарки: ./gradlew jmh (исходники в src/jmh/java)
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+}
+
 tasks.withType<JavaCompile> {
     options.compilerArgs.add("-parameters")
 }
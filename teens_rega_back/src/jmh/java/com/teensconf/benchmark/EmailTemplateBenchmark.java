@@ -0,0 +1,62 @@
+package com.teensconf.benchmark;
+
+import com.teensconf.config.ThymeleafConfig;
+import com.teensconf.entity.Registration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость рендеринга одного письма: без кэша шаблонов (как было) и с кэшем.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmailTemplateBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cacheable;
+
+    private SpringTemplateEngine templateEngine;
+    private Registration registration;
+
+    @Setup
+    public void setUp() {
+        templateEngine = ThymeleafConfig.createTemplateEngine(ThymeleafConfig.createTemplateResolver(cacheable));
+
+        registration = new Registration();
+        registration.setId(1L);
+        registration.setFirstName("Иван");
+        registration.setLastName("Иванов");
+        registration.setPhone("+79990000000");
+        registration.setCity("Москва");
+        registration.setRole("participant");
+        registration.setNeedAccommodation(true);
+    }
+
+    @Benchmark
+    public String registrationConfirmation() {
+        return templateEngine.process("register_confirmation", context());
+    }
+
+    @Benchmark
+    public String paymentSuccess() {
+        return templateEngine.process("register_success_payment", context());
+    }
+
+    private Context context() {
+        Context context = new Context();
+        context.setVariable("registration", registration);
+        context.setVariable("fullName", registration.getFullName());
+        return context;
+    }
+}
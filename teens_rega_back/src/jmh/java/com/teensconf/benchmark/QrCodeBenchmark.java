@@ -0,0 +1,97 @@
+package com.teensconf.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.teensconf.entity.Registration;
+import com.teensconf.service.QrCodeService;
+import com.teensconf.service.TicketCodec;
+import com.teensconf.util.QrPngEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация QR-кода для письма: прежний путь (подробный текст, BufferedImage + ImageIO),
+ * прямое кодирование в 1-битный PNG и повторная выдача из кэша.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QrCodeBenchmark {
+
+    private Registration registration;
+    private TicketCodec ticketCodec;
+    private QrCodeService qrCodeService;
+    private Map<EncodeHintType, Object> compactHints;
+
+    @Setup
+    public void setUp() {
+        registration = new Registration();
+        registration.setId(1234L);
+        registration.setFirstName("Иван");
+        registration.setLastName("Иванов");
+        registration.setPhone("+79990000000");
+        registration.setCity("Москва");
+        registration.setRole("participant");
+        registration.setNeedAccommodation(true);
+        registration.setRegistrationCompletedAt(LocalDateTime.of(2025, 6, 1, 12, 0));
+
+        ticketCodec = new TicketCodec("benchmark-secret");
+        qrCodeService = new QrCodeService(ticketCodec, 1024);
+        qrCodeService.generateRegistrationQrCodeBytes(registration);
+
+        compactHints = new EnumMap<>(EncodeHintType.class);
+        compactHints.put(EncodeHintType.MARGIN, 2);
+        compactHints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+    }
+
+    @Benchmark
+    public byte[] legacyImageIo() throws Exception {
+        QRCodeWriter writer = new QRCodeWriter();
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        hints.put(EncodeHintType.MARGIN, 2);
+
+        BitMatrix matrix = writer.encode(legacyContent(registration), BarcodeFormat.QR_CODE, 300, 300, hints);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(matrix, "PNG", out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] directPng() throws Exception {
+        BitMatrix matrix = new QRCodeWriter().encode(ticketCodec.issue(registration), BarcodeFormat.QR_CODE, 0, 0, compactHints);
+        return QrPngEncoder.encode(matrix, Math.max(1, 300 / matrix.getWidth()));
+    }
+
+    @Benchmark
+    public byte[] cached() {
+        return qrCodeService.generateRegistrationQrCodeBytes(registration);
+    }
+
+    private static String legacyContent(Registration registration) {
+        return "Подтверждение регистрации ТИНС\n" +
+                "ID: " + registration.getId() + "\n" +
+                "Имя: " + registration.getFirstName() + "\n" +
+                "Фамилия: " + registration.getLastName() + "\n" +
+                "Телефон: " + registration.getPhone() + "\n" +
+                "Город: " + registration.getCity() + "\n" +
+                "Роль: " + registration.getRole() + "\n" +
+                "Расселение: " + (registration.getNeedAccommodation() ? "Да" : "Нет") + "\n";
+    }
+}
@@ -0,0 +1,56 @@
+package com.teensconf.config;
+
+import com.teensconf.service.AdminTokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Аутентификация администратора по токену из заголовка {@code Authorization: Bearer ...}.
+ * EventSource в браузере не умеет передавать заголовки, поэтому для живой ленты
+ * токен принимается и из параметра {@code access_token}.
+ * Создаётся в {@link SecurityConfig}, а не как компонент, чтобы не регистрироваться в контейнере второй раз.
+ */
+@RequiredArgsConstructor
+public class AdminTokenFilter extends OncePerRequestFilter {
+
+    static final String STREAM_PATH = "/api/admin/stream";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final AdminTokenService adminTokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = extractToken(request);
+        if (token != null) {
+            adminTokenService.verify(token).ifPresent(verified -> {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        verified.getUsername(), null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            });
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static String extractToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            return header.substring(BEARER_PREFIX.length()).trim();
+        }
+        if (STREAM_PATH.equals(request.getRequestURI())) {
+            return request.getParameter("access_token");
+        }
+        return null;
+    }
+}
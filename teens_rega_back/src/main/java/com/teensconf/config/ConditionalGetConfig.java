@@ -0,0 +1,28 @@
+package com.teensconf.config;
+
+import com.teensconf.service.DataVersion;
+import com.teensconf.service.ResponseCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ConditionalGetConfig {
+
+    /**
+     * Порядок по умолчанию - после цепочки Spring Security
+     */
+    @Bean
+    public FilterRegistrationBean<ConditionalGetFilter> conditionalGetFilter(
+            DataVersion dataVersion,
+            ResponseCache responseCache,
+            @Value("${app.conditional-get.etag-ttl-seconds:300}") long etagTtlSeconds) {
+        FilterRegistrationBean<ConditionalGetFilter> registration = new FilterRegistrationBean<>(
+                new ConditionalGetFilter(dataVersion, responseCache, TimeUnit.SECONDS.toMillis(etagTtlSeconds)));
+        registration.addUrlPatterns("/api/admin/*");
+        return registration;
+    }
+}
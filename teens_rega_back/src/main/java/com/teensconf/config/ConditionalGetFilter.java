@@ -0,0 +1,100 @@
+package com.teensconf.config;
+
+import com.teensconf.service.DataVersion;
+import com.teensconf.service.ResponseCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Условные GET для админских эндпоинтов на чтение.
+ * ETag - версия данных ({@link DataVersion}) на начало запроса: если клиент прислал её в If-None-Match,
+ * отвечаем 304, не выполняя ни запросов к базе, ни сериализации.
+ * В ETag входит ещё и номер периода длиной {@code etagTtlMillis}: если запись мимо версии всё же случится
+ * (например, правка в базе вручную), старый ответ подтверждается не дольше одного периода.
+ * Иначе ответ отдаётся из {@link ResponseCache}, а если его там нет - строится контроллером и кэшируется.
+ * Фильтр стоит после Spring Security, так что без авторизации закэшированные ответы не отдаются.
+ * Регистрируется в {@link ConditionalGetConfig}, а не как компонент, чтобы не попадать в срезы @WebMvcTest.
+ */
+@RequiredArgsConstructor
+public class ConditionalGetFilter extends OncePerRequestFilter {
+
+    private static final Pattern CACHEABLE = Pattern.compile("/api/admin/(stats|registrations(/\\d+)?|reports/pivot)");
+
+    private final DataVersion dataVersion;
+    private final ResponseCache responseCache;
+    private final long etagTtlMillis;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !CACHEABLE.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long version = dataVersion.current();
+        String etag = dataVersion.etag(version, System.currentTimeMillis() / etagTtlMillis);
+        // Браузер хранит ответ, но каждый раз сверяет его с сервером
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String key = request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + "?" + request.getQueryString();
+        ResponseCache.CachedResponse cached = responseCache.get(key, version);
+        if (cached != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setContentType(cached.getContentType());
+            response.setContentLength(cached.getBody().length);
+            response.getOutputStream().write(cached.getBody());
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() == HttpServletResponse.SC_OK) {
+                wrapper.setHeader(HttpHeaders.ETAG, etag);
+                if (dataVersion.current() == version) {
+                    // Данные не менялись, пока строился ответ - он соответствует этой версии
+                    responseCache.put(key, version, new ResponseCache.CachedResponse(
+                            wrapper.getContentType(), wrapper.getContentAsByteArray()));
+                }
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            // Сравнение слабое: W/"x" и "x" считаются одним тегом
+            if (value.equals("*") || stripWeak(value).equals(stripWeak(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
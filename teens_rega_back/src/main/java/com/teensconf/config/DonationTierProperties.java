@@ -0,0 +1,49 @@
+package com.teensconf.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тарифы пожертвования.
+ *
+ * <pre>
+ * app:
+ *   payment:
+ *     amount: 500.0            # сумма, если ни один тариф не подошёл
+ *     tiers:
+ *       - code: teen
+ *         role: подросток
+ *         amount: 500.0
+ *       - code: leader-accommodation
+ *         role: служитель
+ *         need-accommodation: true
+ *         amount: 1200.0
+ * </pre>
+ *
+ * Тарифы проверяются по порядку, выбирается первый подходящий.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.payment")
+public class DonationTierProperties {
+
+    public static final double DEFAULT_AMOUNT = 500.0;
+
+    private Double amount = DEFAULT_AMOUNT;
+
+    private List<Tier> tiers = new ArrayList<>();
+
+    @Data
+    public static class Tier {
+        private String code;
+        private Double amount;
+        /** Роль участника, null - любая */
+        private String role;
+        /** Нужно ли расселение, null - неважно */
+        private Boolean needAccommodation;
+    }
+}
@@ -1,11 +1,11 @@
 package com.teensconf.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 import java.util.Properties;
 
@@ -25,9 +25,34 @@ public class EmailConfig {
     @Value("${spring.mail.password}")
     private String password;
 
+    @Value("${app.mail.pool.max-size:3}")
+    private int poolMaxSize;
+
+    @Value("${app.mail.pool.max-messages-per-connection:50}")
+    private int maxMessagesPerConnection;
+
+    @Value("${app.mail.pool.max-idle-ms:60000}")
+    private long maxIdleMillis;
+
+    @Value("${app.mail.pool.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMillis;
+
+    @Value("${app.mail.connection-timeout-ms:10000}")
+    private int connectionTimeout;
+
+    @Value("${app.mail.timeout-ms:30000}")
+    private int timeout;
+
+    @Value("${app.mail.write-timeout-ms:30000}")
+    private int writeTimeout;
+
+    @Value("${app.mail.debug:false}")
+    private boolean debug;
+
     @Bean
-    public JavaMailSender javaMailSender() {
-        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    public JavaMailSender javaMailSender(MeterRegistry meterRegistry) {
+        PooledJavaMailSender mailSender = new PooledJavaMailSender(
+                poolMaxSize, maxMessagesPerConnection, maxIdleMillis, borrowTimeoutMillis);
         mailSender.setHost(host);
         mailSender.setPort(port);
         mailSender.setUsername(username);
@@ -36,6 +61,7 @@ public class EmailConfig {
         Properties props = mailSender.getJavaMailProperties();
         props.putAll(getMailProperties());
 
+        mailSender.bindMetrics(meterRegistry);
         return mailSender;
     }
 
@@ -50,7 +76,13 @@ public class EmailConfig {
         } else if (port == 587) {
             props.put("mail.smtp.starttls.enable", "true");
         }
-        props.put("mail.debug", "true");
+        // Без таймаутов медленный SMTP-сервер держит поток отправки бесконечно
+        for (String protocol : new String[]{"smtp", "smtps"}) {
+            props.put("mail." + protocol + ".connectiontimeout", String.valueOf(connectionTimeout));
+            props.put("mail." + protocol + ".timeout", String.valueOf(timeout));
+            props.put("mail." + protocol + ".writetimeout", String.valueOf(writeTimeout));
+        }
+        props.put("mail.debug", String.valueOf(debug));
         return props;
     }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.teensconf.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link JavaMailSenderImpl}, который не открывает новое SMTP-соединение на каждое письмо,
+ * а держит несколько авторизованных соединений и переиспользует их.
+ * Соединение закрывается после заданного числа писем, после простоя
+ * и после любой ошибки отправки.
+ */
+@Slf4j
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final int maxSize;
+    private final int maxMessagesPerConnection;
+    private final long maxIdleMillis;
+    private final long borrowTimeoutMillis;
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private Timer sendTimer;
+    private Timer failedSendTimer;
+
+    public PooledJavaMailSender(int maxSize, int maxMessagesPerConnection, long maxIdleMillis, long borrowTimeoutMillis) {
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.maxIdleMillis = maxIdleMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public void bindMetrics(MeterRegistry meterRegistry) {
+        sendTimer = Timer.builder("mail.send")
+                .description("SMTP send latency")
+                .tag("result", "success")
+                .register(meterRegistry);
+        failedSendTimer = Timer.builder("mail.send")
+                .description("SMTP send latency")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        Gauge.builder("mail.pool.active", active, AtomicInteger::get)
+                .description("SMTP connections in use")
+                .register(meterRegistry);
+        Gauge.builder("mail.pool.idle", idle, BlockingDeque::size)
+                .description("Open SMTP connections waiting for the next message")
+                .register(meterRegistry);
+        Gauge.builder("mail.pool.max", this, sender -> sender.maxSize)
+                .description("SMTP connection pool size")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport pooled = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                if (pooled == null) {
+                    try {
+                        pooled = borrow();
+                    } catch (AuthenticationFailedException e) {
+                        throw new MailAuthenticationException(e);
+                    } catch (Exception e) {
+                        for (int j = i; j < mimeMessages.length; j++) {
+                            failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], e);
+                        }
+                        throw new MailSendException("Mail server connection failed", e, failedMessages);
+                    }
+                }
+
+                MimeMessage mimeMessage = mimeMessages[i];
+                long start = System.nanoTime();
+                try {
+                    send(pooled, mimeMessage);
+                    record(sendTimer, start);
+                    if (pooled.sent >= maxMessagesPerConnection) {
+                        release(pooled);
+                        pooled = null;
+                    }
+                } catch (Exception e) {
+                    record(failedSendTimer, start);
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessage, e);
+                    // После ошибки состояние SMTP-сессии неизвестно, соединение не переиспользуем
+                    discard(pooled);
+                    pooled = null;
+                }
+            }
+        } finally {
+            if (pooled != null) {
+                release(pooled);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    private void send(PooledTransport pooled, MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            // saveChanges() генерирует новый Message-ID, сохраняем заданный явно
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+        Address[] addresses = mimeMessage.getAllRecipients();
+        pooled.transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+        pooled.sent++;
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection available within " + borrowTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for SMTP connection", e);
+        }
+        active.incrementAndGet();
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (System.currentTimeMillis() - pooled.lastUsed < maxIdleMillis && pooled.transport.isConnected()) {
+                    return pooled;
+                }
+                close(pooled);
+            }
+            return new PooledTransport(connectTransport());
+        } catch (MessagingException | RuntimeException e) {
+            active.decrementAndGet();
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport pooled) {
+        try {
+            if (pooled.sent >= maxMessagesPerConnection) {
+                log.debug("Recycling SMTP connection after {} messages", pooled.sent);
+                close(pooled);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private void discard(PooledTransport pooled) {
+        try {
+            close(pooled);
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (Exception e) {
+            log.debug("Could not close SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private void record(Timer timer, long start) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public int getActiveConnections() {
+        return active.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public void destroy() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            close(pooled);
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int sent;
+        private long lastUsed;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+}
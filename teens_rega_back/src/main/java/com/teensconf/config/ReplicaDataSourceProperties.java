@@ -0,0 +1,47 @@
+package com.teensconf.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Реплика для чтения. Пока {@code url} не задан, всё работает с одной базой.
+ *
+ * <pre>
+ * app:
+ *   datasource:
+ *     replica:
+ *       url: jdbc:postgresql://replica:5432/teens
+ *       username: teens_ro
+ *       password: secret
+ *       max-lag-seconds: 10       # при большем отставании чтение идёт в основную базу
+ *       check-interval-ms: 5000
+ * </pre>
+ *
+ * Для локальной проверки с двумя H2 отставание можно брать из таблицы:
+ * {@code lag-query: SELECT seconds FROM replica_lag}.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    /** Отставание реплики Postgres в секундах; 0, если все полученные изменения уже применены */
+    public static final String POSTGRES_LAG_QUERY = "SELECT CASE "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    private String driverClassName;
+
+    private int maximumPoolSize = 5;
+
+    private long maxLagSeconds = 10;
+
+    private long checkIntervalMs = 5000;
+
+    private String lagQuery = POSTGRES_LAG_QUERY;
+}
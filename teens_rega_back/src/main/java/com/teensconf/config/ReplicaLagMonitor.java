@@ -0,0 +1,86 @@
+package com.teensconf.config;
+
+import com.teensconf.service.DataVersion;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически измеряет отставание реплики и решает, можно ли сейчас читать с неё.
+ * С реплики не читаем, если она недоступна, отстаёт больше допустимого
+ * или этот экземпляр записал данные позже, чем реплика успела бы их получить.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    /** Запас поверх измеренного отставания после собственной записи */
+    private static final long READ_YOUR_WRITES_MARGIN_MILLIS = 1000;
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final DataVersion dataVersion;
+
+    private volatile boolean up;
+    private volatile long lagMillis = -1;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, long maxLagSeconds,
+                             DataVersion dataVersion, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = TimeUnit.SECONDS.toMillis(maxLagSeconds);
+        this.dataVersion = dataVersion;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagMillis / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.up", this, monitor -> monitor.up ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.check-interval-ms:5000}")
+    public void check() {
+        Double lagSeconds;
+        try {
+            lagSeconds = replica.queryForObject(lagQuery, Double.class);
+        } catch (DataAccessException e) {
+            markDown(e.getMessage());
+            return;
+        }
+        long lag = lagSeconds == null ? 0 : Math.round(lagSeconds * 1000);
+        lagMillis = lag;
+        boolean usable = lag <= maxLagMillis;
+        if (usable != up) {
+            log.info("Read replica {} (lag {} ms, tolerance {} ms)",
+                    usable ? "is in use" : "is lagging, reading from primary", lag, maxLagMillis);
+        }
+        up = usable;
+    }
+
+    /**
+     * Реплика не отдала соединение: до следующей удачной проверки читаем из основной базы
+     */
+    public void markDown(String reason) {
+        if (up) {
+            log.warn("Read replica is unavailable, reading from primary: {}", reason);
+        }
+        up = false;
+    }
+
+    public boolean isUsable() {
+        if (!up) {
+            return false;
+        }
+        long sinceWrite = TimeUnit.NANOSECONDS.toMillis(dataVersion.nanosSinceLastBump());
+        return sinceWrite > lagMillis + READ_YOUR_WRITES_MARGIN_MILLIS;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+}
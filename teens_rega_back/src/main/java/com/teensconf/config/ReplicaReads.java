@@ -0,0 +1,29 @@
+package com.teensconf.config;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Чтение, которому допустимо небольшое отставание: выполняется в транзакции только для чтения
+ * и, если настроена реплика ({@link ReplicaDataSourceConfig}), уходит на неё.
+ * Без реплики или внутри уже открытой транзакции на запись чтение идёт в основную базу.
+ * Только для запросов и фоновых задач, которые ничего не пишут: при открытой сессии на весь запрос
+ * соединение с репликой остаётся за ней до конца запроса.
+ */
+@Component
+public class ReplicaReads {
+
+    private final TransactionTemplate readOnly;
+
+    public ReplicaReads(PlatformTransactionManager transactionManager) {
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    public <T> T read(Supplier<T> work) {
+        return ReplicaRoutingDataSource.withReplica(() -> readOnly.execute(status -> work.get()));
+    }
+}
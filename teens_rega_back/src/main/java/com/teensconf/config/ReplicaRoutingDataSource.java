@@ -0,0 +1,76 @@
+package com.teensconf.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Направляет чтение на реплику, остальное - в основную базу.
+ * На реплику уходит только транзакция только для чтения, открытая через {@link ReplicaReads}:
+ * обычные чтения репозиториев (например, проверка регистрации перед оплатой) остаются в основной базе.
+ * Решение принимается при первом запросе транзакции, поэтому источник оборачивается
+ * в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> REPLICA_REQUESTED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    static <T> T withReplica(Supplier<T> work) {
+        Boolean previous = REPLICA_REQUESTED.get();
+        REPLICA_REQUESTED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_REQUESTED.remove();
+            } else {
+                REPLICA_REQUESTED.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean replicaRead = Boolean.TRUE.equals(REPLICA_REQUESTED.get())
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return replicaRead && lagMonitor.isUsable() ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target != replica) {
+            return target.getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            lagMonitor.markDown(e.getMessage());
+            return primary.getConnection();
+        }
+    }
+}
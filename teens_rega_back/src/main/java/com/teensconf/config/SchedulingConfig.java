@@ -0,0 +1,40 @@
+package com.teensconf.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Пул потоков для задач {@code @Scheduled}.
+ * По умолчанию Spring выполняет их в одном потоке, и долгая задача (выгрузка чеков на Яндекс.Диск,
+ * пересчёт статистики, перестройка индекса поиска) задерживает остальные: запись отметок о проходе
+ * раз в полсекунды, обновление списка на входе, опрос общей версии данных.
+ * Пул задаётся здесь, а не бином TaskScheduler: такой бин - ещё и Executor, и забрал бы себе задачи @Async.
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    public SchedulingConfig(@Value("${app.scheduling.pool-size:8}") int poolSize) {
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(10);
+        scheduler.initialize();
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(scheduler);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
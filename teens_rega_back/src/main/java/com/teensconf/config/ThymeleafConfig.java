@@ -1,31 +1,52 @@
 package com.teensconf.config;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 import org.thymeleaf.templatemode.TemplateMode;
 
+@Slf4j
 @Configuration
 public class ThymeleafConfig {
 
+    /**
+     * Кэш разобранных шаблонов включён везде, кроме профиля dev;
+     * явное значение можно задать через {@code app.templates.cache}
+     */
     @Bean
-    public ClassLoaderTemplateResolver templateResolver() {
+    public ClassLoaderTemplateResolver templateResolver(Environment environment) {
+        boolean cacheable = environment.getProperty("app.templates.cache", Boolean.class,
+                !environment.acceptsProfiles(Profiles.of("dev")));
+        log.info("Email template cache {}", cacheable ? "enabled" : "disabled");
+        return createTemplateResolver(cacheable);
+    }
+
+    @Bean
+    public SpringTemplateEngine templateEngine(ClassLoaderTemplateResolver templateResolver) {
+        return createTemplateEngine(templateResolver);
+    }
+
+    public static ClassLoaderTemplateResolver createTemplateResolver(boolean cacheable) {
         ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
         templateResolver.setPrefix("templates/");
         templateResolver.setSuffix(".html");
         templateResolver.setTemplateMode(TemplateMode.HTML);
         templateResolver.setCharacterEncoding("UTF-8");
         templateResolver.setCheckExistence(true);
-        templateResolver.setCacheable(false); // Для разработки
+        templateResolver.setCacheable(cacheable);
+        // Шаблоны лежат в jar и не меняются без перезапуска, поэтому кэш без TTL
+        templateResolver.setCacheTTLMs(null);
         return templateResolver;
     }
 
-    @Bean
-    public SpringTemplateEngine templateEngine() {
+    public static SpringTemplateEngine createTemplateEngine(ClassLoaderTemplateResolver templateResolver) {
         SpringTemplateEngine templateEngine = new SpringTemplateEngine();
-        templateEngine.setTemplateResolver(templateResolver());
+        templateEngine.setTemplateResolver(templateResolver);
         templateEngine.setEnableSpringELCompiler(true);
         return templateEngine;
     }
-}
\ No newline at end of file
+}
@@ -1,24 +1,43 @@
 package com.teensconf.controller;
 
+import com.teensconf.config.ReplicaReads;
+import com.teensconf.dto.ReceiptFileView;
+import com.teensconf.dto.ReceiptReviewRequest;
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.dto.RegistrationStats;
 import com.teensconf.entity.Registration;
-import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.repository.PaymentReceiptRepository;
 import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.service.AdminFeedService;
+import com.teensconf.service.AdminTokenService;
+import com.teensconf.service.ReceiptArchiveService;
+import com.teensconf.service.ReceiptDownloadService;
+import com.teensconf.service.ReceiptReviewService;
+import com.teensconf.service.RegistrationListService;
+import com.teensconf.service.RegistrationSearchService;
+import com.teensconf.service.RegistrationStatsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -27,6 +46,16 @@ import java.util.Map;
 public class AdminController {
 
     private final RegistrationRepository registrationRepository;
+    private final PaymentReceiptRepository paymentReceiptRepository;
+    private final ReceiptDownloadService receiptDownloadService;
+    private final ReceiptArchiveService receiptArchiveService;
+    private final ReceiptReviewService receiptReviewService;
+    private final RegistrationListService registrationListService;
+    private final RegistrationSearchService registrationSearchService;
+    private final RegistrationStatsService registrationStatsService;
+    private final AdminFeedService adminFeedService;
+    private final AdminTokenService adminTokenService;
+    private final ReplicaReads replicaReads;
 
     @Value("${app.admin.username}")
     private String adminUsername;
@@ -40,12 +69,13 @@ public class AdminController {
         String password = credentials.get("password");
 
         log.info("Login attempt for username: {}", username);
-        log.info("Expected username: {}, password: {}", adminUsername, adminPassword);
 
-        if (adminUsername.equals(username) && adminPassword.equals(password)) {
+        if (matches(adminUsername, username) && matches(adminPassword, password)) {
             log.info("Login successful for user: {}", username);
-            Map<String, String> response = new HashMap<>();
-            response.put("token", "admin-auth-token");
+            AdminTokenService.AdminToken token = adminTokenService.issue(username);
+            Map<String, Object> response = new HashMap<>();
+            response.put("token", token.getToken());
+            response.put("expiresAt", token.getExpiresAt().toString());
             response.put("message", "Авторизация успешна");
             return ResponseEntity.ok(response);
         } else {
@@ -54,53 +84,109 @@ public class AdminController {
         }
     }
 
+    /**
+     * Сравнение за постоянное время, чтобы по времени ответа нельзя было подбирать пароль
+     */
+    private static boolean matches(String expected, String actual) {
+        return actual != null && MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Список регистраций постранично по курсору; {@code withTotal} добавляет приблизительное общее число
+     */
     @GetMapping("/registrations")
-    public ResponseEntity<Page<Registration>> getRegistrations(Pageable pageable) {
-        return ResponseEntity.ok(registrationRepository.findAll(pageable));
+    public ResponseEntity<?> getRegistrations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + RegistrationListService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(replicaReads.read(() -> registrationListService.getPage(cursor, size, withTotal)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/registrations/search")
+    public ResponseEntity<List<RegistrationListItem>> searchRegistrations(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        // Найденные в памяти id, которых реплика ещё не получила, просто не попадут в ответ
+        return ResponseEntity.ok(replicaReads.read(() -> registrationSearchService.search(q, limit)));
     }
 
     @GetMapping("/registrations/{id}")
     public ResponseEntity<Registration> getRegistration(@PathVariable Long id) {
-        return registrationRepository.findById(id)
+        return replicaReads.read(() -> registrationRepository.findById(id))
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalRegistrations", registrationRepository.count());
-        stats.put("completedRegistrations", registrationRepository.countByRegistrationCompletedAtIsNotNull());
-        stats.put("pendingRegistrations", registrationRepository.countByRegistrationCompletedAtIsNull());
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<RegistrationStats> getStats() {
+        return ResponseEntity.ok(registrationStatsService.getStats());
+    }
+
+    /**
+     * Живая лента изменений (Server-Sent Events) вместо периодического обновления страницы
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(HttpServletResponse response) {
+        // nginx по умолчанию буферизует ответ прокси и придержал бы события
+        response.setHeader("X-Accel-Buffering", "no");
+        try {
+            return adminFeedService.subscribe();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
     }
 
     @GetMapping("/registrations/{id}/receipt")
-    public ResponseEntity<Resource> downloadReceipt(@PathVariable Long id) {
+    public void downloadReceipt(@PathVariable Long id,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        Optional<ReceiptFileView> receipt = replicaReads.read(() -> paymentReceiptRepository.findFileByRegistrationId(id));
+        if (receipt.isEmpty() || receipt.get().getFilePath() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        receiptDownloadService.send(receipt.get(), request, response);
+    }
+
+    @GetMapping("/receipts/archive")
+    public void downloadReceiptsArchive(
+            @RequestParam(required = false) Boolean verified,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletResponse response) throws IOException {
+        String fileName = "receipts_" + LocalDate.now() + ".zip";
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+
+        receiptArchiveService.writeArchive(response.getOutputStream(),
+                verified,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null);
+    }
+
+    /**
+     * Ручное подтверждение непроверенных чеков сразу по многим регистрациям
+     */
+    @PostMapping("/receipts/verify")
+    public ResponseEntity<?> verifyReceipts(@RequestBody ReceiptReviewRequest request) {
+        try {
+            return ResponseEntity.ok(receiptReviewService.verify(request.getRegistrationIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/receipts/reject")
+    public ResponseEntity<?> rejectReceipts(@RequestBody ReceiptReviewRequest request) {
         try {
-            Registration registration = registrationRepository.findById(id)
-                    .orElseThrow(() -> new IllegalArgumentException("Регистрация не найдена"));
-
-            PaymentReceipt receipt = registration.getPaymentReceipt();
-            if (receipt == null) {
-                return ResponseEntity.notFound().build();
-            }
-
-            Path filePath = Paths.get(receipt.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "attachment; filename=\"" + receipt.getFileName() + "\"")
-                        .contentType(MediaType.APPLICATION_PDF)
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
-            log.error("Error downloading receipt: {}", e.getMessage());
-            return ResponseEntity.notFound().build();
+            return ResponseEntity.ok(receiptReviewService.reject(request.getRegistrationIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
     }
-}
\ No newline at end of file
+}
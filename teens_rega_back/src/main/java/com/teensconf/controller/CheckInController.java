@@ -0,0 +1,54 @@
+package com.teensconf.controller;
+
+import com.teensconf.dto.CheckInResult;
+import com.teensconf.dto.RosterSnapshot;
+import com.teensconf.service.CheckInService;
+import com.teensconf.service.RosterSnapshotService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/checkin")
+@RequiredArgsConstructor
+public class CheckInController {
+
+    private final CheckInService checkInService;
+    private final RosterSnapshotService rosterSnapshotService;
+
+    @PostMapping("/scan")
+    public ResponseEntity<CheckInResult> scan(@RequestBody Map<String, String> body) {
+        return ResponseEntity.ok(checkInService.scan(body.get("payload")));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("roster", checkInService.getRosterSize());
+        stats.put("checkedIn", checkInService.getCheckedInCount());
+        stats.put("pendingWrites", checkInService.getPendingWrites());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Офлайн-снимок списка участников; с {@code since} - дельта от ранее выданной версии
+     */
+    @GetMapping("/roster")
+    public ResponseEntity<byte[]> getRoster(@RequestParam(required = false) Long since) {
+        RosterSnapshot snapshot = rosterSnapshotService.build(since);
+        String fileName = (snapshot.isDelta() ? "roster-" + since + "-" : "roster-") + snapshot.getVersion() + ".bin";
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .header("X-Roster-Version", String.valueOf(snapshot.getVersion()))
+                .body(snapshot.getContent());
+    }
+}
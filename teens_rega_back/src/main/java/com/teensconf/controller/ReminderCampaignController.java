@@ -0,0 +1,44 @@
+package com.teensconf.controller;
+
+import com.teensconf.entity.ReminderCampaign;
+import com.teensconf.service.ReminderCampaignService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/reminders")
+@RequiredArgsConstructor
+public class ReminderCampaignController {
+
+    private final ReminderCampaignService reminderCampaignService;
+
+    @PostMapping
+    public ResponseEntity<?> start() {
+        try {
+            return ResponseEntity.ok(reminderCampaignService.start());
+        } catch (IllegalStateException e) {
+            log.warn("Reminder campaign not started: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/latest")
+    public ResponseEntity<ReminderCampaign> getLatest() {
+        return reminderCampaignService.getLatest()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<ReminderCampaign> cancel(@PathVariable Long id) {
+        return reminderCampaignService.cancel(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,46 @@
+package com.teensconf.controller;
+
+import com.teensconf.dto.ReportDimension;
+import com.teensconf.service.ReportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final ReportService reportService;
+
+    /**
+     * Сводный отчёт, например {@code ?dimensions=city,role}
+     */
+    @GetMapping("/pivot")
+    public ResponseEntity<?> pivot(@RequestParam List<String> dimensions) {
+        try {
+            List<ReportDimension> parsed = new ArrayList<>(dimensions.size());
+            for (String dimension : dimensions) {
+                parsed.add(parse(dimension));
+            }
+            return ResponseEntity.ok(reportService.pivot(parsed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    private static ReportDimension parse(String dimension) {
+        try {
+            return ReportDimension.valueOf(dimension.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный разрез: " + dimension);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Изменение для живой ленты админки: регистрация и на сколько изменились счётчики статистики
+ */
+@Data
+@AllArgsConstructor
+public class AdminFeedUpdate {
+
+    public enum Change {
+        CREATED,
+        COMPLETED
+    }
+
+    private Change change;
+    private RegistrationListItem registration;
+    private int totalDelta;
+    private int completedDelta;
+    private int pendingDelta;
+}
@@ -0,0 +1,31 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class CheckInResult {
+
+    public enum Status {
+        CHECKED_IN,
+        ALREADY_CHECKED_IN,
+        NOT_FOUND,
+        INVALID
+    }
+
+    private Status status;
+    private Long registrationId;
+    private String fullName;
+    private String role;
+    private Boolean needAccommodation;
+    private Boolean under14;
+    private LocalDateTime checkedInAt;
+    private String message;
+
+    public static CheckInResult rejected(Status status, Long registrationId, String message) {
+        return new CheckInResult(status, registrationId, null, null, null, null, null, message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Страница выборки по ключу: {@code nextCursor} передаётся в следующий запрос, null - страниц больше нет
+ */
+@Data
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private Long approximateTotal;
+}
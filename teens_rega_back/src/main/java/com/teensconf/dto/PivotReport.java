@@ -0,0 +1,30 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Сводный отчёт: число регистраций для каждого встретившегося сочетания значений разрезов,
+ * по убыванию числа
+ */
+@Data
+@AllArgsConstructor
+public class PivotReport {
+
+    @Data
+    @AllArgsConstructor
+    public static class Row {
+        private List<String> values;
+        private long count;
+    }
+
+    private List<ReportDimension> dimensions;
+    private List<String> titles;
+    private List<Row> rows;
+    private long total;
+    /** Момент, по состоянию на который построен снимок данных */
+    private LocalDateTime asOf;
+}
@@ -0,0 +1,23 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class ReceiptArchiveEntry {
+    private Long receiptId;
+    private Long registrationId;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String fileName;
+    private String filePath;
+    private Long fileSize;
+    private String contentHash;
+    private Boolean verified;
+    private Double donationAmount;
+    private LocalDateTime paymentCreatedAt;
+}
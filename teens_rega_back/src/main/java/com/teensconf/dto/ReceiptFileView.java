@@ -0,0 +1,12 @@
+package com.teensconf.dto;
+
+/**
+ * Проекция чека только с полями, нужными для отдачи файла
+ */
+public interface ReceiptFileView {
+    Long getId();
+    String getFileName();
+    String getFilePath();
+    Long getFileSize();
+    String getContentHash();
+}
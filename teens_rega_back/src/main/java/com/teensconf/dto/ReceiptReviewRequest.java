@@ -0,0 +1,10 @@
+package com.teensconf.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ReceiptReviewRequest {
+    private List<Long> registrationIds;
+}
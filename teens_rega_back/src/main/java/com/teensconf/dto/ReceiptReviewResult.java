@@ -0,0 +1,18 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Итог массовой проверки чеков: сколько регистраций обработано и какие пропущены
+ * (нет непроверенного чека, регистрация уже завершена или обработана параллельно)
+ */
+@Data
+@AllArgsConstructor
+public class ReceiptReviewResult {
+    private int requested;
+    private int applied;
+    private List<Long> skipped;
+}
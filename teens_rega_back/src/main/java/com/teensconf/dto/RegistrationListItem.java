@@ -0,0 +1,22 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class RegistrationListItem {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+    private String city;
+    private String role;
+    private Boolean needAccommodation;
+    private LocalDateTime registrationCreatedAt;
+    private LocalDateTime registrationCompletedAt;
+    private String receiptFileName;
+}
@@ -0,0 +1,34 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Статистика регистраций для панели администратора.
+ * Разбивки отсортированы по убыванию числа регистраций.
+ */
+@Data
+@AllArgsConstructor
+public class RegistrationStats {
+
+    @Data
+    @AllArgsConstructor
+    public static class Counts {
+        private long total;
+        private long completed;
+    }
+
+    private long totalRegistrations;
+    private long completedRegistrations;
+    private long pendingRegistrations;
+    private Counts needAccommodation;
+    private Map<String, Counts> byRole;
+    private Map<String, Counts> byCity;
+    private Map<String, Counts> byChurch;
+    private Map<String, Counts> byAgeGroup;
+    /** Когда счётчики последний раз сверялись с базой */
+    private LocalDateTime reconciledAt;
+}
@@ -0,0 +1,13 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ReminderRecipient {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+}
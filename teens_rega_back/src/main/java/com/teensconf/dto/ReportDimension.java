@@ -0,0 +1,22 @@
+package com.teensconf.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Разрезы, по которым строятся сводные отчёты по регистрациям
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ReportDimension {
+    CITY("Город"),
+    ROLE("Роль"),
+    CHURCH("Церковь"),
+    AGE_GROUP("Возраст"),
+    NEED_ACCOMMODATION("Нужно проживание"),
+    WAS_BEFORE("Был раньше"),
+    STATUS("Оплата"),
+    CREATED_DATE("Дата регистрации");
+
+    private final String title;
+}
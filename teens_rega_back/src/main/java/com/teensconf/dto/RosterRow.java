@@ -0,0 +1,20 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class RosterRow {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String role;
+    private String city;
+    private Boolean needAccommodation;
+    private Boolean consentUnder14;
+    private LocalDateTime registrationCompletedAt;
+    private LocalDateTime checkedInAt;
+}
@@ -0,0 +1,13 @@
+package com.teensconf.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RosterSnapshot {
+    private byte[] content;
+    private long version;
+    private int records;
+    private boolean delta;
+}
@@ -17,7 +17,7 @@ public class PaymentReceipt {
     private Registration registration;
 
     @Column(name = "donation_amount")
-    private Double donationAmount = 500.0;
+    private Double donationAmount;
 
     @Column(name = "paid")
     private Boolean paid = false;
@@ -34,6 +34,9 @@ public class PaymentReceipt {
     @Column(name = "file_size")
     private Long fileSize;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "verified")
     private Boolean verified = false;
 
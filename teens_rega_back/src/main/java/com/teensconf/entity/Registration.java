@@ -66,6 +66,28 @@ public class Registration {
     @Column(name = "registration_completed_at")
     private LocalDateTime registrationCompletedAt;
 
+    /**
+     * Пишется только пакетами из CheckInService, JPA это поле не перезаписывает
+     */
+    @Column(name = "checked_in_at", insertable = false, updatable = false)
+    private LocalDateTime checkedInAt;
+
+    /**
+     * Доставка письма с билетом, пишется только из {@link com.teensconf.service.TicketEmailOutbox}
+     */
+    @Column(name = "ticket_email_queued_at", insertable = false, updatable = false)
+    private LocalDateTime ticketEmailQueuedAt;
+
+    @Column(name = "ticket_email_sent_at", insertable = false, updatable = false)
+    private LocalDateTime ticketEmailSentAt;
+
+    @Column(name = "ticket_email_failed_at", insertable = false, updatable = false)
+    private LocalDateTime ticketEmailFailedAt;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @OneToOne(mappedBy = "registration", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private PaymentReceipt paymentReceipt;
 
@@ -0,0 +1,60 @@
+package com.teensconf.entity;
+
+import lombok.Data;
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Рассылка напоминаний об оплате. {@code lastRegistrationId} - контрольная точка:
+ * все неоплаченные регистрации с id до неё включительно уже получили письмо.
+ */
+@Data
+@Entity
+@Table(name = "reminder_campaigns")
+public class ReminderCampaign {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Status status;
+
+    /**
+     * Регистрации, созданные после запуска рассылки, в неё не попадают
+     */
+    @Column(name = "max_registration_id", nullable = false)
+    private Long maxRegistrationId;
+
+    @Column(name = "last_registration_id", nullable = false)
+    private Long lastRegistrationId = 0L;
+
+    @Column(name = "queued_count", nullable = false)
+    private Integer queuedCount = 0;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    /**
+     * Узел, который сейчас ведёт рассылку, и срок его аренды; аренда продлевается на каждой контрольной точке
+     */
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,17 @@
+package com.teensconf.event;
+
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.entity.Registration;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Регистрация оплачена и завершена. Публикуется внутри транзакции,
+ * слушатели обрабатывают его после коммита.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PaymentCompletedEvent {
+    private final Registration registration;
+    private final PaymentReceipt receipt;
+}
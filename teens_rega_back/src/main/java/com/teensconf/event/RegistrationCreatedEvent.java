@@ -0,0 +1,14 @@
+package com.teensconf.event;
+
+import com.teensconf.entity.Registration;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Новая регистрация сохранена
+ */
+@Getter
+@RequiredArgsConstructor
+public class RegistrationCreatedEvent {
+    private final Registration registration;
+}
@@ -1,9 +1,16 @@
 package com.teensconf.repository;
 
+import com.teensconf.dto.ReceiptArchiveEntry;
+import com.teensconf.dto.ReceiptFileView;
 import com.teensconf.entity.PaymentReceipt;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +19,30 @@ public interface PaymentReceiptRepository extends JpaRepository<PaymentReceipt,
     List<PaymentReceipt> findByRegistrationId(Long registrationId);
     Optional<PaymentReceipt> findByPaymentReference(String paymentReference);
     boolean existsByPaymentReference(String paymentReference);
+    Optional<ReceiptFileView> findFileByRegistrationId(Long registrationId);
+    boolean existsByContentHash(String contentHash);
+
+    /**
+     * Чеки вместе с регистрациями одним запросом - для событий после массового подтверждения
+     */
+    @Query("select p from PaymentReceipt p join fetch p.registration r where r.id in :registrationIds")
+    List<PaymentReceipt> findWithRegistrationByRegistrationIdIn(
+            @Param("registrationIds") Collection<Long> registrationIds);
+
+    /**
+     * Очередная порция чеков для архива: постраничная выборка по ключу (id > afterId)
+     */
+    @Query("select new com.teensconf.dto.ReceiptArchiveEntry(p.id, r.id, r.firstName, r.lastName, r.email, " +
+            "p.fileName, p.filePath, p.fileSize, p.contentHash, p.verified, p.donationAmount, p.paymentCreatedAt) " +
+            "from PaymentReceipt p join p.registration r " +
+            "where p.id > :afterId " +
+            "and (:verified is null or p.verified = :verified) " +
+            "and (:from is null or p.paymentCreatedAt >= :from) " +
+            "and (:to is null or p.paymentCreatedAt < :to) " +
+            "order by p.id")
+    List<ReceiptArchiveEntry> findArchiveChunk(@Param("afterId") long afterId,
+                                               @Param("verified") Boolean verified,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               Pageable pageable);
 }
\ No newline at end of file
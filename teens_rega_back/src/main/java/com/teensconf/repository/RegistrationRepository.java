@@ -1,13 +1,102 @@
 package com.teensconf.repository;
 
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.dto.RegistrationSearchRow;
+import com.teensconf.dto.ReminderRecipient;
+import com.teensconf.dto.RosterRow;
 import com.teensconf.entity.Registration;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RegistrationRepository extends JpaRepository<Registration, Long> {
-    long countByRegistrationCompletedAtIsNotNull();
-    long countByRegistrationCompletedAtIsNull();
+    @Query("select new com.teensconf.dto.RosterRow(r.id, r.firstName, r.lastName, r.role, r.city, " +
+            "r.needAccommodation, r.consentUnder14, r.registrationCompletedAt, r.checkedInAt) " +
+            "from Registration r where r.registrationCompletedAt is not null")
+    List<RosterRow> findRoster();
+
+    /**
+     * Регистрации, завершённые начиная с указанного момента - для инкрементального обновления списка на входе
+     */
+    @Query("select new com.teensconf.dto.RosterRow(r.id, r.firstName, r.lastName, r.role, r.city, " +
+            "r.needAccommodation, r.consentUnder14, r.registrationCompletedAt, r.checkedInAt) " +
+            "from Registration r where r.registrationCompletedAt >= :since")
+    List<RosterRow> findRosterCompletedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Оплаченные регистрации для офлайн-снимка списка участников
+     */
+    @Query("select new com.teensconf.dto.RosterRow(r.id, r.firstName, r.lastName, r.role, r.city, " +
+            "r.needAccommodation, r.consentUnder14, r.registrationCompletedAt, r.checkedInAt) " +
+            "from PaymentReceipt p join p.registration r " +
+            "where p.paid = true and r.registrationCompletedAt is not null order by r.id")
+    List<RosterRow> findRosterSnapshot();
+
+    /**
+     * Оплаченные регистрации, завершённые или прошедшие на вход начиная с указанного момента - для дельты снимка
+     */
+    @Query("select new com.teensconf.dto.RosterRow(r.id, r.firstName, r.lastName, r.role, r.city, " +
+            "r.needAccommodation, r.consentUnder14, r.registrationCompletedAt, r.checkedInAt) " +
+            "from PaymentReceipt p join p.registration r " +
+            "where p.paid = true and r.registrationCompletedAt is not null " +
+            "and (r.registrationCompletedAt >= :since or r.checkedInAt >= :since) order by r.id")
+    List<RosterRow> findRosterSnapshotChangedSince(@Param("since") LocalDateTime since);
+
+    @Query("select coalesce(max(r.id), 0) from Registration r")
+    long findMaxId();
+
+    /**
+     * Очередная порция неоплаченных регистраций для напоминаний: выборка по ключу (afterId < id <= maxId)
+     */
+    @Query("select new com.teensconf.dto.ReminderRecipient(r.id, r.firstName, r.lastName, r.email) " +
+            "from Registration r " +
+            "where r.registrationCompletedAt is null and r.id > :afterId and r.id <= :maxId " +
+            "order by r.id")
+    List<ReminderRecipient> findReminderChunk(@Param("afterId") long afterId,
+                                              @Param("maxId") long maxId,
+                                              Pageable pageable);
+
+    /**
+     * Первая страница списка в админке: только показываемые колонки, новые регистрации сверху
+     */
+    @Query("select new com.teensconf.dto.RegistrationListItem(r.id, r.firstName, r.lastName, r.email, r.phone, " +
+            "r.city, r.role, r.needAccommodation, r.registrationCreatedAt, r.registrationCompletedAt, p.fileName) " +
+            "from Registration r left join r.paymentReceipt p " +
+            "order by r.registrationCreatedAt desc, r.id desc")
+    List<RegistrationListItem> findListPage(Pageable pageable);
+
+    /**
+     * Следующая страница списка: выборка по ключу (registrationCreatedAt, id) после последней строки предыдущей.
+     * Условие {@code registrationCreatedAt <= :createdAt} избыточно, но без него планировщик не видит
+     * верхней границы диапазона по idx_registrations_created_id и читает индекс с начала, отбрасывая строки
+     */
+    @Query("select new com.teensconf.dto.RegistrationListItem(r.id, r.firstName, r.lastName, r.email, r.phone, " +
+            "r.city, r.role, r.needAccommodation, r.registrationCreatedAt, r.registrationCompletedAt, p.fileName) " +
+            "from Registration r left join r.paymentReceipt p " +
+            "where r.registrationCreatedAt <= :createdAt " +
+            "and (r.registrationCreatedAt < :createdAt or (r.registrationCreatedAt = :createdAt and r.id < :id)) " +
+            "order by r.registrationCreatedAt desc, r.id desc")
+    List<RegistrationListItem> findListPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") long id,
+                                                 Pageable pageable);
+
+    @Query("select new com.teensconf.dto.RegistrationListItem(r.id, r.firstName, r.lastName, r.email, r.phone, " +
+            "r.city, r.role, r.needAccommodation, r.registrationCreatedAt, r.registrationCompletedAt, p.fileName) " +
+            "from Registration r left join r.paymentReceipt p where r.id in :ids")
+    List<RegistrationListItem> findListItemsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Порция полей для индекса поиска в памяти: выборка по ключу (id > afterId)
+     */
+    @Query("select new com.teensconf.dto.RegistrationSearchRow(r.id, r.firstName, r.lastName, r.email, r.phone, " +
+            "r.city, r.church) from Registration r where r.id > :afterId order by r.id")
+    List<RegistrationSearchRow> findSearchChunk(@Param("afterId") long afterId, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.teensconf.repository;
+
+import com.teensconf.entity.ReminderCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReminderCampaignRepository extends JpaRepository<ReminderCampaign, Long> {
+    List<ReminderCampaign> findByStatus(ReminderCampaign.Status status);
+    Optional<ReminderCampaign> findFirstByOrderByIdDesc();
+
+    /**
+     * Забирает рассылку себе, если её никто не ведёт или аренда прежнего узла истекла
+     *
+     * @return 0, если рассылку ведёт другой узел или она уже остановлена
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReminderCampaign c set c.leaseOwner = :owner, c.leaseUntil = :leaseUntil " +
+            "where c.id = :id and c.status = com.teensconf.entity.ReminderCampaign.Status.RUNNING " +
+            "and (c.leaseOwner = :owner or c.leaseUntil is null or c.leaseUntil < :now)")
+    int acquireLease(@Param("id") Long id,
+                     @Param("owner") String owner,
+                     @Param("now") LocalDateTime now,
+                     @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Продлевает аренду; с {@code leaseUntil} в прошлом - отпускает рассылку другим узлам
+     *
+     * @return 0, если аренду забрал другой узел или рассылку остановили
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReminderCampaign c set c.leaseUntil = :leaseUntil " +
+            "where c.id = :id and c.status = com.teensconf.entity.ReminderCampaign.Status.RUNNING " +
+            "and c.leaseOwner = :owner")
+    int renewLease(@Param("id") Long id,
+                   @Param("owner") String owner,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Сдвигает контрольную точку и продлевает аренду, только пока рассылка не остановлена и её ведёт этот узел
+     *
+     * @return 0, если рассылку уже отменили или её забрал другой узел
+     */
+    @Transactional
+    @Modifying
+    @Query("update ReminderCampaign c set c.lastRegistrationId = :lastRegistrationId, " +
+            "c.queuedCount = c.queuedCount + :queued, c.updatedAt = :now, c.leaseUntil = :leaseUntil " +
+            "where c.id = :id and c.status = com.teensconf.entity.ReminderCampaign.Status.RUNNING " +
+            "and c.leaseOwner = :owner")
+    int checkpoint(@Param("id") Long id,
+                   @Param("owner") String owner,
+                   @Param("lastRegistrationId") long lastRegistrationId,
+                   @Param("queued") int queued,
+                   @Param("now") LocalDateTime now,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update ReminderCampaign c set c.status = :status, c.updatedAt = :now, c.finishedAt = :now " +
+            "where c.id = :id and c.status = com.teensconf.entity.ReminderCampaign.Status.RUNNING")
+    int finish(@Param("id") Long id,
+               @Param("status") ReminderCampaign.Status status,
+               @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,233 @@
+package com.teensconf.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teensconf.dto.AdminFeedUpdate;
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.event.RegistrationCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Живая лента для админки по Server-Sent Events: новые и оплаченные регистрации вместе с изменением статистики.
+ * Событие сериализуется один раз и раскладывается по буферам подписчиков без блокировок на отправке.
+ * Буфер каждого подписчика ограничен: если клиент не успевает читать, старые события выбрасываются,
+ * а клиенту отправляется {@value #RESYNC_EVENT}, по которому он перечитывает данные целиком.
+ * Отправкой в каждое соединение занимается не больше одного потока, так что медленный клиент задерживает только себя.
+ */
+@Slf4j
+@Service
+public class AdminFeedService {
+
+    static final String UPDATE_EVENT = "registration";
+    static final String RESYNC_EVENT = "resync";
+
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final Counter droppedCounter;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public AdminFeedService(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.admin.stream.buffer-size:256}") int bufferSize,
+                            @Value("${app.admin.stream.max-subscribers:50}") int maxSubscribers,
+                            @Value("${app.admin.stream.timeout-ms:1800000}") long timeoutMillis) {
+        this(objectMapper, meterRegistry, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "admin-feed");
+            thread.setDaemon(true);
+            return thread;
+        }), bufferSize, maxSubscribers, timeoutMillis);
+    }
+
+    AdminFeedService(ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry,
+                     Executor executor,
+                     int bufferSize,
+                     int maxSubscribers,
+                     long timeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeoutMillis;
+        this.droppedCounter = Counter.builder("admin.stream.dropped")
+                .register(meterRegistry);
+        Gauge.builder("admin.stream.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Новое подключение к ленте
+     *
+     * @throws IllegalStateException если подключений уже слишком много
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Слишком много подключений к ленте, попробуйте позже");
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        log.info("Admin feed subscriber connected, {} total", subscribers.size());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        publish(new AdminFeedUpdate(AdminFeedUpdate.Change.CREATED,
+                toListItem(event.getRegistration(), null), 1, 0, 1));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentCompleted(PaymentCompletedEvent event) {
+        publish(new AdminFeedUpdate(AdminFeedUpdate.Change.COMPLETED,
+                toListItem(event.getRegistration(), event.getReceipt()), 0, 1, -1));
+    }
+
+    void publish(AdminFeedUpdate update) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize admin feed update: {}", e.getMessage());
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().name(UPDATE_EVENT).data(json, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Комментарий раз в несколько секунд не даёт прокси закрыть простаивающее соединение
+     * и помогает заметить отключившихся клиентов
+     */
+    @Scheduled(fixedDelayString = "${app.admin.stream.heartbeat-ms:20000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event().comment("ping"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    private static RegistrationListItem toListItem(Registration registration, PaymentReceipt receipt) {
+        return new RegistrationListItem(registration.getId(), registration.getFirstName(), registration.getLastName(),
+                registration.getEmail(), registration.getPhone(), registration.getCity(), registration.getRole(),
+                registration.getNeedAccommodation(), registration.getRegistrationCreatedAt(),
+                registration.getRegistrationCompletedAt(), receipt != null ? receipt.getFileName() : null);
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Deque<SseEmitter.SseEventBuilder> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        /** События выбрасывались - перед следующим клиенту нужно перечитать данные */
+        private boolean overflowed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(SseEmitter.SseEventBuilder event) {
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    overflowed = true;
+                    droppedCounter.increment();
+                }
+                buffer.addLast(event);
+            }
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    SseEmitter.SseEventBuilder event = next();
+                    if (event == null) {
+                        draining.set(false);
+                        // Событие могло прийти между пустой выборкой и сбросом флага
+                        if (isEmpty() || !draining.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Admin feed subscriber disconnected: {}", e.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+
+        private SseEmitter.SseEventBuilder next() {
+            synchronized (buffer) {
+                if (overflowed) {
+                    overflowed = false;
+                    return SseEmitter.event().name(RESYNC_EVENT).data("{}", MediaType.APPLICATION_JSON);
+                }
+                return buffer.pollFirst();
+            }
+        }
+
+        private boolean isEmpty() {
+            synchronized (buffer) {
+                return buffer.isEmpty() && !overflowed;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.teensconf.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Подписанные токены администратора (JWT, HS256) без хранения сессий:
+ * любой экземпляр приложения с тем же секретом проверяет токен сам.
+ * Ключ и парсер создаются один раз, а недавно проверенные токены запоминаются в небольшом LRU,
+ * так что повторная проверка того же токена не пересчитывает подпись.
+ */
+@Slf4j
+@Service
+public class AdminTokenService {
+
+    private static final String ROLE_CLAIM = "role";
+    private static final String ADMIN_ROLE = "ADMIN";
+    private static final long CLOCK_SKEW_SECONDS = 30;
+    private static final int MIN_KEY_BITS = 256;
+
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final long ttlMinutes;
+    private final int cacheSize;
+
+    private final LinkedHashMap<String, AdminToken> verified;
+
+    @Autowired
+    public AdminTokenService(@Value("${app.admin.jwt-secret:}") String secret,
+                             @Value("${app.admin.jwt-ttl-minutes:720}") long ttlMinutes,
+                             @Value("${app.admin.jwt-cache-size:1024}") int cacheSize,
+                             Environment environment) {
+        this(signingKey(secret, environment.acceptsProfiles(Profiles.of("dev", "test"))), ttlMinutes, cacheSize);
+    }
+
+    public AdminTokenService(String secret, long ttlMinutes, int cacheSize) {
+        this(signingKey(secret, false), ttlMinutes, cacheSize);
+    }
+
+    private AdminTokenService(SecretKey key, long ttlMinutes, int cacheSize) {
+        this.key = key;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .setAllowedClockSkewSeconds(CLOCK_SKEW_SECONDS)
+                .build();
+        this.ttlMinutes = ttlMinutes;
+        this.cacheSize = cacheSize;
+        this.verified = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AdminToken> eldest) {
+                return size() > AdminTokenService.this.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Секрет - ключ HS256 в Base64, не короче 256 бит. Случайный ключ без секрета допустим только
+     * в профилях dev и test: его токены не примут другие экземпляры и этот же после перезапуска.
+     */
+    private static SecretKey signingKey(String secret, boolean allowRandomKey) {
+        if (secret == null || secret.isBlank()) {
+            if (!allowRandomKey) {
+                throw new IllegalStateException("app.admin.jwt-secret is not set: "
+                        + "configure a Base64-encoded key of at least " + MIN_KEY_BITS + " bits");
+            }
+            log.warn("app.admin.jwt-secret is not set, admin tokens are signed with a random per-process key");
+            return Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        }
+
+        byte[] keyBytes;
+        try {
+            keyBytes = Decoders.BASE64.decode(secret.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("app.admin.jwt-secret is not valid Base64: " + e.getMessage());
+        }
+        if (keyBytes.length * 8 < MIN_KEY_BITS) {
+            throw new IllegalStateException("app.admin.jwt-secret decodes to " + keyBytes.length * 8
+                    + " bits, HS256 needs at least " + MIN_KEY_BITS + " bits (" + MIN_KEY_BITS / 8 + " bytes)");
+        }
+        return Keys.hmacShaKeyFor(keyBytes);
+    }
+
+    public AdminToken issue(String username) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(ttlMinutes, ChronoUnit.MINUTES);
+        String token = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(username)
+                .claim(ROLE_CLAIM, ADMIN_ROLE)
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(expiresAt))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+        return new AdminToken(token, username, expiresAt);
+    }
+
+    /**
+     * @return данные токена, если подпись верна и срок не истёк
+     */
+    public Optional<AdminToken> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        AdminToken cached;
+        synchronized (verified) {
+            cached = verified.get(token);
+        }
+        if (cached != null) {
+            if (Instant.now().isBefore(cached.getExpiresAt().plusSeconds(CLOCK_SKEW_SECONDS))) {
+                return Optional.of(cached);
+            }
+            synchronized (verified) {
+                verified.remove(token);
+            }
+            return Optional.empty();
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected admin token: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (!ADMIN_ROLE.equals(claims.get(ROLE_CLAIM, String.class)) || claims.getExpiration() == null) {
+            return Optional.empty();
+        }
+
+        AdminToken result = new AdminToken(token, claims.getSubject(), claims.getExpiration().toInstant());
+        synchronized (verified) {
+            verified.put(token, result);
+        }
+        return Optional.of(result);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class AdminToken {
+        private final String token;
+        private final String username;
+        private final Instant expiresAt;
+    }
+}
@@ -0,0 +1,299 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.CheckInResult;
+import com.teensconf.dto.RosterRow;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.LongObjectHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Регистрация участников на входе.
+ * Билет проверяется по подписи ({@link TicketCodec}), участник ищется в списке завершённых
+ * регистраций в памяти, повторное сканирование отсекается CAS по записи участника.
+ * В базу отметки о проходе пишутся пакетами в фоне.
+ * Повторное сканирование отсекается только в пределах узла: если билет отсканировали на входах,
+ * которые обслуживают разные экземпляры, оба отметят проход. Такой повтор виден только при записи -
+ * строка уже отмечена, пакет её не меняет; он пишется в лог и считается в метрике {@code checkin.duplicate.writes}.
+ */
+@Slf4j
+@Service
+public class CheckInService {
+
+    private static final String UPDATE_CHECKED_IN =
+            "UPDATE registrations SET checked_in_at = ? WHERE id = ? AND checked_in_at IS NULL";
+    private static final int MAX_BATCH = 500;
+    /** Не чаще раза в секунду идём в базу за новыми регистрациями из-за неизвестного билета */
+    private static final long MISS_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * Отметка о завершении ставится до коммита (а при ручной проверке - одна на всю порцию),
+     * поэтому строка может стать видна позже строки с большей отметкой; перекрытие это покрывает
+     */
+    private static final long WATERMARK_OVERLAP_MINUTES = 1;
+
+    private final RegistrationRepository registrationRepository;
+    private final TicketCodec ticketCodec;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataVersion dataVersion;
+
+    private volatile LongObjectHashMap<RosterEntry> roster = new LongObjectHashMap<>(0);
+    private LocalDateTime watermark;
+    private volatile long lastRefreshNanos;
+
+    private final ConcurrentLinkedQueue<RosterEntry> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicInteger checkedIn = new AtomicInteger();
+
+    private final Timer checkedInTimer;
+    private final Timer duplicateTimer;
+    private final Timer rejectedTimer;
+    private final Counter duplicateWrites;
+
+    public CheckInService(RegistrationRepository registrationRepository,
+                          TicketCodec ticketCodec,
+                          JdbcTemplate jdbcTemplate,
+                          DataVersion dataVersion,
+                          MeterRegistry meterRegistry) {
+        this.registrationRepository = registrationRepository;
+        this.ticketCodec = ticketCodec;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataVersion = dataVersion;
+        this.lastRefreshNanos = System.nanoTime() - MISS_REFRESH_INTERVAL_NANOS;
+
+        this.checkedInTimer = scanTimer(meterRegistry, "checked_in");
+        this.duplicateTimer = scanTimer(meterRegistry, "duplicate");
+        this.rejectedTimer = scanTimer(meterRegistry, "rejected");
+        this.duplicateWrites = Counter.builder("checkin.duplicate.writes")
+                .register(meterRegistry);
+        Gauge.builder("checkin.roster.size", this, service -> service.roster.size())
+                .register(meterRegistry);
+        Gauge.builder("checkin.checked_in", checkedIn, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("checkin.pending.writes", pendingCount, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    private static Timer scanTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("checkin.scan")
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public CheckInResult scan(String payload) {
+        long start = System.nanoTime();
+        CheckInResult result = doScan(payload);
+        Timer timer = result.getStatus() == CheckInResult.Status.CHECKED_IN ? checkedInTimer
+                : result.getStatus() == CheckInResult.Status.ALREADY_CHECKED_IN ? duplicateTimer
+                : rejectedTimer;
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private CheckInResult doScan(String payload) {
+        TicketCodec.Ticket ticket;
+        try {
+            ticket = ticketCodec.decode(payload != null ? payload.trim() : null);
+        } catch (IllegalArgumentException e) {
+            return CheckInResult.rejected(CheckInResult.Status.INVALID, null, e.getMessage());
+        }
+
+        long registrationId = ticket.getRegistrationId();
+        RosterEntry entry = lookup(registrationId);
+        if (entry == null) {
+            return CheckInResult.rejected(CheckInResult.Status.NOT_FOUND, registrationId,
+                    "Регистрация не найдена или не оплачена");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (entry.checkedInAt.compareAndSet(null, now)) {
+            checkedIn.incrementAndGet();
+            pendingWrites.add(entry);
+            pendingCount.incrementAndGet();
+            return entry.toResult(CheckInResult.Status.CHECKED_IN, "Проход отмечен");
+        }
+        return entry.toResult(CheckInResult.Status.ALREADY_CHECKED_IN, "Участник уже прошёл");
+    }
+
+    private RosterEntry lookup(long registrationId) {
+        if (registrationId <= 0) {
+            return null;
+        }
+        RosterEntry entry = roster.get(registrationId);
+        if (entry == null && System.nanoTime() - lastRefreshNanos >= MISS_REFRESH_INTERVAL_NANOS) {
+            // Билет подписан нами, но участника ещё нет в памяти - возможно, оплата только что прошла
+            refreshRoster();
+            entry = roster.get(registrationId);
+        }
+        return entry;
+    }
+
+    /**
+     * Догружает регистрации, завершённые после предыдущего обновления, с перекрытием по времени.
+     * Записи уже известных участников не пересоздаются, поэтому их отметки о проходе сохраняются.
+     */
+    @Scheduled(fixedDelayString = "${app.checkin.refresh-interval-ms:30000}")
+    public synchronized void refreshRoster() {
+        lastRefreshNanos = System.nanoTime();
+        List<RosterRow> rows;
+        try {
+            rows = watermark == null
+                    ? registrationRepository.findRoster()
+                    : registrationRepository.findRosterCompletedSince(
+                            watermark.minusMinutes(WATERMARK_OVERLAP_MINUTES));
+        } catch (DataAccessException e) {
+            log.error("Could not refresh check-in roster: {}", e.getMessage());
+            return;
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        LongObjectHashMap<RosterEntry> current = roster;
+        LongObjectHashMap<RosterEntry> next = current.copy(rows.size());
+        int added = 0;
+        for (RosterRow row : rows) {
+            RosterEntry entry = next.get(row.getId());
+            if (entry == null) {
+                entry = new RosterEntry(row);
+                next.put(row.getId(), entry);
+                if (row.getCheckedInAt() != null) {
+                    checkedIn.incrementAndGet();
+                }
+                added++;
+            }
+            if (watermark == null || row.getRegistrationCompletedAt().isAfter(watermark)) {
+                watermark = row.getRegistrationCompletedAt();
+            }
+        }
+        roster = next;
+        if (added > 0) {
+            log.info("Check-in roster refreshed: {} new, {} total", added, next.size());
+        }
+    }
+
+    /**
+     * Полная сверка со всеми завершёнными регистрациями: подбирает строки, которые закоммитились
+     * позже, чем перекрытие инкрементального обновления. Загрузка по id идемпотентна
+     */
+    @Scheduled(fixedDelayString = "${app.checkin.reload-interval-ms:600000}",
+            initialDelayString = "${app.checkin.reload-interval-ms:600000}")
+    public synchronized void reloadRoster() {
+        LocalDateTime previous = watermark;
+        watermark = null;
+        refreshRoster();
+        if (watermark == null) {
+            watermark = previous;
+        }
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.checkin.flush-interval-ms:500}")
+    public void flushCheckIns() {
+        List<RosterEntry> batch = new ArrayList<>(Math.min(pendingCount.get(), MAX_BATCH));
+        RosterEntry entry;
+        while ((entry = pendingWrites.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(entry);
+            if (batch.size() == MAX_BATCH) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<RosterEntry> batch) {
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(UPDATE_CHECKED_IN, batch, batch.size(), (ps, item) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(item.checkedInAt.get()));
+                ps.setLong(2, item.id);
+            });
+        } catch (DataAccessException e) {
+            log.error("Could not write {} check-ins, will retry: {}", batch.size(), e.getMessage());
+            pendingWrites.addAll(batch);
+            pendingCount.addAndGet(batch.size());
+            return;
+        }
+        if (countDuplicateWrites(batch, counts) < batch.size()) {
+            dataVersion.recordWrite();
+        }
+    }
+
+    /**
+     * Строки, которые пакет не изменил: проход этого участника уже записан в базу, скорее всего другим узлом.
+     * Драйвер без числа строк (SUCCESS_NO_INFO) считаем успешной записью.
+     */
+    private int countDuplicateWrites(List<RosterEntry> batch, int[][] counts) {
+        List<Long> duplicates = new ArrayList<>();
+        int index = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count == 0) {
+                    duplicates.add(batch.get(index).id);
+                }
+                index++;
+            }
+        }
+        if (!duplicates.isEmpty()) {
+            duplicateWrites.increment(duplicates.size());
+            log.warn("{} check-ins were already recorded elsewhere, registrations {}", duplicates.size(), duplicates);
+        }
+        return duplicates.size();
+    }
+
+    public int getRosterSize() {
+        return roster.size();
+    }
+
+    public int getCheckedInCount() {
+        return checkedIn.get();
+    }
+
+    public int getPendingWrites() {
+        return pendingCount.get();
+    }
+
+    private static final class RosterEntry {
+        private final long id;
+        private final String fullName;
+        private final String role;
+        private final boolean needAccommodation;
+        private final boolean under14;
+        private final AtomicReference<LocalDateTime> checkedInAt;
+
+        private RosterEntry(RosterRow row) {
+            this.id = row.getId();
+            this.fullName = row.getFirstName() + " " + row.getLastName();
+            this.role = row.getRole();
+            this.needAccommodation = Boolean.TRUE.equals(row.getNeedAccommodation());
+            this.under14 = Boolean.TRUE.equals(row.getConsentUnder14());
+            this.checkedInAt = new AtomicReference<>(row.getCheckedInAt());
+        }
+
+        private CheckInResult toResult(CheckInResult.Status status, String message) {
+            return new CheckInResult(status, id, fullName, role, needAccommodation, under14,
+                    checkedInAt.get(), message);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.teensconf.service;
+
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.event.RegistrationCreatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Номер версии данных регистраций, увеличивается после каждой записи.
+ * Пока номер не изменился, ответы админских эндпоинтов на чтение тоже не меняются,
+ * поэтому по нему строятся ETag и ключи кэша ответов.
+ * <p>
+ * Номер складывается из двух счётчиков. Общий хранится в строке таблицы data_version (миграция V12):
+ * запись в базу увеличивает его в своей же транзакции ({@link #recordWrite()}), так что запись на любом
+ * экземпляре меняет версию на всех. Экземпляр перечитывает общий счётчик не чаще раза в
+ * {@code app.data-version.poll-ms} и сразу после своей записи. Второй счётчик - в памяти: им отмечаются
+ * изменения состояния самого экземпляра, например счётчиков статистики ({@link #bump()}).
+ * Сумма двух неубывающих счётчиков меняется при изменении любого из них. Чтобы ETag прошлого запуска
+ * не совпал с новым, в него входит метка запуска.
+ * <p>
+ * Состояние в памяти экземпляра по записям других узлов не обновляется. Чтобы заметить такие записи,
+ * экземпляр считает свои увеличения общего счётчика, см. {@link #remoteWrites()}.
+ */
+@Slf4j
+@Component
+public class DataVersion {
+
+    private static final String SELECT_VERSION = "SELECT version FROM data_version WHERE id = 1";
+    private static final String INCREMENT_VERSION = "UPDATE data_version SET version = version + 1 WHERE id = 1";
+
+    private final ObjectProvider<JdbcTemplate> jdbcTemplate;
+    private final long pollNanos;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong local = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+    /** Свои увеличения общего счётчика; незакоммиченные тоже, поэтому оценка чужих записей - снизу */
+    private final AtomicLong ownWrites = new AtomicLong();
+    private final AtomicLong remoteWrites = new AtomicLong();
+
+    private volatile long baseline;
+    private volatile boolean started;
+    private volatile long sharedReadAt;
+    private volatile boolean sharedStale = true;
+    private volatile boolean written;
+    private volatile long lastBumpNanos;
+
+    /**
+     * JdbcTemplate берётся лениво: источник данных с репликой сам зависит от версии (см. ReplicaLagMonitor)
+     */
+    @Autowired
+    public DataVersion(ObjectProvider<JdbcTemplate> jdbcTemplate,
+                       @Value("${app.data-version.poll-ms:1000}") long pollMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+    }
+
+    /**
+     * Версия только в памяти экземпляра, без общей строки в базе
+     */
+    public DataVersion() {
+        this.jdbcTemplate = null;
+        this.pollNanos = 0;
+    }
+
+    public long current() {
+        return sharedVersion() + local.get();
+    }
+
+    /**
+     * Изменилось состояние этого экземпляра, которого нет в базе
+     */
+    public void bump() {
+        markWritten();
+        local.incrementAndGet();
+    }
+
+    /**
+     * Запись в базу: увеличивает общий счётчик в текущей транзакции, не больше одного раза за транзакцию.
+     * Без транзакции счётчик увеличивается сразу, отдельным запросом.
+     */
+    public void recordWrite() {
+        markWritten();
+        if (jdbcTemplate == null) {
+            local.incrementAndGet();
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ownWrites.incrementAndGet();
+            try {
+                jdbcTemplate.getObject().update(INCREMENT_VERSION);
+            } catch (RuntimeException e) {
+                ownWrites.decrementAndGet();
+                throw e;
+            }
+            sharedStale = true;
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        ownWrites.incrementAndGet();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DataVersion.this);
+                if (status != STATUS_COMMITTED) {
+                    ownWrites.decrementAndGet();
+                }
+                sharedStale = true;
+            }
+        });
+        jdbcTemplate.getObject().update(INCREMENT_VERSION);
+    }
+
+    /**
+     * Сколько раз общий счётчик увеличили другие экземпляры с момента запуска этого - оценка снизу,
+     * не убывает. Перечитывает общий счётчик, если истёк интервал опроса
+     */
+    public long remoteWrites() {
+        sharedVersion();
+        return remoteWrites.get();
+    }
+
+    /**
+     * Сколько прошло с последней записи на этом экземпляре; {@link Long#MAX_VALUE}, если записей ещё не было
+     */
+    public long nanosSinceLastBump() {
+        return written ? System.nanoTime() - lastBumpNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Слабый ETag для ответа, построенного при указанной версии, в указанном периоде
+     */
+    public String etag(long version, long period) {
+        return "W/\"" + epoch + "-" + version + "-" + period + "\"";
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        recordWrite();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onPaymentCompleted(PaymentCompletedEvent event) {
+        recordWrite();
+    }
+
+    private void markWritten() {
+        lastBumpNanos = System.nanoTime();
+        written = true;
+    }
+
+    private long sharedVersion() {
+        if (jdbcTemplate == null) {
+            return 0;
+        }
+        if (!sharedStale && System.nanoTime() - sharedReadAt < pollNanos) {
+            return shared.get();
+        }
+        try {
+            Long version = jdbcTemplate.getObject().queryForObject(SELECT_VERSION, Long.class);
+            sharedStale = false;
+            if (version != null) {
+                if (!started) {
+                    // Всё, что записано до запуска, уже видно в базе при первом чтении
+                    baseline = version - ownWrites.get();
+                    started = true;
+                }
+                remoteWrites.accumulateAndGet(version - ownWrites.get() - baseline, Math::max);
+                // Параллельное чтение могло вернуть более старое значение - версия не должна убывать
+                return shared.accumulateAndGet(version, Math::max);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not read the shared data version: {}", e.getMessage());
+        } finally {
+            sharedReadAt = System.nanoTime();
+        }
+        return shared.get();
+    }
+}
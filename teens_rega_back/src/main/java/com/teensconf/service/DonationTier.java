@@ -0,0 +1,91 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.Registration;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.regex.Pattern;
+
+/**
+ * Тариф пожертвования с заранее скомпилированным шаблоном поиска суммы в тексте чека.
+ */
+public final class DonationTier {
+
+    private final String code;
+    private final double amount;
+    private final String role;
+    private final Boolean needAccommodation;
+    private final String displayAmount;
+    private final Pattern amountPattern;
+
+    private DonationTier(String code, double amount, String role, Boolean needAccommodation) {
+        this.code = code;
+        this.amount = amount;
+        this.role = role != null && !role.isBlank() ? role.trim() : null;
+        this.needAccommodation = needAccommodation;
+
+        BigDecimal value = BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+        long rubles = value.longValue();
+        int kopecks = value.remainder(BigDecimal.ONE).movePointRight(2).intValue();
+
+        this.displayAmount = kopecks == 0
+                ? Long.toString(rubles)
+                : rubles + "," + String.format("%02d", kopecks);
+        this.amountPattern = compileAmountPattern(rubles, kopecks);
+    }
+
+    public static DonationTier compile(String code, double amount, String role, Boolean needAccommodation) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Сумма тарифа '" + code + "' должна быть положительной");
+        }
+        return new DonationTier(code, amount, role, needAccommodation);
+    }
+
+    /**
+     * Сумма в тексте чека: целая часть (с необязательным пробелом между разрядами),
+     * для целой суммы - необязательные нулевые копейки. Соседние цифры не допускаются,
+     * чтобы 500 не находилось внутри 1500 или номера операции.
+     */
+    private static Pattern compileAmountPattern(long rubles, int kopecks) {
+        String digits = Long.toString(rubles);
+        StringBuilder integerPart = new StringBuilder();
+        int firstGroup = digits.length() % 3 == 0 ? 3 : digits.length() % 3;
+        integerPart.append(digits, 0, firstGroup);
+        for (int i = firstGroup; i < digits.length(); i += 3) {
+            integerPart.append(" ?").append(digits, i, i + 3);
+        }
+
+        String fraction = kopecks == 0
+                ? "(?:[.,]0{1,2})?"
+                : "[.,]" + String.format("%02d", kopecks);
+
+        return Pattern.compile("(?<![0-9])" + integerPart + fraction + "(?![0-9]|[.,][0-9])");
+    }
+
+    public boolean appliesTo(Registration registration) {
+        if (role != null && !role.equalsIgnoreCase(registration.getRole())) {
+            return false;
+        }
+        return needAccommodation == null
+                || needAccommodation.equals(Boolean.TRUE.equals(registration.getNeedAccommodation()));
+    }
+
+    /**
+     * @param normalizedText текст чека после нормализации пробелов и регистра
+     */
+    public boolean matchesAmount(String normalizedText) {
+        return amountPattern.matcher(normalizedText).find();
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getDisplayAmount() {
+        return displayAmount;
+    }
+}
@@ -0,0 +1,57 @@
+package com.teensconf.service;
+
+import com.teensconf.config.DonationTierProperties;
+import com.teensconf.entity.Registration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Тарифы из конфигурации, скомпилированные один раз при старте приложения.
+ */
+@Slf4j
+@Component
+public class DonationTierRegistry {
+
+    private final List<DonationTier> tiers;
+    private final DonationTier defaultTier;
+
+    public DonationTierRegistry(DonationTierProperties properties) {
+        double defaultAmount = properties.getAmount() != null
+                ? properties.getAmount()
+                : DonationTierProperties.DEFAULT_AMOUNT;
+        this.defaultTier = DonationTier.compile("default", defaultAmount, null, null);
+
+        List<DonationTier> compiled = new ArrayList<>();
+        for (DonationTierProperties.Tier tier : properties.getTiers()) {
+            if (tier.getAmount() == null) {
+                throw new IllegalStateException("Не указана сумма для тарифа " + tier.getCode());
+            }
+            compiled.add(DonationTier.compile(tier.getCode(), tier.getAmount(),
+                    tier.getRole(), tier.getNeedAccommodation()));
+        }
+        this.tiers = Collections.unmodifiableList(compiled);
+
+        log.info("Donation tiers loaded: {} configured, default amount {}", tiers.size(), defaultTier.getDisplayAmount());
+    }
+
+    public DonationTier resolve(Registration registration) {
+        for (DonationTier tier : tiers) {
+            if (tier.appliesTo(registration)) {
+                return tier;
+            }
+        }
+        return defaultTier;
+    }
+
+    public DonationTier getDefaultTier() {
+        return defaultTier;
+    }
+
+    public List<DonationTier> getTiers() {
+        return tiers;
+    }
+}
@@ -0,0 +1,469 @@
+package com.teensconf.service;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import com.teensconf.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Очередь исходящих писем с ограничением скорости под лимит SMTP-провайдера.
+ * Письма разложены по полосам с приоритетом: билеты раньше подтверждений, подтверждения раньше напоминаний.
+ * На временный отказ провайдера (4xx, обрыв соединения) отправка приостанавливается
+ * с растущей паузой, письмо возвращается в начало своей полосы.
+ * Билеты не отбрасываются: их полоса не ограничена по размеру, а на временные отказы они повторяются
+ * без предела попыток. Очередь живёт только в памяти, поэтому доставку билетов отдельно учитывает
+ * {@link TicketEmailOutbox}, и билет, не ушедший до остановки узла, отправляется повторно.
+ */
+@Slf4j
+@Service
+public class EmailDispatcher {
+
+    /**
+     * Итог отправки письма; вызывается из потока рассылки
+     */
+    public interface DeliveryCallback {
+
+        void delivered();
+
+        /**
+         * Провайдер отказал окончательно (5xx или ошибка в самом письме)
+         */
+        void rejected();
+
+        /**
+         * Письмо вернулось в очередь после временного отказа
+         */
+        default void retrying() {
+        }
+    }
+
+    /**
+     * Полосы в порядке убывания приоритета
+     */
+    public enum Lane {
+        TICKET,
+        CONFIRMATION,
+        REMINDER;
+
+        private String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final JavaMailSender mailSender;
+    private final TokenBucket rateLimiter;
+    private final int queueCapacity;
+    private final int workerCount;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<Lane, Deque<Job>> queues = new EnumMap<>(Lane.class);
+    private long pausedUntilNanos;
+    private long backoffMillis;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final Map<Lane, Timer> lagTimers = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> sentCounters = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> retriedCounters = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> failedCounters = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> droppedCounters = new EnumMap<>(Lane.class);
+
+    public EmailDispatcher(JavaMailSender mailSender,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.mail.rate-per-second:3}") double ratePerSecond,
+                           @Value("${app.mail.burst:3}") int burst,
+                           @Value("${app.mail.queue-capacity:5000}") int queueCapacity,
+                           @Value("${app.mail.dispatcher-threads:2}") int workerCount,
+                           @Value("${app.mail.max-attempts:5}") int maxAttempts,
+                           @Value("${app.mail.backoff-initial-ms:2000}") long initialBackoffMillis,
+                           @Value("${app.mail.backoff-max-ms:120000}") long maxBackoffMillis) {
+        this.mailSender = mailSender;
+        this.rateLimiter = new TokenBucket(ratePerSecond, burst);
+        this.queueCapacity = queueCapacity;
+        this.workerCount = workerCount;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.pausedUntilNanos = System.nanoTime();
+
+        for (Lane lane : Lane.values()) {
+            Deque<Job> queue = new ArrayDeque<>();
+            queues.put(lane, queue);
+            Gauge.builder("mail.queue.size", this, dispatcher -> dispatcher.getQueueSize(lane))
+                    .description("Emails waiting to be sent")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            Gauge.builder("mail.queue.oldest", this, dispatcher -> dispatcher.getOldestAgeSeconds(lane))
+                    .description("Age of the oldest waiting email, seconds")
+                    .baseUnit("seconds")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry);
+            lagTimers.put(lane, Timer.builder("mail.queue.lag")
+                    .description("Time from enqueue to successful send")
+                    .tag("lane", lane.tag())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+            sentCounters.put(lane, dispatchCounter(meterRegistry, lane, "sent"));
+            retriedCounters.put(lane, dispatchCounter(meterRegistry, lane, "throttled"));
+            failedCounters.put(lane, dispatchCounter(meterRegistry, lane, "failed"));
+            droppedCounters.put(lane, dispatchCounter(meterRegistry, lane, "dropped"));
+        }
+        Gauge.builder("mail.backoff", this, EmailDispatcher::getBackoffMillis)
+                .description("Current pause after provider throttling, ms")
+                .register(meterRegistry);
+    }
+
+    private static Counter dispatchCounter(MeterRegistry meterRegistry, Lane lane, String result) {
+        return Counter.builder("mail.dispatch")
+                .tag("lane", lane.tag())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "mail-dispatcher-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        int pending = getQueueSize();
+        if (pending > 0) {
+            log.warn("Mail dispatcher stopped with {} unsent emails, {} tickets among them will be resent",
+                    pending, getQueueSize(Lane.TICKET));
+        }
+    }
+
+    public boolean submit(Lane lane, String recipient, MimeMessage message) {
+        return submit(lane, recipient, message, null);
+    }
+
+    /**
+     * Ставит письмо в очередь.
+     *
+     * @param callback итог отправки, может быть null
+     * @return false, если полоса переполнена и письмо отброшено; полоса билетов не переполняется
+     */
+    public boolean submit(Lane lane, String recipient, MimeMessage message, DeliveryCallback callback) {
+        lock.lock();
+        try {
+            Deque<Job> queue = queues.get(lane);
+            if (lane != Lane.TICKET && queue.size() >= queueCapacity) {
+                droppedCounters.get(lane).increment();
+                log.error("Email queue {} is full ({}), dropping email to {}", lane, queueCapacity, recipient);
+                return false;
+            }
+            queue.addLast(new Job(lane, recipient, message, callback, System.nanoTime()));
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        while (running) {
+            try {
+                awaitJob();
+                dispatchNext();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Mail dispatcher error", e);
+            }
+        }
+    }
+
+    private void awaitJob() throws InterruptedException {
+        lock.lock();
+        try {
+            while (running && isEmpty()) {
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Дожидается паузы после отказа и жетона, затем отправляет самое приоритетное письмо
+     *
+     * @return false, если очередь пуста
+     */
+    boolean dispatchNext() throws InterruptedException {
+        while (true) {
+            long pause = pauseRemainingNanos();
+            if (pause > 0) {
+                TimeUnit.NANOSECONDS.sleep(pause);
+                continue;
+            }
+            long wait = rateLimiter.tryAcquire();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+                continue;
+            }
+            break;
+        }
+
+        Job job = poll();
+        if (job == null) {
+            return false;
+        }
+        send(job);
+        return true;
+    }
+
+    private void send(Job job) {
+        job.attempts++;
+        try {
+            mailSender.send(job.message);
+        } catch (Exception e) {
+            boolean transientError = isTransient(e);
+            // Билет на временный отказ повторяем, пока он не уйдёт
+            if (transientError && (job.lane == Lane.TICKET || job.attempts < maxAttempts)) {
+                long pause = backOff();
+                requeue(job);
+                retriedCounters.get(job.lane).increment();
+                log.warn("Mail provider refused email to {} (attempt {}), pausing for {} ms: {}",
+                        job.recipient, job.attempts, pause, e.getMessage());
+                notify(job, DeliveryCallback::retrying);
+            } else {
+                failedCounters.get(job.lane).increment();
+                log.error("Failed to send email to {} ({}) after {} attempt(s)", job.recipient, job.lane, job.attempts, e);
+                if (!transientError) {
+                    notify(job, DeliveryCallback::rejected);
+                }
+            }
+            return;
+        }
+        lagTimers.get(job.lane).record(System.nanoTime() - job.enqueuedNanos, TimeUnit.NANOSECONDS);
+        sentCounters.get(job.lane).increment();
+        resetBackoff();
+        log.info("Email sent to {} ({})", job.recipient, job.lane);
+        notify(job, DeliveryCallback::delivered);
+    }
+
+    /**
+     * Ошибка в обработчике итога не должна выглядеть как ошибка отправки
+     */
+    private void notify(Job job, Consumer<DeliveryCallback> outcome) {
+        if (job.callback == null) {
+            return;
+        }
+        try {
+            outcome.accept(job.callback);
+        } catch (RuntimeException e) {
+            log.error("Email delivery callback failed for {}", job.recipient, e);
+        }
+    }
+
+    private Job poll() {
+        lock.lock();
+        try {
+            for (Lane lane : Lane.values()) {
+                Job job = queues.get(lane).pollFirst();
+                if (job != null) {
+                    return job;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requeue(Job job) {
+        lock.lock();
+        try {
+            queues.get(job.lane).addFirst(job);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long backOff() {
+        lock.lock();
+        try {
+            backoffMillis = backoffMillis == 0 ? initialBackoffMillis : Math.min(maxBackoffMillis, backoffMillis * 2);
+            pausedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+            rateLimiter.drain();
+            return backoffMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void resetBackoff() {
+        lock.lock();
+        try {
+            backoffMillis = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long pauseRemainingNanos() {
+        lock.lock();
+        try {
+            return pausedUntilNanos - System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Временный отказ: SMTP-код 4xx или сетевая ошибка. Коды 5xx и ошибки в самом письме не повторяем.
+     */
+    static boolean isTransient(Throwable error) {
+        Deque<Throwable> pending = new ArrayDeque<>();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.push(error);
+        while (!pending.isEmpty()) {
+            Throwable current = pending.pop();
+            if (!seen.add(current)) {
+                continue;
+            }
+            Integer code = smtpCode(current);
+            if (code != null) {
+                return code >= 400 && code < 500;
+            }
+            if (current instanceof IOException) {
+                return true;
+            }
+            if (current instanceof MailSendException) {
+                for (Exception nested : ((MailSendException) current).getMessageExceptions()) {
+                    pending.push(nested);
+                }
+            }
+            if (current.getCause() != null) {
+                pending.push(current.getCause());
+            }
+        }
+        return false;
+    }
+
+    private static Integer smtpCode(Throwable error) {
+        if (error instanceof SMTPSendFailedException) {
+            return ((SMTPSendFailedException) error).getReturnCode();
+        }
+        if (error instanceof SMTPAddressFailedException) {
+            return ((SMTPAddressFailedException) error).getReturnCode();
+        }
+        if (error instanceof SMTPSenderFailedException) {
+            return ((SMTPSenderFailedException) error).getReturnCode();
+        }
+        return null;
+    }
+
+    private boolean isEmpty() {
+        for (Deque<Job> queue : queues.values()) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            int size = 0;
+            for (Deque<Job> queue : queues.values()) {
+                size += queue.size();
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueSize(Lane lane) {
+        lock.lock();
+        try {
+            return queues.get(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getOldestAgeSeconds(Lane lane) {
+        lock.lock();
+        try {
+            Job oldest = queues.get(lane).peekFirst();
+            return oldest == null ? 0 : (System.nanoTime() - oldest.enqueuedNanos) / 1e9;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBackoffMillis() {
+        lock.lock();
+        try {
+            return backoffMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Job {
+        private final Lane lane;
+        private final String recipient;
+        private final MimeMessage message;
+        private final DeliveryCallback callback;
+        private final long enqueuedNanos;
+        private int attempts;
+
+        private Job(Lane lane, String recipient, MimeMessage message, DeliveryCallback callback, long enqueuedNanos) {
+            this.lane = lane;
+            this.recipient = recipient;
+            this.message = message;
+            this.callback = callback;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
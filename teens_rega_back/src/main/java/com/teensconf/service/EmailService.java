@@ -1,29 +1,50 @@
 package com.teensconf.service;
 
+import com.teensconf.dto.ReminderRecipient;
 import com.teensconf.entity.Registration;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataAccessException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
 import javax.mail.internet.MimeMessage;
 import java.util.Base64;
 
+/**
+ * Сборка писем участникам. Отправкой занимается {@link EmailDispatcher}:
+ * письмо ставится в очередь своей полосы и уходит с учётом лимита провайдера.
+ */
 @Service
 @Slf4j
 public class EmailService {
 
+    private static final String REGISTRATION_TEMPLATE = "register_confirmation";
+    private static final String PAYMENT_SUCCESS_TEMPLATE = "register_success_payment";
+    private static final String REMINDER_TEMPLATE = "register_payment_reminder";
+    /** Место имени в напоминании, отрисованном один раз на порцию получателей */
+    private static final String FULL_NAME_PLACEHOLDER = "{{fullName}}";
+
     @Autowired
     private JavaMailSender mailSender;
 
     @Autowired
     private QrCodeService qrCodeService;
 
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Autowired
+    private TicketEmailOutbox ticketEmailOutbox;
+
     @Value("${app.email.from}")
     private String fromEmail;
 
@@ -45,16 +66,31 @@ public class EmailService {
             String htmlContent = buildRegistrationEmail(registration);
             helper.setText(htmlContent, true);
 
-            mailSender.send(message);
-            log.info("Письмо подтверждения отправлено на: {}", registration.getEmail());
+            if (emailDispatcher.submit(EmailDispatcher.Lane.CONFIRMATION, registration.getEmail(), message)) {
+                log.info("Письмо подтверждения поставлено в очередь: {}", registration.getEmail());
+            }
 
         } catch (Exception e) {
-            log.error("Ошибка отправки письма на: {}", registration.getEmail(), e);
+            log.error("Ошибка подготовки письма на: {}", registration.getEmail(), e);
         }
     }
 
 
+    /**
+     * Письмо с билетом. Отправляет только узел, забравший его в {@link TicketEmailOutbox};
+     * если письмо не уйдёт, его повторит {@link PaymentNotificationListener#resendUndeliveredTickets}.
+     */
     public void sendPaymentSuccessNotification(Registration registration) {
+        try {
+            if (!ticketEmailOutbox.claim(registration.getId())) {
+                log.info("Ticket email for registration {} is already sent or queued", registration.getId());
+                return;
+            }
+        } catch (DataAccessException e) {
+            log.error("Could not claim ticket email for registration {}, it will be resent: {}",
+                    registration.getId(), e.getMessage());
+            return;
+        }
         try {
             MimeMessage mimeMessage = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
@@ -65,10 +101,6 @@ public class EmailService {
 
             byte[] qrCodeBytes = qrCodeService.generateRegistrationQrCodeBytes(registration);
 
-            Context context = new Context();
-            context.setVariable("registration", registration);
-            context.setVariable("fullName", registration.getFullName());
-
             String htmlContent = buildPaymentSuccessEmail(registration);
             helper.setText(htmlContent, true);
 
@@ -77,27 +109,101 @@ public class EmailService {
                 helper.addInline("qrCode", qrCodeResource, "image/png");
             }
 
-            mailSender.send(mimeMessage);
-            log.info("Payment success email sent to: {}", registration.getEmail());
+            if (emailDispatcher.submit(EmailDispatcher.Lane.TICKET, registration.getEmail(), mimeMessage,
+                    ticketDelivery(registration.getId()))) {
+                log.info("Payment success email queued for: {}", registration.getEmail());
+            }
 
         } catch (Exception e) {
-            log.error("Failed to send payment success email to: {}", registration.getEmail(), e);
+            log.error("Failed to prepare payment success email to: {}", registration.getEmail(), e);
         }
     }
 
-    private String buildRegistrationEmail(Registration registration) {
+    private EmailDispatcher.DeliveryCallback ticketDelivery(long registrationId) {
+        return new EmailDispatcher.DeliveryCallback() {
+            @Override
+            public void delivered() {
+                ticketEmailOutbox.markSent(registrationId);
+            }
+
+            @Override
+            public void rejected() {
+                ticketEmailOutbox.markFailed(registrationId);
+            }
+
+            @Override
+            public void retrying() {
+                ticketEmailOutbox.markQueued(registrationId);
+            }
+        };
+    }
+
+    /**
+     * Отрисовывает напоминание об оплате без данных получателя, имя подставляется в {@link #sendPaymentReminder}
+     */
+    public String renderPaymentReminder() {
         Context context = new Context();
-        context.setVariable("registration", registration);
-        context.setVariable("fullName", registration.getFirstName() + " " + registration.getLastName());
+        context.setVariable("fullName", FULL_NAME_PLACEHOLDER);
+        return templateEngine.process(REMINDER_TEMPLATE, context);
+    }
+
+    public boolean sendPaymentReminder(ReminderRecipient recipient, String renderedTemplate) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
 
-        return templateEngine.process("register_confirmation", context);
+            helper.setFrom(fromEmail);
+            helper.setTo(recipient.getEmail());
+            helper.setSubject("Напоминание о регистрации на конференцию ТИНС");
+
+            String fullName = recipient.getFirstName() + " " + recipient.getLastName();
+            helper.setText(renderedTemplate.replace(FULL_NAME_PLACEHOLDER, HtmlUtils.htmlEscape(fullName)), true);
+
+            return emailDispatcher.submit(EmailDispatcher.Lane.REMINDER, recipient.getEmail(), message);
+        } catch (Exception e) {
+            log.error("Failed to prepare payment reminder to: {}", recipient.getEmail(), e);
+            return false;
+        }
+    }
+
+    private String buildRegistrationEmail(Registration registration) {
+        return render(REGISTRATION_TEMPLATE, registration);
     }
 
     private String buildPaymentSuccessEmail(Registration registration) {
+        return render(PAYMENT_SUCCESS_TEMPLATE, registration);
+    }
+
+    private String render(String template, Registration registration) {
         Context context = new Context();
         context.setVariable("registration", registration);
         context.setVariable("fullName", registration.getFirstName() + " " + registration.getLastName());
 
-        return templateEngine.process("register_success_payment", context);
+        return templateEngine.process(template, context);
+    }
+
+    /**
+     * Разбирает шаблоны и компилирует выражения при старте,
+     * чтобы первое письмо не платило за это в потоке отправки
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpTemplates() {
+        Registration sample = new Registration();
+        sample.setFirstName("Иван");
+        sample.setLastName("Иванов");
+        sample.setPhone("+70000000000");
+        sample.setCity("Москва");
+        sample.setRole("participant");
+        sample.setNeedAccommodation(true);
+
+        long start = System.nanoTime();
+        for (String template : new String[]{REGISTRATION_TEMPLATE, PAYMENT_SUCCESS_TEMPLATE, REMINDER_TEMPLATE}) {
+            try {
+                render(template, sample);
+            } catch (Exception e) {
+                log.warn("Could not warm up email template {}: {}", template, e.getMessage());
+            }
+        }
+        log.info("Email templates warmed up in {} ms", (System.nanoTime() - start) / 1_000_000);
     }
-}
\ No newline at end of file
+}
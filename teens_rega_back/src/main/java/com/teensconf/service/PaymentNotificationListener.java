@@ -0,0 +1,58 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.repository.RegistrationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Письмо об успешной оплате отправляется только после коммита
+ * и в отдельном потоке, не удерживая соединение с БД и поток запроса.
+ * Билеты, которые так и не ушли (узел остановился с непустой очередью), периодически отправляются повторно.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentNotificationListener {
+
+    private static final int RESEND_BATCH = 100;
+
+    private final EmailService emailService;
+    private final TicketEmailOutbox ticketEmailOutbox;
+    private final RegistrationRepository registrationRepository;
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentCompleted(PaymentCompletedEvent event) {
+        emailService.sendPaymentSuccessNotification(event.getRegistration());
+        log.info("Registration completed: {}", event.getRegistration().getEmail());
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.ticket-resend-interval-ms:300000}",
+            initialDelayString = "${app.mail.ticket-resend-interval-ms:300000}")
+    public void resendUndeliveredTickets() {
+        List<Long> ids;
+        try {
+            ids = ticketEmailOutbox.findUndelivered(RESEND_BATCH);
+        } catch (DataAccessException e) {
+            log.error("Could not look up undelivered tickets: {}", e.getMessage());
+            return;
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        log.warn("Resending {} undelivered ticket email(s)", ids.size());
+        for (Registration registration : registrationRepository.findAllById(ids)) {
+            emailService.sendPaymentSuccessNotification(registration);
+        }
+    }
+}
@@ -3,40 +3,115 @@ package com.teensconf.service;
 import com.teensconf.dto.PaymentCompletionRequest;
 import com.teensconf.entity.PaymentReceipt;
 import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
 import com.teensconf.repository.PaymentReceiptRepository;
 import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.Hashing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentService {
 
+    private static final long IN_FLIGHT_TIMEOUT_SECONDS = 60;
+
     private final RegistrationRepository registrationRepository;
     private final PaymentReceiptRepository paymentReceiptRepository;
-    private final EmailService emailService;
     private final PdfValidationService pdfValidationService;
+    private final ReceiptValidationCache validationCache;
+    private final DonationTierRegistry donationTierRegistry;
+    private final ReceiptStorage receiptStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Обрабатываемые сейчас завершения оплаты по id регистрации
+     */
+    private final ConcurrentMap<Long, CompletableFuture<PaymentReceipt>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Повторная отправка формы по той же регистрации, пока первая ещё обрабатывается,
+     * не проверяет чек заново, а ждёт и возвращает результат первой.
+     * Если первая попытка завершилась ошибкой, ожидавший запрос обрабатывается со своим файлом.
+     */
+    public PaymentReceipt processPaymentCompletion(Long registrationId, PaymentCompletionRequest request) {
+        while (true) {
+            CompletableFuture<PaymentReceipt> flight = new CompletableFuture<>();
+            CompletableFuture<PaymentReceipt> running = inFlight.putIfAbsent(registrationId, flight);
+            if (running == null) {
+                return lead(registrationId, request, flight);
+            }
 
-    @Value("${app.upload.dir:./uploads/receipts}")
-    String uploadDir;
+            log.info("Payment completion for registration {} is already in progress, waiting", registrationId);
+            PaymentReceipt receipt = awaitInFlight(running);
+            if (receipt != null) {
+                return receipt;
+            }
+        }
+    }
 
-    @Transactional
-    public PaymentReceipt processPaymentCompletion(Long registrationId, PaymentCompletionRequest request) {
+    private PaymentReceipt lead(Long registrationId, PaymentCompletionRequest request,
+                                CompletableFuture<PaymentReceipt> flight) {
+        try {
+            PaymentReceipt receipt = completePayment(registrationId, request);
+            flight.complete(receipt);
+            return receipt;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(registrationId, flight);
+        }
+    }
+
+    /**
+     * @return результат первой попытки или {@code null}, если она завершилась ошибкой
+     */
+    private PaymentReceipt awaitInFlight(CompletableFuture<PaymentReceipt> running) {
+        try {
+            return running.get(IN_FLIGHT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Оплата по этой регистрации уже обрабатывается, повторите попытку позже");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Обработка оплаты прервана");
+        }
+    }
+
+    /**
+     * Завершение регистрации в три этапа:
+     * проверки и сохранение файла выполняются вне транзакции,
+     * транзакция охватывает только запись чека и отметку о завершении,
+     * письмо отправляется после коммита (см. {@link PaymentNotificationListener}).
+     * Если транзакция не прошла, сохранённый файл остаётся в хранилище: его может уже использовать
+     * параллельная загрузка того же PDF, а без ссылок его уберёт {@link ReceiptOrphanSweeper}.
+     */
+    private PaymentReceipt completePayment(Long registrationId, PaymentCompletionRequest request) {
         Registration registration = registrationRepository.findById(registrationId)
                 .orElseThrow(() -> new IllegalArgumentException("Регистрация не найдена"));
 
@@ -44,14 +119,15 @@ public class PaymentService {
             throw new IllegalArgumentException("Регистрация уже завершена");
         }
 
+        DonationTier tier = donationTierRegistry.resolve(registration);
+
         PaymentReceipt receipt = new PaymentReceipt();
-        receipt.setRegistration(registration);
-        receipt.setDonationAmount(500.0);
+        receipt.setDonationAmount(tier.getAmount());
 
         boolean isValid = false;
 
         if (request.getReceiptFile() != null && !request.getReceiptFile().isEmpty()) {
-            isValid = processReceiptFile(request.getReceiptFile(), receipt);
+            isValid = processReceiptFile(request.getReceiptFile(), receipt, tier);
         } else {
             throw new IllegalArgumentException("Не предоставлены данные об оплате");
         }
@@ -59,123 +135,103 @@ public class PaymentService {
         receipt.setVerified(isValid);
         receipt.setPaid(isValid);
 
+        try {
+            boolean completed = isValid;
+            return transactionTemplate.execute(status -> saveReceipt(registrationId, receipt, completed));
+        } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+            // Регистрацию параллельно завершил другой экземпляр приложения
+            log.warn("Concurrent payment completion for registration {}: {}", registrationId, e.getMessage());
+            return paymentReceiptRepository.findByRegistrationId(registrationId).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Оплата по этой регистрации уже обрабатывается, повторите попытку позже"));
+        }
+    }
+
+    private PaymentReceipt saveReceipt(Long registrationId, PaymentReceipt receipt, boolean completed) {
+        Registration registration = registrationRepository.findById(registrationId)
+                .orElseThrow(() -> new IllegalArgumentException("Регистрация не найдена"));
+        if (registration.getRegistrationCompletedAt() != null) {
+            throw new IllegalArgumentException("Регистрация уже завершена");
+        }
+
+        receipt.setRegistration(registration);
         PaymentReceipt savedReceipt = paymentReceiptRepository.save(receipt);
 
-        if (isValid) {
-            completeRegistration(registration);
+        if (completed) {
+            registration.setRegistrationCompletedAt(LocalDateTime.now());
+            registration.setPaymentReceipt(savedReceipt);
+            registrationRepository.save(registration);
+            eventPublisher.publishEvent(new PaymentCompletedEvent(registration, savedReceipt));
         }
 
         return savedReceipt;
     }
 
-    private boolean processReceiptFile(MultipartFile file, PaymentReceipt receipt) {
+    private boolean processReceiptFile(MultipartFile file, PaymentReceipt receipt, DonationTier tier) {
+        String originalFileName = file.getOriginalFilename();
+        if (originalFileName == null || !originalFileName.toLowerCase().endsWith(".pdf")) {
+            throw new IllegalArgumentException("Файл должен быть в формате PDF");
+        }
+
+        Path tempFile = null;
         try {
-            String originalFileName = file.getOriginalFilename();
-            if (originalFileName == null || !originalFileName.toLowerCase().endsWith(".pdf")) {
-                throw new IllegalArgumentException("Файл должен быть в формате PDF");
-            }
+            // Файл копируется на диск через буфер фиксированного размера, SHA-256 считается по ходу
+            tempFile = receiptStorage.createTempFile();
 
-            byte[] fileBytes = file.getBytes();
-            PdfValidationService.ValidationResult validationResult = pdfValidationService.validatePdf(fileBytes);
+            MessageDigest digest = Hashing.sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String contentHash = Hashing.toHex(digest.digest());
+
+            String cacheKey = contentHash + ":" + tier.getCode() + ":" + tier.getDisplayAmount();
+            PdfValidationService.ValidationResult validationResult = validationCache.get(cacheKey);
+            if (validationResult == null) {
+                validationResult = pdfValidationService.validatePdf(tempFile, tier);
+                if (validationResult.isDefinitive()) {
+                    validationCache.put(cacheKey, validationResult);
+                }
+            } else {
+                log.info("Receipt validation result served from cache: {}", contentHash);
+            }
 
             if (!validationResult.isValid()) {
                 throw new IllegalArgumentException(validationResult.getErrorMessage());
             }
 
-            Registration registration = receipt.getRegistration();
-            String fileName = generateReceiptFileName(registration, originalFileName);
-            Path filePath = Paths.get(uploadDir, fileName);
-
-            Files.createDirectories(Paths.get(uploadDir));
-            Files.write(filePath, fileBytes);
+            long fileSize = Files.size(tempFile);
+            Path filePath = receiptStorage.store(tempFile, contentHash);
+            tempFile = null;
 
+            receipt.setPaymentReference(validationResult.getReference());
             receipt.setFileName(originalFileName);
             receipt.setFilePath(filePath.toString());
-            receipt.setFileSize(file.getSize());
+            receipt.setFileSize(fileSize);
+            receipt.setContentHash(contentHash);
 
             return true;
 
         } catch (IOException e) {
             log.error("Error saving receipt file", e);
             throw new IllegalArgumentException("Ошибка при сохранении файла чека: " + e.getMessage());
+        } finally {
+            deleteQuietly(tempFile);
         }
     }
 
-    private String generateReceiptFileName(Registration registration, String originalFileName) {
-        String firstNameTranslit = transliterate(registration.getFirstName());
-        String lastNameTranslit = transliterate(registration.getLastName());
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-
-        String fileExtension = "";
-        int lastDotIndex = originalFileName.lastIndexOf(".");
-        if (lastDotIndex > 0) {
-            fileExtension = originalFileName.substring(lastDotIndex);
-        } else {
-            fileExtension = ".pdf";
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
         }
-
-        return String.format("%d_%s_%s_%s%s",
-                registration.getId(),
-                firstNameTranslit,
-                lastNameTranslit,
-                timestamp,
-                fileExtension);
-    }
-
-    private String transliterate(String text) {
-        if (text == null) return "";
-
-        Map<Character, String> translitMap = new HashMap<>();
-        translitMap.put('а', "a"); translitMap.put('б', "b"); translitMap.put('в', "v");
-        translitMap.put('г', "g"); translitMap.put('д', "d"); translitMap.put('е', "e");
-        translitMap.put('ё', "e"); translitMap.put('ж', "zh"); translitMap.put('з', "z");
-        translitMap.put('и', "i"); translitMap.put('й', "y"); translitMap.put('к', "k");
-        translitMap.put('л', "l"); translitMap.put('м', "m"); translitMap.put('н', "n");
-        translitMap.put('о', "o"); translitMap.put('п', "p"); translitMap.put('р', "r");
-        translitMap.put('с', "s"); translitMap.put('т', "t"); translitMap.put('у', "u");
-        translitMap.put('ф', "f"); translitMap.put('х', "h"); translitMap.put('ц', "ts");
-        translitMap.put('ч', "ch"); translitMap.put('ш', "sh"); translitMap.put('щ', "sch");
-        translitMap.put('ы', "y"); translitMap.put('э', "e"); translitMap.put('ю', "yu");
-        translitMap.put('я', "ya");
-        translitMap.put('А', "A"); translitMap.put('Б', "B"); translitMap.put('В', "V");
-        translitMap.put('Г', "G"); translitMap.put('Д', "D"); translitMap.put('Е', "E");
-        translitMap.put('Ё', "E"); translitMap.put('Ж', "Zh"); translitMap.put('З', "Z");
-        translitMap.put('И', "I"); translitMap.put('Й', "Y"); translitMap.put('К', "K");
-        translitMap.put('Л', "L"); translitMap.put('М', "M"); translitMap.put('Н', "N");
-        translitMap.put('О', "O"); translitMap.put('П', "P"); translitMap.put('Р', "R");
-        translitMap.put('С', "S"); translitMap.put('Т', "T"); translitMap.put('У', "U");
-        translitMap.put('Ф', "F"); translitMap.put('Х', "H"); translitMap.put('Ц', "Ts");
-        translitMap.put('Ч', "Ch"); translitMap.put('Ш', "Sh"); translitMap.put('Щ', "Sch");
-        translitMap.put('Ы', "Y"); translitMap.put('Э', "E"); translitMap.put('Ю', "Yu");
-        translitMap.put('Я', "Ya");
-
-        StringBuilder result = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            if (translitMap.containsKey(c)) {
-                result.append(translitMap.get(c));
-            } else if (Character.isLetterOrDigit(c)) {
-                result.append(c);
-            } else {
-                result.append('_');
-            }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete receipt file {}: {}", path, e.getMessage());
         }
-
-        return result.toString().replaceAll("_+", "_").replaceAll("^_|_$", "");
-    }
-
-    private void completeRegistration(Registration registration) {
-        registration.setRegistrationCompletedAt(LocalDateTime.now());
-        registrationRepository.save(registration);
-
-        emailService.sendPaymentSuccessNotification(registration);
-        log.info("Registration completed: {}", registration.getEmail());
     }
 
     public void init() {
-        try {
-            Files.createDirectories(Paths.get(uploadDir));
-        } catch (IOException e) {
-            log.error("Could not create upload directory", e);
-        }
+        receiptStorage.init();
     }
-}
\ No newline at end of file
+}
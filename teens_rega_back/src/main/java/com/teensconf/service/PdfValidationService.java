@@ -1,12 +1,15 @@
 package com.teensconf.service;
 
+import com.teensconf.config.DonationTierProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -29,52 +32,93 @@ public class PdfValidationService {
 
     private static final String REFERENCE_SUFFIX = "0011630701";
 
+    private static final DonationTier BASE_TIER =
+            DonationTier.compile("default", DonationTierProperties.DEFAULT_AMOUNT, null, null);
+
+    private static final Pattern[] FOUND_AMOUNT_PATTERNS = {
+            Pattern.compile("\\b(\\d{1,6}[.,]\\d{2})\\s*(?:РУБ|RUB|Р|RUR|₽)?"),
+            Pattern.compile("(\\d{1,6})\\s*(?:РУБ|RUB|Р|RUR|₽)"),
+            Pattern.compile("(\\d{1,6}[.,]\\d{0,2})")
+    };
+
+    private static final Pattern[] REFERENCE_PATTERNS = {
+            // Простой поиск чисел длиной 10-32 символа
+            Pattern.compile("\\b\\d{10,32}\\b"),
+            // Поиск с ключевыми словами - исправленные группы
+            Pattern.compile("(?:РЕФЕРЕНС|ИДЕНТИФИКАТОР|НОМЕР[\\s]*ОПЕРАЦИИ|СБП)[\\s:]*([A-Z0-9]{10,32})", Pattern.CASE_INSENSITIVE),
+            // Поиск любых длинных последовательностей букв и цифр
+            Pattern.compile("\\b[A-Z0-9]{10,32}\\b")
+    };
+
+    /**
+     * Проверка по базовому тарифу
+     */
     public ValidationResult validatePdf(byte[] pdfBytes) {
+        return validatePdf(pdfBytes, BASE_TIER);
+    }
+
+    public ValidationResult validatePdf(byte[] pdfBytes, DonationTier tier) {
         try (InputStream inputStream = new ByteArrayInputStream(pdfBytes);
              PDDocument document = PDDocument.load(inputStream)) {
+            return validateDocument(document, tier);
+        } catch (Exception e) {
+            log.error("Ошибка при чтении PDF файла: {}", e.getMessage(), e);
+            return ValidationResult.readFailure("Ошибка при чтении PDF файла: " + e.getMessage());
+        }
+    }
 
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(document);
-
-            if (text == null || text.trim().isEmpty()) {
-                return ValidationResult.error("PDF файл пустой или не содержит текста");
-            }
+    /**
+     * Проверка чека, сохранённого на диске. PDFBox читает файл через произвольный доступ,
+     * поэтому содержимое целиком в память не загружается.
+     */
+    public ValidationResult validatePdf(Path pdfFile, DonationTier tier) {
+        try (PDDocument document = PDDocument.load(pdfFile.toFile())) {
+            return validateDocument(document, tier);
+        } catch (Exception e) {
+            log.error("Ошибка при чтении PDF файла: {}", e.getMessage(), e);
+            return ValidationResult.readFailure("Ошибка при чтении PDF файла: " + e.getMessage());
+        }
+    }
 
-            log.debug("Содержимое PDF:\n{}", text);
-            String normalizedText = normalizeText(text);
-            log.debug("Нормализованный текст:\n{}", normalizedText);
+    private ValidationResult validateDocument(PDDocument document, DonationTier tier) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        String text = stripper.getText(document);
 
-            AmountValidationResult amountResult = checkAmount(normalizedText);
-            if (!amountResult.isValid()) {
-                return ValidationResult.error(amountResult.getErrorMessage());
-            }
+        if (text == null || text.trim().isEmpty()) {
+            return ValidationResult.error("PDF файл пустой или не содержит текста");
+        }
 
-            boolean hasAnyKeyPhrase = checkAnyKeyPhrase(normalizedText);
-            if (!hasAnyKeyPhrase) {
-                log.info("PDF чек не содержит ключевых фраз, но сумма корректна - принимаем");
-            } else {
-                log.info("PDF чек содержит ключевые фразы и корректную сумму");
-            }
+        log.debug("Содержимое PDF:\n{}", text);
+        String normalizedText = normalizeText(text);
+        log.debug("Нормализованный текст:\n{}", normalizedText);
 
-            String reference = findReference(normalizedText);
-            if (reference != null) {
-                if (!reference.endsWith(REFERENCE_SUFFIX)) {
-                    log.warn("Найден референс с неправильным окончанием: {}", reference);
-                } else {
-                    log.info("Найден корректный референс: {}", reference);
-                }
-            }
+        AmountValidationResult amountResult = checkAmount(normalizedText, tier);
+        if (!amountResult.isValid()) {
+            return ValidationResult.error(amountResult.getErrorMessage());
+        }
 
-            return ValidationResult.success();
+        boolean hasAnyKeyPhrase = checkAnyKeyPhrase(normalizedText);
+        if (!hasAnyKeyPhrase) {
+            log.info("PDF чек не содержит ключевых фраз, но сумма корректна - принимаем");
+        } else {
+            log.info("PDF чек содержит ключевые фразы и корректную сумму");
+        }
 
-        } catch (Exception e) {
-            log.error("Ошибка при чтении PDF файла: {}", e.getMessage(), e);
-            return ValidationResult.error("Ошибка при чтении PDF файла: " + e.getMessage());
+        String reference = findReference(normalizedText);
+        if (reference != null) {
+            if (!reference.endsWith(REFERENCE_SUFFIX)) {
+                log.warn("Найден референс с неправильным окончанием: {}", reference);
+            } else {
+                log.info("Найден корректный референс: {}", reference);
+            }
         }
+
+        return ValidationResult.success(reference);
     }
 
     private String normalizeText(String text) {
         return text.replace("\u00A0", " ")
+                .replace("\u202F", " ")
                 .replace("\n", " ")
                 .replace("\r", " ")
                 .replaceAll("\\s+", " ")
@@ -92,53 +136,29 @@ public class PdfValidationService {
         return false;
     }
 
-    private AmountValidationResult checkAmount(String text) {
-        String[] amountPatterns = {
-                "500.00", "500,00", "500 РУБ", "500Р", "500 RUR", "500.00",
-                "500.00 РУБ", "500,00 РУБ", "500.00Р", "500,00Р", "500",
-                "500.0", "500,0", "500.00RUB", "500,00RUB", "500RUB",
-                "500,00 Р", "500.00 Р", "500 Р", "500РУБ", "500.00РУБ", "500 RUB", "500 ₽"
-        };
-
-        for (String pattern : amountPatterns) {
-            if (text.contains(pattern)) {
-                log.debug("Найдена корректная сумма по паттерну: {}", pattern);
-                return AmountValidationResult.valid();
-            }
-        }
-
-        // Более гибкая проверка через регулярные выражения
-        if (text.matches(".*[^0-9]500[^0-9].*") ||
-                text.matches(".*500[.,]00.*") ||
-                text.matches(".*500[.,]0[^0-9].*") ||
-                text.matches(".*\\b500\\b.*")) {
-            log.debug("Найдена корректная сумма по регулярному выражению");
+    private AmountValidationResult checkAmount(String text, DonationTier tier) {
+        if (tier.matchesAmount(text)) {
+            log.debug("Найдена корректная сумма {} для тарифа {}", tier.getDisplayAmount(), tier.getCode());
             return AmountValidationResult.valid();
         }
 
         List<String> foundAmounts = findAmountsInText(text);
         String foundAmountsStr = foundAmounts.isEmpty() ? "не найдено" : String.join(", ", foundAmounts);
 
-        return AmountValidationResult.invalid("Сумма пожертвования должна быть 500 рублей. Найдены суммы: " + foundAmountsStr);
+        return AmountValidationResult.invalid("Сумма пожертвования должна быть " + tier.getDisplayAmount()
+                + " рублей. Найдены суммы: " + foundAmountsStr);
     }
 
     private List<String> findAmountsInText(String text) {
         List<String> amounts = new ArrayList<>();
 
-        // Исправленные регулярные выражения для поиска сумм
-        Pattern[] amountPatterns = {
-                Pattern.compile("\\b(\\d{1,4}[.,]\\d{2})\\s*(?:РУБ|RUB|Р|RUR|₽)?"),
-                Pattern.compile("(\\d{1,4})\\s*(?:РУБ|RUB|Р|RUR|₽)"),
-                Pattern.compile("(\\d{1,4}[.,]\\d{0,2})")
-        };
-
-        for (Pattern pattern : amountPatterns) {
+        for (Pattern pattern : FOUND_AMOUNT_PATTERNS) {
             Matcher matcher = pattern.matcher(text);
             while (matcher.find()) {
                 try {
                     String amountStr = matcher.group(1).replace(",", ".");
                     double value = Double.parseDouble(amountStr);
-                    if (value >= 100 && value <= 1000) {
+                    if (value >= 100 && value <= 100_000) {
                         amounts.add(amountStr + " руб");
                     }
                 } catch (NumberFormatException | IllegalStateException e) {
@@ -150,16 +170,7 @@ public class PdfValidationService {
     }
 
     private String findReference(String text) {
-        Pattern[] referencePatterns = {
-                // Простой поиск чисел длиной 10-32 символа
-                Pattern.compile("\\b\\d{10,32}\\b"),
-                // Поиск с ключевыми словами - исправленные группы
-                Pattern.compile("(?:РЕФЕРЕНС|ИДЕНТИФИКАТОР|НОМЕР[\\s]*ОПЕРАЦИИ|СБП)[\\s:]*([A-Z0-9]{10,32})", Pattern.CASE_INSENSITIVE),
-                // Поиск любых длинных последовательностей букв и цифр
-                Pattern.compile("\\b[A-Z0-9]{10,32}\\b")
-        };
-
-        for (Pattern pattern : referencePatterns) {
+        for (Pattern pattern : REFERENCE_PATTERNS) {
             Matcher matcher = pattern.matcher(text);
             while (matcher.find()) {
                 String reference = null;
@@ -188,28 +199,57 @@ public class PdfValidationService {
 
     public static class ValidationResult {
         private final boolean valid;
+        private final boolean definitive;
         private final String errorMessage;
+        private final String reference;
 
-        private ValidationResult(boolean valid, String errorMessage) {
+        private ValidationResult(boolean valid, boolean definitive, String errorMessage, String reference) {
             this.valid = valid;
+            this.definitive = definitive;
             this.errorMessage = errorMessage;
+            this.reference = reference;
         }
 
         public static ValidationResult success() {
-            return new ValidationResult(true, null);
+            return new ValidationResult(true, true, null, null);
+        }
+
+        public static ValidationResult success(String reference) {
+            return new ValidationResult(true, true, null, reference);
         }
 
         public static ValidationResult error(String errorMessage) {
-            return new ValidationResult(false, errorMessage);
+            return new ValidationResult(false, true, errorMessage, null);
+        }
+
+        /**
+         * Чек не удалось прочитать: ошибка может быть временной, поэтому результат не окончательный
+         */
+        public static ValidationResult readFailure(String errorMessage) {
+            return new ValidationResult(false, false, errorMessage, null);
         }
 
         public boolean isValid() {
             return valid;
         }
 
+        /**
+         * Результат зависит только от содержимого чека и тарифа, его можно кэшировать по хэшу
+         */
+        public boolean isDefinitive() {
+            return definitive;
+        }
+
         public String getErrorMessage() {
             return errorMessage;
         }
+
+        /**
+         * Референс операции, извлечённый из чека (может быть null)
+         */
+        public String getReference() {
+            return reference;
+        }
     }
 
     public static class AmountValidationResult {
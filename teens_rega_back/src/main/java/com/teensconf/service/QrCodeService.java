@@ -2,38 +2,71 @@ package com.teensconf.service;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import com.teensconf.entity.Registration;
+import com.teensconf.util.QrPngEncoder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.util.Base64;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Slf4j
 @Service
 public class QrCodeService {
 
-    public byte[] generateRegistrationQrCodeBytes(Registration registration) {
-        try {
-            String qrContent = buildQrContent(registration);
+    /** Примерный размер картинки, как раньше: 300x300 */
+    private static final int TARGET_SIZE = 300;
+    private static final int MARGIN_MODULES = 2;
 
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
+    private static final QRCodeWriter WRITER = new QRCodeWriter();
+    private static final Map<EncodeHintType, Object> HINTS = new EnumMap<>(EncodeHintType.class);
+
+    static {
+        HINTS.put(EncodeHintType.MARGIN, MARGIN_MODULES);
+        HINTS.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+    }
 
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            hints.put(EncodeHintType.MARGIN, 2);
+    /**
+     * Готовые PNG по id регистрации: повторная отправка письма не кодирует QR заново
+     */
+    private final Map<Long, CachedQrCode> cache;
 
-            BitMatrix bitMatrix = qrCodeWriter.encode(qrContent, BarcodeFormat.QR_CODE, 300, 300, hints);
+    private final TicketCodec ticketCodec;
+
+    public QrCodeService(TicketCodec ticketCodec, @Value("${app.qr.cache-size:2048}") int cacheSize) {
+        this.ticketCodec = ticketCodec;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedQrCode> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public byte[] generateRegistrationQrCodeBytes(Registration registration) {
+        try {
+            String qrContent = buildQrContent(registration);
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+            CachedQrCode cached;
+            synchronized (cache) {
+                cached = cache.get(registration.getId());
+            }
+            if (cached != null && cached.content.equals(qrContent)) {
+                return cached.png;
+            }
 
-            return outputStream.toByteArray();
+            byte[] png = render(qrContent);
+            if (registration.getId() != null) {
+                synchronized (cache) {
+                    cache.put(registration.getId(), new CachedQrCode(qrContent, png));
+                }
+            }
+            return png;
 
         } catch (Exception e) {
             log.error("Ошибка генерации QR-кода для регистрации ID: {}", registration.getId(), e);
@@ -41,20 +74,33 @@ public class QrCodeService {
         }
     }
 
-    private String buildQrContent(Registration registration) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Подтверждение регистрации ТИНС\n");
-        sb.append("ID: ").append(registration.getId()).append("\n");
-        sb.append("Имя: ").append(registration.getFirstName()).append("\n");
-        sb.append("Фамилия: ").append(registration.getLastName()).append("\n");
-        sb.append("Телефон: ").append(registration.getPhone()).append("\n");
-        sb.append("Город: ").append(registration.getCity()).append("\n");
-        sb.append("Роль: ").append(registration.getRole()).append("\n");
-        sb.append("Расселение: ").append(registration.getNeedAccommodation() ? "Да" : "Нет").append("\n");
-        if (registration.getPaymentReceipt() != null) {
-            sb.append("ID оплаты: ").append(registration.getPaymentReceipt().getId()).append("\n");
+    public void evict(Long registrationId) {
+        synchronized (cache) {
+            cache.remove(registrationId);
         }
+    }
+
+    static byte[] render(String content) throws Exception {
+        // Матрица без масштабирования: один бит на модуль, растягиваем при записи PNG
+        BitMatrix matrix = WRITER.encode(content, BarcodeFormat.QR_CODE, 0, 0, HINTS);
+        int scale = Math.max(1, TARGET_SIZE / matrix.getWidth());
+        return QrPngEncoder.encode(matrix, scale);
+    }
 
-        return sb.toString();
+    /**
+     * Подписанный билет участника, см. {@link TicketCodec}
+     */
+    String buildQrContent(Registration registration) {
+        return ticketCodec.issue(registration);
+    }
+
+    private static final class CachedQrCode {
+        private final String content;
+        private final byte[] png;
+
+        private CachedQrCode(String content, byte[] png) {
+            this.content = content;
+            this.png = png;
+        }
     }
-}
\ No newline at end of file
+}
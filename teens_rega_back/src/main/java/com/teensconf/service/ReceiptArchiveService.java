@@ -0,0 +1,248 @@
+package com.teensconf.service;
+
+import com.teensconf.config.ReplicaReads;
+import com.teensconf.dto.ReceiptArchiveEntry;
+import com.teensconf.repository.PaymentReceiptRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Потоковая выгрузка чеков одним ZIP-архивом.
+ * Архив пишется сразу в ответ: чеки выбираются из базы порциями по ключу,
+ * файлы копируются через буфер фиксированного размера, поэтому расход памяти
+ * не зависит от числа чеков.
+ * Опись manifest.csv содержит персональные данные, поэтому на диск она не пишется: после файлов
+ * чеков она выводится прямо в запись архива вторым проходом по тем же порциям. Чтобы опись совпадала
+ * с файлами, первый проход запоминает идентификаторы чеков и то, попал ли файл в архив
+ * (8 байт и бит на чек), а второй не выходит за последний из них. Имя файла в архиве строится из
+ * регистрации и хэша содержимого, которые у чека не меняются. Чек, исчезнувший из выборки между
+ * проходами, попадает в опись строкой со статусом removed_during_export, появившийся - added_during_export.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReceiptArchiveService {
+
+    private static final int CHUNK_SIZE = 200;
+    private static final String MANIFEST_NAME = "manifest.csv";
+    private static final String MANIFEST_HEADER =
+            "receipt_id;registration_id;first_name;last_name;email;amount;verified;paid_at;original_file;archive_file;file_size;sha256;status\r\n";
+    private static final String RECEIPTS_DIR = "receipts/";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final PaymentReceiptRepository paymentReceiptRepository;
+    private final ReceiptStorage receiptStorage;
+    private final ReplicaReads replicaReads;
+
+    public void writeArchive(OutputStream out, Boolean verified, LocalDateTime from, LocalDateTime to) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        // PDF уже сжаты, тратить CPU на сильное сжатие нет смысла
+        zip.setLevel(Deflater.BEST_SPEED);
+
+        ArchivedReceipts archived = writeReceipts(zip, verified, from, to);
+
+        zip.putNextEntry(new ZipEntry(MANIFEST_NAME));
+        // Закрывать writer нельзя - он закрыл бы и архив
+        Writer manifest = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+        manifest.write('\uFEFF');
+        manifest.write(MANIFEST_HEADER);
+        writeManifest(manifest, archived, verified, from, to);
+        manifest.flush();
+        zip.closeEntry();
+
+        zip.finish();
+        zip.flush();
+        log.info("Receipts archive streamed: {} files of {} receipts", archived.files(), archived.size());
+    }
+
+    private ArchivedReceipts writeReceipts(ZipOutputStream zip, Boolean verified, LocalDateTime from, LocalDateTime to) throws IOException {
+        ArchivedReceipts archived = new ArchivedReceipts();
+        long afterId = 0;
+        List<ReceiptArchiveEntry> chunk;
+        do {
+            chunk = nextChunk(afterId, verified, from, to);
+            for (ReceiptArchiveEntry entry : chunk) {
+                afterId = entry.getReceiptId();
+                archived.add(afterId, writeReceipt(zip, entry));
+            }
+            zip.flush();
+        } while (chunk.size() == CHUNK_SIZE);
+        return archived;
+    }
+
+    private void writeManifest(Writer manifest, ArchivedReceipts archived, Boolean verified, LocalDateTime from, LocalDateTime to) throws IOException {
+        long lastId = archived.lastId();
+        long afterId = 0;
+        List<ReceiptArchiveEntry> chunk;
+        do {
+            chunk = afterId < lastId ? nextChunk(afterId, verified, from, to) : List.of();
+            for (ReceiptArchiveEntry entry : chunk) {
+                afterId = entry.getReceiptId();
+                // Чеки, добавленные после первого прохода, в архив не попали
+                if (afterId > lastId) {
+                    break;
+                }
+                int index = archived.indexOf(afterId);
+                String status;
+                String archiveName = "";
+                if (index < 0) {
+                    status = "added_during_export";
+                } else {
+                    archived.markListed(index);
+                    if (archived.isWritten(index)) {
+                        status = "ok";
+                        archiveName = archiveName(entry);
+                    } else {
+                        status = "file_missing";
+                    }
+                }
+                writeRow(manifest,
+                        entry.getReceiptId(),
+                        entry.getRegistrationId(),
+                        entry.getFirstName(),
+                        entry.getLastName(),
+                        entry.getEmail(),
+                        entry.getDonationAmount(),
+                        Boolean.TRUE.equals(entry.getVerified()) ? "да" : "нет",
+                        entry.getPaymentCreatedAt() != null ? entry.getPaymentCreatedAt().format(DATE_TIME) : "",
+                        entry.getFileName(),
+                        archiveName,
+                        entry.getFileSize(),
+                        entry.getContentHash(),
+                        status);
+            }
+        } while (chunk.size() == CHUNK_SIZE);
+
+        // Остальные данные чека уже не выбрать тем же запросом - в описи остаётся только идентификатор
+        for (int index = archived.nextUnlisted(0); index >= 0; index = archived.nextUnlisted(index + 1)) {
+            writeRow(manifest, archived.idAt(index), "", "", "", "", "", "", "", "", "", "", "",
+                    "removed_during_export");
+        }
+    }
+
+    /**
+     * Кладёт файл чека в архив; возвращает имя записи или null, если файла нет
+     */
+    private String writeReceipt(ZipOutputStream zip, ReceiptArchiveEntry entry) throws IOException {
+        if (entry.getFilePath() == null) {
+            return null;
+        }
+        Path file = Paths.get(entry.getFilePath());
+        if (!Files.isReadable(file)) {
+            return null;
+        }
+        String archiveName = archiveName(entry);
+        ZipEntry zipEntry = new ZipEntry(archiveName);
+        zipEntry.setTime(Files.getLastModifiedTime(file).toMillis());
+        zip.putNextEntry(zipEntry);
+        Files.copy(file, zip);
+        zip.closeEntry();
+        return archiveName;
+    }
+
+    private List<ReceiptArchiveEntry> nextChunk(long afterId, Boolean verified, LocalDateTime from, LocalDateTime to) {
+        return replicaReads.read(() ->
+                paymentReceiptRepository.findArchiveChunk(afterId, verified, from, to, PageRequest.of(0, CHUNK_SIZE)));
+    }
+
+    private String archiveName(ReceiptArchiveEntry entry) {
+        return RECEIPTS_DIR + receiptStorage.aliasFor(entry.getRegistrationId(),
+                entry.getFirstName(), entry.getLastName(), entry.getContentHash());
+    }
+
+    private void writeRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(';');
+            }
+            writer.write(csv(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(';') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Чеки первого прохода: идентификаторы по возрастанию и отметки, попал ли файл в архив
+     * и есть ли строка в описи
+     */
+    private static final class ArchivedReceipts {
+        private long[] ids = new long[CHUNK_SIZE];
+        private int size;
+        private final BitSet written = new BitSet();
+        private final BitSet listed = new BitSet();
+
+        void add(long id, String archiveName) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (archiveName != null) {
+                written.set(size);
+            }
+            ids[size++] = id;
+        }
+
+        int indexOf(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index >= 0 ? index : -1;
+        }
+
+        long idAt(int index) {
+            return ids[index];
+        }
+
+        long lastId() {
+            return size > 0 ? ids[size - 1] : 0;
+        }
+
+        boolean isWritten(int index) {
+            return written.get(index);
+        }
+
+        void markListed(int index) {
+            listed.set(index);
+        }
+
+        int nextUnlisted(int from) {
+            int index = listed.nextClearBit(from);
+            return index < size ? index : -1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int files() {
+            return written.cardinality();
+        }
+    }
+}
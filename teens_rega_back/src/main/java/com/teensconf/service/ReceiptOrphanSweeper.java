@@ -0,0 +1,82 @@
+package com.teensconf.service;
+
+import com.teensconf.repository.PaymentReceiptRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Удаляет из хранилища файлы, на которые не ссылается ни один чек: после неудачного сохранения оплаты
+ * или отклонения чека. Сразу такие файлы не удаляются - проверка ссылок и удаление гонялись бы
+ * с параллельной загрузкой того же PDF. Файл удаляется, только если его не трогали дольше выдержки,
+ * а загрузка того же содержимого обновляет время изменения (см. {@link ReceiptStorage#store}).
+ */
+@Slf4j
+@Service
+public class ReceiptOrphanSweeper {
+
+    private static final int SHARD_DEPTH = 3;
+    private static final String EXTENSION = ".pdf";
+
+    private final ReceiptStorage receiptStorage;
+    private final PaymentReceiptRepository paymentReceiptRepository;
+    private final Duration grace;
+
+    public ReceiptOrphanSweeper(ReceiptStorage receiptStorage,
+                                PaymentReceiptRepository paymentReceiptRepository,
+                                @Value("${app.upload.orphan-grace-hours:24}") long graceHours) {
+        this.receiptStorage = receiptStorage;
+        this.paymentReceiptRepository = paymentReceiptRepository;
+        this.grace = Duration.ofHours(graceHours);
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload.orphan-sweep-interval-ms:3600000}",
+            initialDelayString = "${app.upload.orphan-sweep-interval-ms:3600000}")
+    public void sweep() {
+        Instant cutoff = Instant.now().minus(grace);
+        int removed = 0;
+        try (Stream<Path> files = Files.find(receiptStorage.root(), SHARD_DEPTH, (path, attributes) ->
+                attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff))) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                if (sweep(iterator.next(), cutoff)) {
+                    removed++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Receipt orphan sweep interrupted: {}", e.getMessage());
+        }
+        if (removed > 0) {
+            log.info("Receipt orphan sweep: {} unreferenced files removed", removed);
+        }
+    }
+
+    private boolean sweep(Path file, Instant cutoff) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(EXTENSION)) {
+            return false;
+        }
+        String contentHash = name.substring(0, name.length() - EXTENSION.length());
+        // Временные файлы загрузок и файлы не из хранилища по хэшу не трогаем
+        if (!receiptStorage.isStored(file, contentHash)) {
+            return false;
+        }
+        try {
+            return !paymentReceiptRepository.existsByContentHash(contentHash)
+                    && receiptStorage.discardIfStale(contentHash, cutoff);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not remove unreferenced receipt file {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.ReceiptReviewResult;
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.repository.PaymentReceiptRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая ручная проверка чеков, которые не прошли автоматическую проверку.
+ * Регистрации обрабатываются порциями: на порцию - одна транзакция и пакетные UPDATE/DELETE через JDBC
+ * вместо загрузки и сохранения каждой сущности.
+ * Письма, счётчики и живая лента обновляются теми же слушателями {@link PaymentCompletedEvent},
+ * что и при оплате через форму: после коммита порции и в фоне.
+ */
+@Slf4j
+@Service
+public class ReceiptReviewService {
+
+    public static final int MAX_REGISTRATIONS = 5000;
+
+    private static final int CHUNK_SIZE = 200;
+
+    /** Завершается только незавершённая регистрация с непроверенным чеком - повторный вызов ничего не меняет */
+    private static final String COMPLETE_REGISTRATION =
+            "UPDATE registrations SET registration_completed_at = ?, version = version + 1 "
+                    + "WHERE id = ? AND registration_completed_at IS NULL AND EXISTS ("
+                    + "SELECT 1 FROM payment_receipts p WHERE p.registration_id = registrations.id AND p.verified = FALSE)";
+    private static final String VERIFY_RECEIPT =
+            "UPDATE payment_receipts SET verified = TRUE, paid = TRUE WHERE registration_id = ?";
+    private static final String DELETE_RECEIPT =
+            "DELETE FROM payment_receipts WHERE registration_id = ? AND verified = FALSE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaymentReceiptRepository paymentReceiptRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataVersion dataVersion;
+    private final Timer verifyTimer;
+    private final Timer rejectTimer;
+
+    public ReceiptReviewService(JdbcTemplate jdbcTemplate,
+                                PaymentReceiptRepository paymentReceiptRepository,
+                                TransactionTemplate transactionTemplate,
+                                ApplicationEventPublisher eventPublisher,
+                                DataVersion dataVersion,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.paymentReceiptRepository = paymentReceiptRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.dataVersion = dataVersion;
+        this.verifyTimer = reviewTimer(meterRegistry, "verify");
+        this.rejectTimer = reviewTimer(meterRegistry, "reject");
+    }
+
+    private static Timer reviewTimer(MeterRegistry meterRegistry, String action) {
+        return Timer.builder("receipts.review")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Подтверждает чеки и завершает регистрации; участникам уходит письмо с билетом
+     */
+    public ReceiptReviewResult verify(List<Long> registrationIds) {
+        List<Long> ids = distinct(registrationIds);
+        long start = System.nanoTime();
+        List<Long> skipped = new ArrayList<>();
+        int applied = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            List<Long> completed = transactionTemplate.execute(status -> verifyChunk(chunk));
+            applied += completed.size();
+            collectSkipped(chunk, completed, skipped);
+        }
+        verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Bulk receipt verification: {} of {} registrations completed", applied, ids.size());
+        return new ReceiptReviewResult(ids.size(), applied, skipped);
+    }
+
+    private List<Long> verifyChunk(List<Long> chunk) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.batchUpdate(COMPLETE_REGISTRATION, chunk.stream()
+                .map(id -> new Object[]{now, id})
+                .collect(Collectors.toList()));
+        List<Long> completed = applied(chunk, counts);
+        if (completed.isEmpty()) {
+            return completed;
+        }
+
+        jdbcTemplate.batchUpdate(VERIFY_RECEIPT, completed.stream()
+                .map(id -> new Object[]{id})
+                .collect(Collectors.toList()));
+        for (PaymentReceipt receipt : paymentReceiptRepository.findWithRegistrationByRegistrationIdIn(completed)) {
+            eventPublisher.publishEvent(new PaymentCompletedEvent(receipt.getRegistration(), receipt));
+        }
+        return completed;
+    }
+
+    /**
+     * Удаляет непроверенные чеки: регистрация остаётся ожидающей оплаты, и участник может загрузить чек заново.
+     * Файлы чеков здесь не удаляются: тот же PDF может как раз загружаться заново,
+     * а файлы без ссылок уберёт {@link ReceiptOrphanSweeper}.
+     */
+    public ReceiptReviewResult reject(List<Long> registrationIds) {
+        List<Long> ids = distinct(registrationIds);
+        long start = System.nanoTime();
+        List<Long> skipped = new ArrayList<>();
+        int applied = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            List<Long> rejected = transactionTemplate.execute(status -> rejectChunk(chunk));
+            applied += rejected.size();
+            collectSkipped(chunk, rejected, skipped);
+        }
+        rejectTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Bulk receipt rejection: {} of {} receipts removed", applied, ids.size());
+        return new ReceiptReviewResult(ids.size(), applied, skipped);
+    }
+
+    private List<Long> rejectChunk(List<Long> chunk) {
+        int[] counts = jdbcTemplate.batchUpdate(DELETE_RECEIPT, chunk.stream()
+                .map(id -> new Object[]{id})
+                .collect(Collectors.toList()));
+        List<Long> rejected = applied(chunk, counts);
+        if (!rejected.isEmpty()) {
+            dataVersion.recordWrite();
+        }
+        return rejected;
+    }
+
+    private static List<Long> distinct(List<Long> registrationIds) {
+        if (registrationIds == null || registrationIds.isEmpty()) {
+            throw new IllegalArgumentException("Не выбраны регистрации");
+        }
+        List<Long> ids = new ArrayList<>(registrationIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        if (ids.size() > MAX_REGISTRATIONS) {
+            throw new IllegalArgumentException("За один раз можно обработать не больше " + MAX_REGISTRATIONS + " регистраций");
+        }
+        return ids;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(ids.size(), from + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    /**
+     * id, для которых пакетный запрос изменил строку; драйвер без числа строк (SUCCESS_NO_INFO) считаем успехом
+     */
+    private static List<Long> applied(List<Long> chunk, int[] counts) {
+        List<Long> applied = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                applied.add(chunk.get(i));
+            }
+        }
+        return applied;
+    }
+
+    private static void collectSkipped(List<Long> chunk, List<Long> applied, List<Long> skipped) {
+        Set<Long> done = new HashSet<>(applied);
+        for (Long id : chunk) {
+            if (!done.contains(id)) {
+                skipped.add(id);
+            }
+        }
+    }
+}
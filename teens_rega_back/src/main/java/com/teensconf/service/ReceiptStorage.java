@@ -0,0 +1,172 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.Registration;
+import com.teensconf.util.Transliterator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище чеков с адресацией по содержимому: {@code <upload dir>/ab/cd/<sha256>.pdf}.
+ * Два уровня каталогов по префиксу хэша ограничивают число файлов в одном каталоге,
+ * а одинаковые файлы хранятся один раз.
+ * Файлы без чеков в базе не удаляются сразу, а убираются {@link ReceiptOrphanSweeper}
+ * после выдержки: так удаление не пересекается с загрузкой того же файла.
+ */
+@Slf4j
+@Component
+public class ReceiptStorage {
+
+    private static final String INCOMING_DIR = ".incoming";
+    private static final String EXTENSION = ".pdf";
+    private static final String DISCARDED_EXTENSION = ".discarded";
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${app.upload.dir:./uploads/receipts}")
+    String uploadDir;
+
+    public void init() {
+        try {
+            Files.createDirectories(incomingDir());
+        } catch (IOException e) {
+            log.error("Could not create upload directory", e);
+        }
+    }
+
+    public Path root() {
+        return Paths.get(uploadDir);
+    }
+
+    public Path incomingDir() {
+        return Paths.get(uploadDir, INCOMING_DIR);
+    }
+
+    public Path createTempFile() throws IOException {
+        Path dir = incomingDir();
+        Files.createDirectories(dir);
+        return Files.createTempFile(dir, "receipt-", ".part");
+    }
+
+    public Path resolve(String contentHash) {
+        if (!CONTENT_HASH.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Некорректный хэш файла: " + contentHash);
+        }
+        return Paths.get(uploadDir,
+                contentHash.substring(0, 2),
+                contentHash.substring(2, 4),
+                contentHash + EXTENSION);
+    }
+
+    /**
+     * Переносит файл в хранилище под именем его хэша. Если такой файл уже есть,
+     * исходный удаляется, а у имеющегося обновляется время изменения.
+     */
+    public Path store(Path source, String contentHash) throws IOException {
+        Path target = resolve(contentHash);
+        if (touch(target)) {
+            Files.deleteIfExists(source);
+            return target;
+        }
+
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    /**
+     * Копирует файл в хранилище, не трогая исходный: копия пишется во временный файл
+     * и переносится на место целиком, так что недописанный файл под именем хэша не появится.
+     */
+    public Path storeCopy(Path source, String contentHash) throws IOException {
+        Path target = resolve(contentHash);
+        if (touch(target)) {
+            return target;
+        }
+        Path temp = createTempFile();
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            return store(temp, contentHash);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Удаляет файл, который не обновлялся с {@code cutoff}; вызывается только для файлов без чеков в базе.
+     * Файл сначала переносится в каталог временных файлов. Загрузка того же содержимого до переноса
+     * обновила время изменения - тогда файл возвращается на место; загрузка после переноса
+     * не найдёт файл и положит свою копию.
+     *
+     * @return {@code true}, если файл удалён
+     */
+    public boolean discardIfStale(String contentHash, Instant cutoff) throws IOException {
+        Path target = resolve(contentHash);
+        Path discarded = incomingDir().resolve(contentHash + DISCARDED_EXTENSION);
+        try {
+            Files.move(target, discarded, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (Files.getLastModifiedTime(discarded).toInstant().isBefore(cutoff)) {
+            Files.delete(discarded);
+            return true;
+        }
+        // Содержимое то же, поэтому копия, которую успела положить новая загрузка, просто заменяется
+        Files.move(discarded, target, StandardCopyOption.ATOMIC_MOVE);
+        return false;
+    }
+
+    /**
+     * Отмечает повторное использование файла, чтобы его не удалил {@link ReceiptOrphanSweeper}
+     *
+     * @return {@code false}, если файла нет
+     */
+    private boolean touch(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    public boolean isStored(Path path, String contentHash) {
+        return contentHash != null
+                && CONTENT_HASH.matcher(contentHash).matches()
+                && resolve(contentHash).toAbsolutePath().normalize().equals(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Человекочитаемое имя чека для выгрузки: {@code <id>_<Имя>_<Фамилия>_<8 символов хэша>.pdf}
+     */
+    public String aliasFor(Registration registration, String contentHash) {
+        return aliasFor(registration.getId(), registration.getFirstName(), registration.getLastName(), contentHash);
+    }
+
+    public String aliasFor(Long registrationId, String firstName, String lastName, String contentHash) {
+        String suffix = contentHash != null && contentHash.length() >= 8
+                ? "_" + contentHash.substring(0, 8)
+                : "";
+        return String.format("%d_%s_%s%s%s",
+                registrationId,
+                Transliterator.transliterate(firstName),
+                Transliterator.transliterate(lastName),
+                suffix,
+                EXTENSION);
+    }
+}
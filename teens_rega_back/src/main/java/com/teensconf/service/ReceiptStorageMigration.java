@@ -0,0 +1,94 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.repository.PaymentReceiptRepository;
+import com.teensconf.util.Hashing;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Перенос чеков из плоского каталога в хранилище по хэшу содержимого.
+ * Запускается один раз с параметром {@code --app.storage.migrate=true};
+ * повторный запуск пропускает уже перенесённые файлы.
+ * Файл сначала копируется, затем сохраняется запись чека и только после этого удаляется старый файл:
+ * при сбое на любом шаге запись указывает на существующий файл.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.storage.migrate", havingValue = "true")
+public class ReceiptStorageMigration implements ApplicationRunner {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final PaymentReceiptRepository paymentReceiptRepository;
+    private final ReceiptStorage receiptStorage;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = 0;
+        int skipped = 0;
+        int missing = 0;
+        int failed = 0;
+
+        Page<PaymentReceipt> page;
+        int pageNumber = 0;
+        do {
+            page = paymentReceiptRepository.findAll(PageRequest.of(pageNumber++, PAGE_SIZE, Sort.by("id")));
+            for (PaymentReceipt receipt : page) {
+                if (receipt.getFilePath() == null) {
+                    skipped++;
+                    continue;
+                }
+                Path source = Paths.get(receipt.getFilePath());
+                if (receiptStorage.isStored(source, receipt.getContentHash())) {
+                    skipped++;
+                    continue;
+                }
+                if (!Files.exists(source)) {
+                    log.warn("Receipt {} file not found: {}", receipt.getId(), source);
+                    missing++;
+                    continue;
+                }
+
+                Path target;
+                try {
+                    String contentHash = Hashing.sha256Hex(source);
+                    target = receiptStorage.storeCopy(source, contentHash);
+                    receipt.setContentHash(contentHash);
+                    receipt.setFilePath(target.toString());
+                    paymentReceiptRepository.save(receipt);
+                } catch (IOException | RuntimeException e) {
+                    log.error("Could not migrate receipt {}: {}", receipt.getId(), e.getMessage());
+                    failed++;
+                    continue;
+                }
+                migrated++;
+
+                try {
+                    if (!source.toAbsolutePath().normalize().equals(target.toAbsolutePath().normalize())) {
+                        Files.deleteIfExists(source);
+                    }
+                } catch (IOException e) {
+                    log.warn("Receipt {} migrated, but old file {} was not deleted: {}",
+                            receipt.getId(), source, e.getMessage());
+                }
+            }
+        } while (page.hasNext());
+
+        log.info("Receipt storage migration finished: {} migrated, {} skipped, {} missing, {} failed",
+                migrated, skipped, missing, failed);
+    }
+}
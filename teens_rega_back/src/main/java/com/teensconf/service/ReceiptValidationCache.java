@@ -0,0 +1,58 @@
+package com.teensconf.service;
+
+import com.teensconf.util.WeightedTtlCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Кэш результатов проверки PDF чеков по SHA-256 содержимого.
+ * Повторная отправка того же файла (например, после сетевой ошибки)
+ * не требует повторного разбора PDF.
+ */
+@Component
+public class ReceiptValidationCache {
+
+    private final WeightedTtlCache<PdfValidationService.ValidationResult> cache;
+
+    public ReceiptValidationCache(@Value("${app.receipt-cache.max-bytes:1048576}") long maxWeightBytes,
+                                  @Value("${app.receipt-cache.ttl-seconds:1800}") long ttlSeconds,
+                                  MeterRegistry meterRegistry) {
+        this.cache = new WeightedTtlCache<>("receipt.validation.cache", maxWeightBytes, ttlSeconds,
+                ReceiptValidationCache::weigh, meterRegistry);
+    }
+
+    /**
+     * @return сохранённый результат или null, если записи нет или она устарела
+     */
+    public PdfValidationService.ValidationResult get(String key) {
+        return cache.get(key);
+    }
+
+    public void put(String key, PdfValidationService.ValidationResult result) {
+        cache.put(key, result);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long weight() {
+        return cache.weight();
+    }
+
+    private static long weigh(PdfValidationService.ValidationResult result) {
+        long chars = 0;
+        if (result.getErrorMessage() != null) {
+            chars += result.getErrorMessage().length();
+        }
+        if (result.getReference() != null) {
+            chars += result.getReference().length();
+        }
+        return chars * 2;
+    }
+}
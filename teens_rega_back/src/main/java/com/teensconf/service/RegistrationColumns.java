@@ -0,0 +1,227 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.ReportDimension;
+import com.teensconf.util.LongObjectHashMap;
+import com.teensconf.util.StringDictionary;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Неизменяемый колоночный снимок таблицы registrations для сводных отчётов.
+ * Строковые разрезы закодированы словарями ({@link StringDictionary}) в {@code int[]},
+ * логические хранятся в {@link BitSet}, возрастная группа - в {@code byte[]}, дата регистрации - днём эпохи.
+ * Изменения применяются копированием: читатели продолжают работать со старым снимком.
+ */
+final class RegistrationColumns {
+
+    static final RegistrationColumns EMPTY = new RegistrationColumns();
+
+    private static final String[] YES_NO = {"нет", "да"};
+    private static final String[] STATUSES = {"ожидает оплаты", "оплачена"};
+
+    private final int size;
+    private final LongObjectHashMap<Integer> rowById;
+    private final StringDictionary roles;
+    private final StringDictionary cities;
+    private final StringDictionary churches;
+    private final int[] role;
+    private final int[] city;
+    private final int[] church;
+    private final byte[] ageGroup;
+    private final int[] createdDay;
+    private final BitSet needAccommodation;
+    private final BitSet wasBefore;
+    private final BitSet completed;
+    private final int minDay;
+    private final int maxDay;
+
+    private RegistrationColumns() {
+        this(0, new LongObjectHashMap<>(0), new StringDictionary(), new StringDictionary(), new StringDictionary(),
+                new int[0], new int[0], new int[0], new byte[0], new int[0],
+                new BitSet(), new BitSet(), new BitSet());
+    }
+
+    private RegistrationColumns(int size, LongObjectHashMap<Integer> rowById,
+                                StringDictionary roles, StringDictionary cities, StringDictionary churches,
+                                int[] role, int[] city, int[] church, byte[] ageGroup, int[] createdDay,
+                                BitSet needAccommodation, BitSet wasBefore, BitSet completed) {
+        this.size = size;
+        this.rowById = rowById;
+        this.roles = roles;
+        this.cities = cities;
+        this.churches = churches;
+        this.role = role;
+        this.city = city;
+        this.church = church;
+        this.ageGroup = ageGroup;
+        this.createdDay = createdDay;
+        this.needAccommodation = needAccommodation;
+        this.wasBefore = wasBefore;
+        this.completed = completed;
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, createdDay[i]);
+            max = Math.max(max, createdDay[i]);
+        }
+        this.minDay = size == 0 ? 0 : min;
+        this.maxDay = size == 0 ? 0 : max;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Новый снимок, в котором строки с известными id заменены, а новые добавлены в конец
+     */
+    RegistrationColumns apply(List<Row> rows, LocalDate today) {
+        if (rows.isEmpty()) {
+            return this;
+        }
+        int capacity = size + rows.size();
+        LongObjectHashMap<Integer> nextRowById = rowById.copy(rows.size());
+        StringDictionary nextRoles = roles.copy();
+        StringDictionary nextCities = cities.copy();
+        StringDictionary nextChurches = churches.copy();
+        int[] nextRole = Arrays.copyOf(role, capacity);
+        int[] nextCity = Arrays.copyOf(city, capacity);
+        int[] nextChurch = Arrays.copyOf(church, capacity);
+        byte[] nextAgeGroup = Arrays.copyOf(ageGroup, capacity);
+        int[] nextCreatedDay = Arrays.copyOf(createdDay, capacity);
+        BitSet nextNeedAccommodation = (BitSet) needAccommodation.clone();
+        BitSet nextWasBefore = (BitSet) wasBefore.clone();
+        BitSet nextCompleted = (BitSet) completed.clone();
+
+        int nextSize = size;
+        for (Row row : rows) {
+            Integer existing = nextRowById.get(row.id);
+            int index;
+            if (existing != null) {
+                index = existing;
+            } else {
+                index = nextSize++;
+                nextRowById.put(row.id, index);
+            }
+            nextRole[index] = nextRoles.encode(RegistrationStatsService.key(row.role));
+            nextCity[index] = nextCities.encode(RegistrationStatsService.key(row.city));
+            nextChurch[index] = nextChurches.encode(RegistrationStatsService.key(row.church));
+            nextAgeGroup[index] = (byte) ageGroupCode(row.birthDate, today);
+            nextCreatedDay[index] = row.createdAt == null ? 0 : (int) row.createdAt.toLocalDate().toEpochDay();
+            nextNeedAccommodation.set(index, row.needAccommodation);
+            nextWasBefore.set(index, row.wasBefore);
+            nextCompleted.set(index, row.completedAt != null);
+        }
+
+        return new RegistrationColumns(nextSize, nextRowById, nextRoles, nextCities, nextChurches,
+                nextRole, nextCity, nextChurch, nextAgeGroup, nextCreatedDay,
+                nextNeedAccommodation, nextWasBefore, nextCompleted);
+    }
+
+    /**
+     * Число различных значений разреза: коды строк лежат в диапазоне [0, cardinality)
+     */
+    int cardinality(ReportDimension dimension) {
+        switch (dimension) {
+            case CITY:
+                return cities.size();
+            case ROLE:
+                return roles.size();
+            case CHURCH:
+                return churches.size();
+            case AGE_GROUP:
+                return RegistrationStatsService.AGE_GROUPS.length + 1;
+            case NEED_ACCOMMODATION:
+            case WAS_BEFORE:
+            case STATUS:
+                return 2;
+            case CREATED_DATE:
+                return size == 0 ? 0 : maxDay - minDay + 1;
+            default:
+                throw new IllegalArgumentException("Unknown dimension " + dimension);
+        }
+    }
+
+    int code(ReportDimension dimension, int row) {
+        switch (dimension) {
+            case CITY:
+                return city[row];
+            case ROLE:
+                return role[row];
+            case CHURCH:
+                return church[row];
+            case AGE_GROUP:
+                return ageGroup[row];
+            case NEED_ACCOMMODATION:
+                return needAccommodation.get(row) ? 1 : 0;
+            case WAS_BEFORE:
+                return wasBefore.get(row) ? 1 : 0;
+            case STATUS:
+                return completed.get(row) ? 1 : 0;
+            case CREATED_DATE:
+                return createdDay[row] - minDay;
+            default:
+                throw new IllegalArgumentException("Unknown dimension " + dimension);
+        }
+    }
+
+    String label(ReportDimension dimension, int code) {
+        switch (dimension) {
+            case CITY:
+                return cities.decode(code);
+            case ROLE:
+                return roles.decode(code);
+            case CHURCH:
+                return churches.decode(code);
+            case AGE_GROUP:
+                return code < RegistrationStatsService.AGE_GROUPS.length
+                        ? RegistrationStatsService.AGE_GROUPS[code]
+                        : RegistrationStatsService.UNKNOWN;
+            case NEED_ACCOMMODATION:
+            case WAS_BEFORE:
+                return YES_NO[code];
+            case STATUS:
+                return STATUSES[code];
+            case CREATED_DATE:
+                return LocalDate.ofEpochDay(minDay + code).toString();
+            default:
+                throw new IllegalArgumentException("Unknown dimension " + dimension);
+        }
+    }
+
+    private static int ageGroupCode(String birthDate, LocalDate today) {
+        String group = RegistrationStatsService.ageGroup(birthDate, today);
+        for (int i = 0; i < RegistrationStatsService.AGE_GROUPS.length; i++) {
+            if (RegistrationStatsService.AGE_GROUPS[i].equals(group)) {
+                return i;
+            }
+        }
+        return RegistrationStatsService.AGE_GROUPS.length;
+    }
+
+    @AllArgsConstructor
+    static final class Row {
+        private final long id;
+        private final String role;
+        private final String city;
+        private final String church;
+        private final boolean needAccommodation;
+        private final boolean wasBefore;
+        private final String birthDate;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime completedAt;
+
+        LocalDateTime latestChange() {
+            if (completedAt != null && (createdAt == null || completedAt.isAfter(createdAt))) {
+                return completedAt;
+            }
+            return createdAt;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.KeysetPage;
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.DatabaseProduct;
+import com.teensconf.util.KeysetCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Список регистраций для админки: проекция вместо сущностей, выборка по ключу вместо OFFSET,
+ * без COUNT(*) на каждую страницу. Общее число - по запросу и приблизительное.
+ */
+@Slf4j
+@Service
+public class RegistrationListService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String POSTGRES_ESTIMATE =
+            "SELECT reltuples::bigint FROM pg_class WHERE oid = 'registrations'::regclass";
+
+    private final RegistrationRepository registrationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public RegistrationListService(RegistrationRepository registrationRepository, JdbcTemplate jdbcTemplate) {
+        this.registrationRepository = registrationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetPage<RegistrationListItem> getPage(String cursor, int size, boolean withTotal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Лишняя строка показывает, есть ли следующая страница
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<RegistrationListItem> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = registrationRepository.findListPage(limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = registrationRepository.findListPageAfter(after.getCreatedAt(), after.getId(), limit);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            RegistrationListItem last = rows.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getRegistrationCreatedAt(), last.getId()).encode();
+        }
+        return new KeysetPage<>(rows, nextCursor, withTotal ? approximateTotal() : null);
+    }
+
+    /**
+     * В PostgreSQL - оценка планировщика из pg_class без сканирования таблицы, в остальных базах - COUNT(*)
+     */
+    long approximateTotal() {
+        if (isPostgres()) {
+            try {
+                Long estimate = jdbcTemplate.queryForObject(POSTGRES_ESTIMATE, Long.class);
+                // -1, пока таблицу ни разу не анализировали
+                if (estimate != null && estimate >= 0) {
+                    return estimate;
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not read registrations estimate: {}", e.getMessage());
+            }
+        }
+        return registrationRepository.count();
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = DatabaseProduct.isPostgres(jdbcTemplate);
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,217 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.dto.RegistrationSearchRow;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.RegistrationCreatedEvent;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.DatabaseProduct;
+import com.teensconf.util.NgramIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск регистраций в админке по части имени, почты, телефона, города или церкви.
+ * В PostgreSQL с pg_trgm ищет по триграммному GIN-индексу, иначе (H2, нет расширения) -
+ * по {@link NgramIndex} в памяти, который строится при старте и пополняется новыми регистрациями.
+ * Регистрации, созданные на других экземплярах, догружаются по id раз в полминуты.
+ * Правки и удаления по id не видны, поэтому индекс периодически перестраивается целиком;
+ * до перестройки удалённые регистрации не попадают в выдачу, потому что строки для неё читаются из базы.
+ */
+@Slf4j
+@Service
+public class RegistrationSearchService {
+
+    public static final int MIN_QUERY_LENGTH = 2;
+    public static final int MAX_RESULTS = 50;
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    /** Должно совпадать с выражением индекса из миграции V9 */
+    private static final String SEARCH_DOCUMENT = "translate(lower(last_name || ' ' || first_name || ' ' || email"
+            + " || ' ' || regexp_replace(phone, '[^0-9]', '', 'g') || ' ' || city || ' ' || church), 'ё', 'е')";
+
+    private static final String TRGM_SEARCH = "SELECT id FROM registrations "
+            + "WHERE " + SEARCH_DOCUMENT + " LIKE ? ESCAPE '\\' OR ? <% " + SEARCH_DOCUMENT + " "
+            + "ORDER BY (" + SEARCH_DOCUMENT + " LIKE ? ESCAPE '\\') DESC, "
+            + "word_similarity(?, " + SEARCH_DOCUMENT + ") DESC, id DESC "
+            + "LIMIT ?";
+
+    private final RegistrationRepository registrationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer trigramTimer;
+    private final Timer memoryTimer;
+
+    private volatile NgramIndex index = new NgramIndex();
+    private volatile boolean useTrigramIndex;
+    /** Наибольший id, до которого индекс догружен из базы */
+    private long loadedUpToId;
+
+    public RegistrationSearchService(RegistrationRepository registrationRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     MeterRegistry meterRegistry) {
+        this.registrationRepository = registrationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.trigramTimer = searchTimer(meterRegistry, "pg_trgm");
+        this.memoryTimer = searchTimer(meterRegistry, "memory");
+    }
+
+    private static Timer searchTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("registration.search")
+                .tag("mode", mode)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        useTrigramIndex = hasTrigramIndex();
+        if (useTrigramIndex) {
+            log.info("Admin search uses the pg_trgm index");
+            return;
+        }
+        rebuildIndex();
+    }
+
+    /**
+     * Строит индекс заново в фоне и подменяет им текущий: подхватывает правки и удаления,
+     * а заодно выбрасывает старые версии документов, которые {@link NgramIndex#put} только помечает удалёнными
+     */
+    @Scheduled(fixedDelayString = "${app.search.rebuild-interval-ms:900000}",
+            initialDelayString = "${app.search.rebuild-interval-ms:900000}")
+    public synchronized void rebuildIndex() {
+        if (useTrigramIndex) {
+            return;
+        }
+        long start = System.nanoTime();
+        NgramIndex next = new NgramIndex();
+        long upToId;
+        try {
+            upToId = loadInto(next, 0);
+        } catch (DataAccessException e) {
+            log.error("Could not rebuild admin search index: {}", e.getMessage());
+            return;
+        }
+        index = next;
+        loadedUpToId = upToId;
+        log.info("Admin search index built in memory: {} registrations in {} ms",
+                next.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Догружает регистрации с id больше уже загруженных, в том числе созданные на других экземплярах
+     */
+    @Scheduled(fixedDelayString = "${app.search.refresh-interval-ms:30000}",
+            initialDelayString = "${app.search.refresh-interval-ms:30000}")
+    public synchronized void refreshIndex() {
+        if (useTrigramIndex) {
+            return;
+        }
+        try {
+            loadedUpToId = loadInto(index, loadedUpToId);
+        } catch (DataAccessException e) {
+            log.error("Could not refresh admin search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return наибольший загруженный id или {@code afterId}, если новых строк нет
+     */
+    private long loadInto(NgramIndex target, long afterId) {
+        List<RegistrationSearchRow> chunk;
+        do {
+            chunk = registrationRepository.findSearchChunk(afterId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            for (RegistrationSearchRow row : chunk) {
+                target.put(row.getId(), row.getLastName(), row.getFirstName(), row.getEmail(),
+                        row.getPhone(), row.getCity(), row.getChurch());
+                afterId = row.getId();
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+        return afterId;
+    }
+
+    private boolean hasTrigramIndex() {
+        try {
+            return DatabaseProduct.isPostgres(jdbcTemplate) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass('idx_registrations_search_trgm') IS NOT NULL", Boolean.class));
+        } catch (DataAccessException e) {
+            log.warn("Could not check for the pg_trgm search index: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        if (!useTrigramIndex) {
+            Registration registration = event.getRegistration();
+            index.put(registration.getId(), registration.getLastName(), registration.getFirstName(),
+                    registration.getEmail(), registration.getPhone(), registration.getCity(), registration.getChurch());
+        }
+    }
+
+    /**
+     * Найденные регистрации по убыванию релевантности
+     */
+    public List<RegistrationListItem> search(String query, int limit) {
+        String trimmed = query == null ? "" : query.trim();
+        if (trimmed.length() < MIN_QUERY_LENGTH) {
+            return List.of();
+        }
+        int max = Math.max(1, Math.min(limit, MAX_RESULTS));
+
+        long start = System.nanoTime();
+        boolean trigram = useTrigramIndex;
+        List<Long> ids = trigram ? searchTrigramIndex(trimmed, max) : searchMemory(trimmed, max);
+        List<RegistrationListItem> result = load(ids);
+        (trigram ? trigramTimer : memoryTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private List<Long> searchTrigramIndex(String query, int limit) {
+        String normalized = NgramIndex.normalize(query);
+        String like = "%" + normalized.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return jdbcTemplate.queryForList(TRGM_SEARCH, Long.class, like, normalized, like, normalized, limit);
+    }
+
+    private List<Long> searchMemory(String query, int limit) {
+        return index.search(query, limit, NgramIndex.DEFAULT_THRESHOLD).stream()
+                .map(NgramIndex.Hit::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Строки для найденных id одним запросом, в порядке ранга
+     */
+    private List<RegistrationListItem> load(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, RegistrationListItem> byId = new HashMap<>();
+        for (RegistrationListItem item : registrationRepository.findListItemsByIds(ids)) {
+            byId.put(item.getId(), item);
+        }
+        List<RegistrationListItem> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            RegistrationListItem item = byId.get(id);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+}
@@ -2,10 +2,12 @@ package com.teensconf.service;
 
 import com.teensconf.dto.RegistrationRequest;
 import com.teensconf.entity.Registration;
+import com.teensconf.event.RegistrationCreatedEvent;
 import com.teensconf.repository.RegistrationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
@@ -21,6 +23,7 @@ public class RegistrationService {
     private final RegistrationRepository registrationRepository;
     private final YandexSheetsService yandexSheetsService;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Registration createRegistration(@Valid RegistrationRequest request) {
         Registration registration = new Registration();
@@ -43,6 +46,7 @@ public class RegistrationService {
 
         Registration savedRegistration = registrationRepository.save(registration);
         log.info("Регистрация создана с ID: {}", savedRegistration.getId());
+        eventPublisher.publishEvent(new RegistrationCreatedEvent(savedRegistration));
 
         try {
             emailService.sendRegistrationConfirmation(savedRegistration);
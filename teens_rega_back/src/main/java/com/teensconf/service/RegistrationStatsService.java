@@ -0,0 +1,274 @@
+package com.teensconf.service;
+
+import com.teensconf.config.ReplicaReads;
+import com.teensconf.dto.RegistrationStats;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.event.RegistrationCreatedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Статистика регистраций без запросов к базе на каждое обновление панели.
+ * Счётчики в памяти увеличиваются по событиям создания регистрации и оплаты,
+ * а периодически пересчитываются одним агрегирующим запросом: так исправляются изменения в обход событий
+ * и расхождения из-за событий, пришедших во время пересчёта.
+ * События приходят только от своего экземпляра, а версия данных общая: после записи на другом узле
+ * ответ с прежними счётчиками попал бы в кэш под новой версией. Поэтому, заметив чужие записи
+ * ({@link DataVersion#remoteWrites()}), сервис пересчитывает статистику сразу и увеличивает версию ещё раз.
+ */
+@Slf4j
+@Service
+public class RegistrationStatsService {
+
+    static final String UNKNOWN = "не указано";
+    static final String[] AGE_GROUPS = {"до 14", "14-17", "18-24", "25+"};
+
+    private static final DateTimeFormatter BIRTH_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    /** Одна строка на сочетание разрезов; даты рождения группируются здесь, возраст считается уже в памяти */
+    private static final String AGGREGATE = "SELECT role, city, church, need_accommodation, birth_date, "
+            + "COUNT(*) AS total, COUNT(registration_completed_at) AS completed "
+            + "FROM registrations "
+            + "GROUP BY role, city, church, need_accommodation, birth_date";
+
+    private static final RowMapper<Group> GROUP_MAPPER = (rs, rowNum) -> new Group(
+            rs.getString("role"),
+            rs.getString("city"),
+            rs.getString("church"),
+            rs.getBoolean("need_accommodation"),
+            rs.getString("birth_date"),
+            rs.getLong("total"),
+            rs.getLong("completed"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReplicaReads replicaReads;
+    private final DataVersion dataVersion;
+    private final Timer reconcileTimer;
+
+    private volatile Counters counters;
+    private volatile LocalDateTime reconciledAt;
+    private long seenRemoteWrites;
+
+    public RegistrationStatsService(JdbcTemplate jdbcTemplate, ReplicaReads replicaReads, DataVersion dataVersion,
+                                    MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaReads = replicaReads;
+        this.dataVersion = dataVersion;
+        this.reconcileTimer = Timer.builder("registration.stats.reconcile")
+                .register(meterRegistry);
+    }
+
+    public RegistrationStats getStats() {
+        if (counters == null) {
+            reconcile();
+        }
+        Counters current = counters;
+        if (current == null) {
+            throw new IllegalStateException("Статистика пока недоступна, повторите попытку позже");
+        }
+        long total = current.all.total.get();
+        long completed = current.all.completed.get();
+        return new RegistrationStats(total, completed, total - completed,
+                current.accommodation.toCounts(),
+                sorted(current.byRole),
+                sorted(current.byCity),
+                sorted(current.byChurch),
+                sorted(current.byAgeGroup),
+                reconciledAt);
+    }
+
+    /**
+     * Пересчитывает статистику по базе и подменяет ею счётчики в памяти
+     */
+    @Scheduled(fixedDelayString = "${app.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        reconcile(true);
+    }
+
+    private synchronized void reconcile(boolean fromReplica) {
+        long start = System.nanoTime();
+        List<Group> groups;
+        try {
+            groups = fromReplica
+                    ? replicaReads.read(() -> jdbcTemplate.query(AGGREGATE, GROUP_MAPPER))
+                    : jdbcTemplate.query(AGGREGATE, GROUP_MAPPER);
+        } catch (DataAccessException e) {
+            log.error("Could not reconcile registration stats: {}", e.getMessage());
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        Counters next = new Counters();
+        for (Group group : groups) {
+            next.add(group.role, group.city, group.church, group.needAccommodation,
+                    ageGroup(group.birthDate, today), group.total, group.completed);
+        }
+
+        Counters previous = counters;
+        counters = next;
+        reconciledAt = LocalDateTime.now();
+        reconcileTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (previous != null && (previous.all.total.get() != next.all.total.get()
+                || previous.all.completed.get() != next.all.completed.get())) {
+            dataVersion.bump();
+            log.info("Registration stats reconciled: total {} -> {}, completed {} -> {}",
+                    previous.all.total.get(), next.all.total.get(),
+                    previous.all.completed.get(), next.all.completed.get());
+        }
+    }
+
+    /**
+     * Пересчитывает статистику, если с прошлой проверки данные менял другой экземпляр
+     */
+    @Scheduled(fixedDelayString = "${app.stats.remote-check-ms:2000}")
+    public synchronized void reconcileAfterRemoteWrites() {
+        long remoteWrites = dataVersion.remoteWrites();
+        if (remoteWrites == seenRemoteWrites) {
+            return;
+        }
+        Counters previous = counters;
+        if (previous != null) {
+            // Из основной базы: реплика могла ещё не получить чужую запись
+            reconcile(false);
+            if (counters == previous) {
+                // Пересчёт не удался - попробуем на следующей проверке
+                return;
+            }
+            // Ответы, построенные по старым счётчикам под новой общей версией, больше не подходят
+            dataVersion.bump();
+        }
+        seenRemoteWrites = remoteWrites;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationCreated(RegistrationCreatedEvent event) {
+        apply(event.getRegistration(), 1, 0);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPaymentCompleted(PaymentCompletedEvent event) {
+        apply(event.getRegistration(), 0, 1);
+    }
+
+    private void apply(Registration registration, long total, long completed) {
+        Counters current = counters;
+        // До первого пересчёта считать не от чего: он и так учтёт эту регистрацию
+        if (current != null) {
+            current.add(registration.getRole(), registration.getCity(), registration.getChurch(),
+                    Boolean.TRUE.equals(registration.getNeedAccommodation()),
+                    ageGroup(registration.getBirthDate(), LocalDate.now()), total, completed);
+            // Уже после изменения счётчиков, иначе ответ со старыми значениями попадёт в кэш под новой версией
+            dataVersion.bump();
+        }
+    }
+
+    /**
+     * Возрастная группа на указанную дату по дате рождения в формате дд/мм/гггг
+     */
+    static String ageGroup(String birthDate, LocalDate today) {
+        if (birthDate == null) {
+            return UNKNOWN;
+        }
+        int age;
+        try {
+            age = Period.between(LocalDate.parse(birthDate, BIRTH_DATE_FORMAT), today).getYears();
+        } catch (DateTimeParseException e) {
+            return UNKNOWN;
+        }
+        if (age < 14) {
+            return AGE_GROUPS[0];
+        } else if (age < 18) {
+            return AGE_GROUPS[1];
+        } else if (age < 25) {
+            return AGE_GROUPS[2];
+        }
+        return AGE_GROUPS[3];
+    }
+
+    private static Map<String, RegistrationStats.Counts> sorted(Map<String, Tally> tallies) {
+        Map<String, RegistrationStats.Counts> result = new LinkedHashMap<>();
+        tallies.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().toCounts()))
+                .sorted(Comparator.comparingLong((Map.Entry<String, RegistrationStats.Counts> entry) ->
+                        entry.getValue().getTotal()).reversed().thenComparing(Map.Entry::getKey))
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    static String key(String value) {
+        if (value == null || value.isBlank()) {
+            return UNKNOWN;
+        }
+        return value.trim();
+    }
+
+    @AllArgsConstructor
+    static final class Group {
+        private final String role;
+        private final String city;
+        private final String church;
+        private final boolean needAccommodation;
+        private final String birthDate;
+        private final long total;
+        private final long completed;
+    }
+
+    private static final class Tally {
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+
+        private void add(long total, long completed) {
+            this.total.addAndGet(total);
+            this.completed.addAndGet(completed);
+        }
+
+        private RegistrationStats.Counts toCounts() {
+            return new RegistrationStats.Counts(total.get(), completed.get());
+        }
+    }
+
+    private static final class Counters {
+        private final Tally all = new Tally();
+        private final Tally accommodation = new Tally();
+        private final Map<String, Tally> byRole = new ConcurrentHashMap<>();
+        private final Map<String, Tally> byCity = new ConcurrentHashMap<>();
+        private final Map<String, Tally> byChurch = new ConcurrentHashMap<>();
+        private final Map<String, Tally> byAgeGroup = new ConcurrentHashMap<>();
+
+        private void add(String role, String city, String church, boolean needAccommodation, String ageGroup,
+                         long total, long completed) {
+            all.add(total, completed);
+            if (needAccommodation) {
+                accommodation.add(total, completed);
+            }
+            byRole.computeIfAbsent(key(role), k -> new Tally()).add(total, completed);
+            byCity.computeIfAbsent(key(city), k -> new Tally()).add(total, completed);
+            byChurch.computeIfAbsent(key(church), k -> new Tally()).add(total, completed);
+            byAgeGroup.computeIfAbsent(ageGroup, k -> new Tally()).add(total, completed);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.ReminderRecipient;
+import com.teensconf.entity.ReminderCampaign;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.repository.ReminderCampaignRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рассылка напоминаний об оплате тем, кто начал регистрацию, но не завершил её.
+ * Регистрации читаются порциями по ключу, шаблон отрисовывается один раз на порцию.
+ * Следующая порция ставится в очередь, только когда {@link EmailDispatcher} разослал предыдущую,
+ * так что рассылка идёт со скоростью провайдера и не мешает билетам и подтверждениям.
+ * После каждой порции сохраняется контрольная точка, после перезапуска рассылка продолжается с неё.
+ * Рассылку ведёт один узел: он берёт её в аренду условным UPDATE и продлевает аренду на контрольных точках.
+ * Если узел пропал, после истечения аренды рассылку подхватывает другой. Вторую рассылку, пока идёт первая,
+ * не даёт запустить уникальный индекс по статусу RUNNING.
+ */
+@Slf4j
+@Service
+public class ReminderCampaignService {
+
+    private final RegistrationRepository registrationRepository;
+    private final ReminderCampaignRepository campaignRepository;
+    private final EmailService emailService;
+    private final EmailDispatcher emailDispatcher;
+    private final int chunkSize;
+    private final long drainPollMillis;
+    private final Duration lease;
+    private final String owner = UUID.randomUUID().toString();
+    /** Рассылки, которые ведёт или уже поставил в очередь этот узел */
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reminder-campaign");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReminderCampaignService(RegistrationRepository registrationRepository,
+                                   ReminderCampaignRepository campaignRepository,
+                                   EmailService emailService,
+                                   EmailDispatcher emailDispatcher,
+                                   @Value("${app.reminders.chunk-size:50}") int chunkSize,
+                                   @Value("${app.reminders.drain-poll-ms:500}") long drainPollMillis,
+                                   @Value("${app.reminders.lease-seconds:120}") long leaseSeconds) {
+        this.registrationRepository = registrationRepository;
+        this.campaignRepository = campaignRepository;
+        this.emailService = emailService;
+        this.emailDispatcher = emailDispatcher;
+        this.chunkSize = chunkSize;
+        this.drainPollMillis = drainPollMillis;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+    }
+
+    public ReminderCampaign start() {
+        if (!campaignRepository.findByStatus(ReminderCampaign.Status.RUNNING).isEmpty()) {
+            throw new IllegalStateException("Рассылка напоминаний уже идёт");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        ReminderCampaign campaign = new ReminderCampaign();
+        campaign.setStatus(ReminderCampaign.Status.RUNNING);
+        campaign.setMaxRegistrationId(registrationRepository.findMaxId());
+        campaign.setStartedAt(now);
+        campaign.setLeaseOwner(owner);
+        campaign.setLeaseUntil(now.plus(lease));
+        ReminderCampaign saved;
+        try {
+            saved = campaignRepository.save(campaign);
+        } catch (DataIntegrityViolationException e) {
+            // Другой узел запустил рассылку между проверкой и вставкой
+            throw new IllegalStateException("Рассылка напоминаний уже идёт");
+        }
+
+        log.info("Reminder campaign {} started for registrations up to {}", saved.getId(), saved.getMaxRegistrationId());
+        submit(saved.getId());
+        return saved;
+    }
+
+    public Optional<ReminderCampaign> cancel(Long id) {
+        if (campaignRepository.finish(id, ReminderCampaign.Status.CANCELLED, LocalDateTime.now()) > 0) {
+            log.info("Reminder campaign {} cancelled", id);
+        }
+        return campaignRepository.findById(id);
+    }
+
+    public Optional<ReminderCampaign> getLatest() {
+        return campaignRepository.findFirstByOrderByIdDesc();
+    }
+
+    /**
+     * Подхватывает рассылки после перезапуска и рассылки узлов, чья аренда истекла
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.reminders.lease-check-ms:60000}",
+            initialDelayString = "${app.reminders.lease-check-ms:60000}")
+    public void resumeCampaigns() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ReminderCampaign campaign : campaignRepository.findByStatus(ReminderCampaign.Status.RUNNING)) {
+            boolean leaseFree = owner.equals(campaign.getLeaseOwner())
+                    || campaign.getLeaseUntil() == null
+                    || campaign.getLeaseUntil().isBefore(now);
+            if (leaseFree && submit(campaign.getId())) {
+                log.info("Resuming reminder campaign {} after registration {}",
+                        campaign.getId(), campaign.getLastRegistrationId());
+            }
+        }
+    }
+
+    private boolean submit(Long campaignId) {
+        if (!active.add(campaignId)) {
+            return false;
+        }
+        executor.submit(() -> {
+            try {
+                run(campaignId);
+            } finally {
+                active.remove(campaignId);
+            }
+        });
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void run(Long campaignId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (campaignRepository.acquireLease(campaignId, owner, now, now.plus(lease)) == 0) {
+            log.info("Reminder campaign {} is stopped or run by another node", campaignId);
+            return;
+        }
+        ReminderCampaign campaign = campaignRepository.findById(campaignId).orElse(null);
+        if (campaign == null || campaign.getStatus() != ReminderCampaign.Status.RUNNING) {
+            return;
+        }
+        long afterId = campaign.getLastRegistrationId();
+        long maxId = campaign.getMaxRegistrationId();
+        try {
+            List<ReminderRecipient> chunk;
+            do {
+                chunk = registrationRepository.findReminderChunk(afterId, maxId, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+
+                String template = emailService.renderPaymentReminder();
+                int queued = 0;
+                for (ReminderRecipient recipient : chunk) {
+                    if (emailService.sendPaymentReminder(recipient, template)) {
+                        queued++;
+                    }
+                }
+                if (!awaitSent(campaignId)) {
+                    log.info("Reminder campaign {} lost its lease after registration {}", campaignId, afterId);
+                    return;
+                }
+
+                afterId = chunk.get(chunk.size() - 1).getId();
+                LocalDateTime checkpointAt = LocalDateTime.now();
+                if (campaignRepository.checkpoint(campaignId, owner, afterId, queued, checkpointAt,
+                        checkpointAt.plus(lease)) == 0) {
+                    log.info("Reminder campaign {} stopped after registration {}", campaignId, afterId);
+                    return;
+                }
+            } while (chunk.size() == chunkSize);
+
+            campaignRepository.finish(campaignId, ReminderCampaign.Status.COMPLETED, LocalDateTime.now());
+            log.info("Reminder campaign {} completed", campaignId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Отпускаем аренду, чтобы другой узел подхватил рассылку, не дожидаясь её истечения
+            campaignRepository.renewLease(campaignId, owner, LocalDateTime.now());
+            log.info("Reminder campaign {} interrupted, will resume after registration {}", campaignId, afterId);
+        } catch (RuntimeException e) {
+            log.error("Reminder campaign {} failed after registration {}", campaignId, afterId, e);
+            campaignRepository.finish(campaignId, ReminderCampaign.Status.FAILED, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Ждёт, пока диспетчер разошлёт напоминания: контрольная точка не должна обгонять реальную отправку.
+     * Пока ждёт, продлевает аренду - билеты идут раньше напоминаний, и ожидание может затянуться.
+     *
+     * @return false, если аренду забрал другой узел или рассылку остановили
+     */
+    private boolean awaitSent(Long campaignId) throws InterruptedException {
+        long renewEveryNanos = lease.toNanos() / 3;
+        long renewedAt = System.nanoTime();
+        while (emailDispatcher.getQueueSize(EmailDispatcher.Lane.REMINDER) > 0) {
+            TimeUnit.MILLISECONDS.sleep(drainPollMillis);
+            if (System.nanoTime() - renewedAt >= renewEveryNanos) {
+                if (campaignRepository.renewLease(campaignId, owner, LocalDateTime.now().plus(lease)) == 0) {
+                    return false;
+                }
+                renewedAt = System.nanoTime();
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,265 @@
+package com.teensconf.service;
+
+import com.teensconf.config.ReplicaReads;
+import com.teensconf.dto.PivotReport;
+import com.teensconf.dto.ReportDimension;
+import com.teensconf.util.LongObjectHashMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Сводные отчёты по регистрациям: число регистраций по сочетаниям двух-трёх разрезов.
+ * Отчёт считается по колоночному снимку в памяти ({@link RegistrationColumns}), а не запросом к базе;
+ * строки снимка делятся на порции, которые считаются параллельно на всех ядрах.
+ * Снимок догружается изменениями, если с прошлого раза менялась {@link DataVersion},
+ * и раз в час пересобирается целиком: так учитываются удаления и смена возрастных групп.
+ */
+@Slf4j
+@Service
+public class ReportService {
+
+    public static final int MAX_DIMENSIONS = 3;
+
+    private static final int CHUNK_ROWS = 8192;
+    /** До такого числа сочетаний порция считает в плотном массиве, дальше - в хэш-таблице */
+    private static final long DENSE_LIMIT = 1 << 16;
+    /** Время создания ставится до коммита, поэтому дельта захватывает немного времени до последнего изменения */
+    private static final long DELTA_OVERLAP_MINUTES = 1;
+
+    private static final String SELECT = "SELECT id, role, city, church, need_accommodation, was_before, birth_date, "
+            + "registration_created_at, registration_completed_at FROM registrations";
+    private static final String SELECT_CHANGED = SELECT
+            + " WHERE registration_created_at >= ? OR registration_completed_at >= ?";
+
+    private static final RowMapper<RegistrationColumns.Row> ROW_MAPPER = (rs, rowNum) -> new RegistrationColumns.Row(
+            rs.getLong("id"),
+            rs.getString("role"),
+            rs.getString("city"),
+            rs.getString("church"),
+            rs.getBoolean("need_accommodation"),
+            rs.getBoolean("was_before"),
+            rs.getString("birth_date"),
+            toLocalDateTime(rs.getTimestamp("registration_created_at")),
+            toLocalDateTime(rs.getTimestamp("registration_completed_at")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReplicaReads replicaReads;
+    private final DataVersion dataVersion;
+    private final Timer pivotTimer;
+
+    private volatile RegistrationColumns columns;
+    private volatile LocalDateTime asOf;
+    private long columnsVersion = -1;
+    private LocalDateTime watermark;
+
+    public ReportService(JdbcTemplate jdbcTemplate, ReplicaReads replicaReads, DataVersion dataVersion,
+                         MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaReads = replicaReads;
+        this.dataVersion = dataVersion;
+        this.pivotTimer = Timer.builder("report.pivot")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public PivotReport pivot(List<ReportDimension> dimensions) {
+        if (dimensions == null || dimensions.isEmpty() || dimensions.size() > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("Нужно указать от 1 до " + MAX_DIMENSIONS + " разрезов");
+        }
+        if (new HashSet<>(dimensions).size() != dimensions.size()) {
+            throw new IllegalArgumentException("Разрезы не должны повторяться");
+        }
+
+        RegistrationColumns snapshot = current();
+        long start = System.nanoTime();
+        int[] radix = new int[dimensions.size()];
+        long cells = 1;
+        for (int i = 0; i < radix.length; i++) {
+            radix[i] = Math.max(1, snapshot.cardinality(dimensions.get(i)));
+            cells *= radix[i];
+        }
+
+        List<PivotReport.Row> rows = cells <= DENSE_LIMIT
+                ? countDense(snapshot, dimensions, radix, (int) cells)
+                : countSparse(snapshot, dimensions, radix);
+        rows.sort(Comparator.comparingLong(PivotReport.Row::getCount).reversed());
+        pivotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        List<String> titles = dimensions.stream().map(ReportDimension::getTitle).collect(Collectors.toList());
+        return new PivotReport(List.copyOf(dimensions), titles, rows, snapshot.size(), asOf);
+    }
+
+    private static List<PivotReport.Row> countDense(RegistrationColumns snapshot, List<ReportDimension> dimensions,
+                                                    int[] radix, int cells) {
+        List<long[]> partials = IntStream.range(0, chunks(snapshot)).parallel()
+                .mapToObj(chunk -> {
+                    long[] local = new long[cells];
+                    int end = Math.min(snapshot.size(), (chunk + 1) * CHUNK_ROWS);
+                    for (int row = chunk * CHUNK_ROWS; row < end; row++) {
+                        local[(int) cell(snapshot, dimensions, radix, row)]++;
+                    }
+                    return local;
+                })
+                .collect(Collectors.toList());
+        long[] counts = new long[cells];
+        for (long[] partial : partials) {
+            for (int i = 0; i < cells; i++) {
+                counts[i] += partial[i];
+            }
+        }
+
+        List<PivotReport.Row> rows = new ArrayList<>();
+        for (int cell = 0; cell < cells; cell++) {
+            if (counts[cell] > 0) {
+                rows.add(new PivotReport.Row(labels(snapshot, dimensions, radix, cell), counts[cell]));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Для больших произведений кардинальностей (например, город × церковь × дата): встречаются
+     * лишь немногие сочетания, поэтому счётчики хранятся только для них
+     */
+    private static List<PivotReport.Row> countSparse(RegistrationColumns snapshot, List<ReportDimension> dimensions,
+                                                     int[] radix) {
+        List<LongObjectHashMap<long[]>> partials = IntStream.range(0, chunks(snapshot)).parallel()
+                .mapToObj(chunk -> {
+                    LongObjectHashMap<long[]> local = new LongObjectHashMap<>(64);
+                    int end = Math.min(snapshot.size(), (chunk + 1) * CHUNK_ROWS);
+                    for (int row = chunk * CHUNK_ROWS; row < end; row++) {
+                        // Ключ 0 в таблице зарезервирован, поэтому номер сочетания сдвигается на 1
+                        long key = cell(snapshot, dimensions, radix, row) + 1;
+                        long[] counter = local.get(key);
+                        if (counter == null) {
+                            local.put(key, new long[]{key, 1});
+                        } else {
+                            counter[1]++;
+                        }
+                    }
+                    return local;
+                })
+                .collect(Collectors.toList());
+
+        LongObjectHashMap<long[]> merged = new LongObjectHashMap<>(64);
+        for (LongObjectHashMap<long[]> partial : partials) {
+            partial.forEachValue(counter -> {
+                long[] total = merged.get(counter[0]);
+                if (total == null) {
+                    merged.put(counter[0], counter);
+                } else {
+                    total[1] += counter[1];
+                }
+            });
+        }
+
+        List<PivotReport.Row> rows = new ArrayList<>(merged.size());
+        merged.forEachValue(counter ->
+                rows.add(new PivotReport.Row(labels(snapshot, dimensions, radix, counter[0] - 1), counter[1])));
+        return rows;
+    }
+
+    /**
+     * Номер сочетания в смешанной системе счисления: первый разрез - младший разряд
+     */
+    private static long cell(RegistrationColumns snapshot, List<ReportDimension> dimensions, int[] radix, int row) {
+        long cell = 0;
+        for (int i = radix.length - 1; i >= 0; i--) {
+            cell = cell * radix[i] + snapshot.code(dimensions.get(i), row);
+        }
+        return cell;
+    }
+
+    private static List<String> labels(RegistrationColumns snapshot, List<ReportDimension> dimensions,
+                                       int[] radix, long cell) {
+        List<String> labels = new ArrayList<>(radix.length);
+        for (int i = 0; i < radix.length; i++) {
+            labels.add(snapshot.label(dimensions.get(i), (int) (cell % radix[i])));
+            cell /= radix[i];
+        }
+        return labels;
+    }
+
+    private static int chunks(RegistrationColumns snapshot) {
+        return (snapshot.size() + CHUNK_ROWS - 1) / CHUNK_ROWS;
+    }
+
+    /**
+     * Актуальный снимок: при первом обращении строится целиком, потом догружается, если данные менялись
+     */
+    synchronized RegistrationColumns current() {
+        if (columns == null) {
+            rebuild();
+        } else if (dataVersion.current() != columnsVersion) {
+            refresh();
+        }
+        return columns;
+    }
+
+    /**
+     * Периодическая полная пересборка; пока к отчётам не обращались, снимок не строится
+     */
+    @Scheduled(fixedDelayString = "${app.reports.rebuild-interval-ms:3600000}")
+    public synchronized void rebuildIfUsed() {
+        if (columns != null) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        long version = dataVersion.current();
+        List<RegistrationColumns.Row> rows = replicaReads.read(() -> jdbcTemplate.query(SELECT, ROW_MAPPER));
+        install(RegistrationColumns.EMPTY.apply(rows, LocalDate.now()), rows, null, version);
+        log.info("Report snapshot built: {} registrations in {} ms",
+                columns.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void refresh() {
+        long version = dataVersion.current();
+        List<RegistrationColumns.Row> rows;
+        if (watermark == null) {
+            rows = replicaReads.read(() -> jdbcTemplate.query(SELECT, ROW_MAPPER));
+        } else {
+            Timestamp since = Timestamp.valueOf(watermark.minusMinutes(DELTA_OVERLAP_MINUTES));
+            rows = replicaReads.read(() -> jdbcTemplate.query(SELECT_CHANGED, ROW_MAPPER, since, since));
+        }
+        install(columns.apply(rows, LocalDate.now()), rows, watermark, version);
+        log.debug("Report snapshot refreshed with {} changed registrations", rows.size());
+    }
+
+    private void install(RegistrationColumns next, List<RegistrationColumns.Row> rows,
+                         LocalDateTime previousWatermark, long version) {
+        LocalDateTime latest = previousWatermark;
+        for (RegistrationColumns.Row row : rows) {
+            LocalDateTime changed = row.latestChange();
+            if (changed != null && (latest == null || changed.isAfter(latest))) {
+                latest = changed;
+            }
+        }
+        columns = next;
+        watermark = latest;
+        columnsVersion = version;
+        asOf = LocalDateTime.now();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,68 @@
+package com.teensconf.service;
+
+import com.teensconf.util.WeightedTtlCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Кратковременный кэш сериализованных ответов админских эндпоинтов на чтение.
+ * Запись действительна только для той версии {@link DataVersion}, при которой построена,
+ * поэтому после любой записи в базу устаревший ответ не отдаётся.
+ */
+@Component
+public class ResponseCache {
+
+    private final WeightedTtlCache<Versioned> cache;
+
+    public ResponseCache(@Value("${app.response-cache.max-bytes:8388608}") long maxWeightBytes,
+                         @Value("${app.response-cache.ttl-seconds:30}") long ttlSeconds,
+                         MeterRegistry meterRegistry) {
+        this.cache = new WeightedTtlCache<>("admin.response.cache", maxWeightBytes, ttlSeconds,
+                versioned -> versioned.response.getBody().length, meterRegistry);
+    }
+
+    /**
+     * @return сохранённый ответ или null, если его нет, он устарел или построен при другой версии данных
+     */
+    public CachedResponse get(String key, long version) {
+        Versioned versioned = cache.get(key, entry -> entry.version == version);
+        return versioned != null ? versioned.response : null;
+    }
+
+    public void put(String key, long version, CachedResponse response) {
+        cache.put(key, new Versioned(response, version));
+    }
+
+    public long weight() {
+        return cache.weight();
+    }
+
+    public static final class CachedResponse {
+        private final String contentType;
+        private final byte[] body;
+
+        public CachedResponse(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private static final class Versioned {
+        private final CachedResponse response;
+        private final long version;
+
+        private Versioned(CachedResponse response, long version) {
+            this.response = response;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.RosterRow;
+import com.teensconf.dto.RosterSnapshot;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.RosterSnapshotFormat;
+import com.teensconf.util.RosterSnapshotWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Офлайн-снимок оплаченных регистраций для станций на входе.
+ * Версия снимка - самое позднее время оплаты или прохода среди записей, дельта от версии
+ * содержит все записи, изменившиеся начиная с неё.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RosterSnapshotService {
+
+    /**
+     * Отметки о проходе пишутся в базу пакетами с задержкой ({@link CheckInService}),
+     * поэтому дельта захватывает немного времени до запрошенной версии
+     */
+    private static final long DELTA_OVERLAP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final RegistrationRepository registrationRepository;
+
+    @Transactional(readOnly = true)
+    public RosterSnapshot build(Long sinceVersion) {
+        boolean delta = sinceVersion != null;
+        List<RosterRow> rows = delta
+                ? registrationRepository.findRosterSnapshotChangedSince(
+                        toDateTime(Math.max(0, sinceVersion - DELTA_OVERLAP_MILLIS)))
+                : registrationRepository.findRosterSnapshot();
+
+        long version = delta ? sinceVersion : 0;
+        RosterSnapshotWriter writer = new RosterSnapshotWriter();
+        for (RosterRow row : rows) {
+            long completedAt = toMillis(row.getRegistrationCompletedAt());
+            long checkedInAt = toMillis(row.getCheckedInAt());
+            version = Math.max(version, Math.max(completedAt, checkedInAt));
+
+            int flags = 0;
+            if (Boolean.TRUE.equals(row.getNeedAccommodation())) {
+                flags |= RosterSnapshotFormat.RECORD_ACCOMMODATION;
+            }
+            if (Boolean.TRUE.equals(row.getConsentUnder14())) {
+                flags |= RosterSnapshotFormat.RECORD_UNDER_14;
+            }
+            if (row.getCheckedInAt() != null) {
+                flags |= RosterSnapshotFormat.RECORD_CHECKED_IN;
+            }
+            writer.add(row.getId(), row.getFirstName(), row.getLastName(), row.getRole(), row.getCity(),
+                    flags, checkedInAt);
+        }
+
+        byte[] content = writer.write(version, delta ? sinceVersion : 0, delta, System.currentTimeMillis());
+        log.info("Roster snapshot built: {} records, {} bytes, version {}{}",
+                rows.size(), content.length, version, delta ? " (delta since " + sinceVersion + ")" : "");
+        return new RosterSnapshot(content, version, rows.size(), delta);
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,173 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.Registration;
+import com.teensconf.util.Base45;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Билет участника в QR-коде: {@code TINS:<Base45>}.
+ * Двоичная часть - версия формата (1 байт), id регистрации (4 байта),
+ * время выдачи в секундах (4 байта), флаги (1 байт) и первые 8 байт HMAC-SHA256 от всего этого.
+ * Сканер на входе проверяет подпись по общему ключу без обращения к базе.
+ */
+@Slf4j
+@Component
+public class TicketCodec {
+
+    public static final String PREFIX = "TINS:";
+
+    public static final int FLAG_PAID = 1;
+    public static final int FLAG_ACCOMMODATION = 1 << 1;
+    public static final int FLAG_UNDER_14 = 1 << 2;
+
+    private static final byte VERSION = 1;
+    private static final int BODY_LENGTH = 1 + 4 + 4 + 1;
+    private static final int SIGNATURE_LENGTH = 8;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+
+    @Autowired
+    public TicketCodec(@Value("${app.ticket.secret:}") String secret, Environment environment) {
+        this(secret, environment.acceptsProfiles(Profiles.of("dev", "test")));
+    }
+
+    public TicketCodec(String secret) {
+        this(secret, false);
+    }
+
+    /**
+     * Без секрета билеты подписываются случайным ключом и после перезапуска или на другом узле
+     * не проходят проверку, поэтому так можно запускаться только в профилях dev и test
+     */
+    private TicketCodec(String secret, boolean allowRandomKey) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            if (!allowRandomKey) {
+                throw new IllegalStateException("app.ticket.secret is not set: tickets must be signed with a shared key");
+            }
+            log.warn("app.ticket.secret is not set, using a random key: tickets will not survive a restart");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Время выдачи берётся из момента завершения регистрации, поэтому для одной
+     * и той же регистрации билет всегда одинаковый и его можно кэшировать.
+     */
+    public String issue(Registration registration) {
+        LocalDateTime issuedAt = registration.getRegistrationCompletedAt() != null
+                ? registration.getRegistrationCompletedAt()
+                : registration.getRegistrationCreatedAt();
+        long epochSeconds = issuedAt != null
+                ? issuedAt.atZone(ZONE).toEpochSecond()
+                : Instant.now().getEpochSecond();
+        return encode(registration.getId(), epochSeconds, flagsOf(registration));
+    }
+
+    public String encode(long registrationId, long issuedAtEpochSeconds, int flags) {
+        if (registrationId < 0 || registrationId > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Registration id out of range: " + registrationId);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BODY_LENGTH + SIGNATURE_LENGTH);
+        buffer.put(VERSION);
+        buffer.putInt((int) registrationId);
+        buffer.putInt((int) issuedAtEpochSeconds);
+        buffer.put((byte) flags);
+        buffer.put(sign(buffer.array(), BODY_LENGTH), 0, SIGNATURE_LENGTH);
+        return PREFIX + Base45.encode(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException если билет повреждён или подпись не совпадает
+     */
+    public Ticket decode(String payload) {
+        if (payload == null || !payload.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Неизвестный формат билета");
+        }
+        byte[] data = Base45.decode(payload.substring(PREFIX.length()));
+        if (data.length != BODY_LENGTH + SIGNATURE_LENGTH || data[0] != VERSION) {
+            throw new IllegalArgumentException("Неизвестный формат билета");
+        }
+
+        byte[] expected = Arrays.copyOf(sign(data, BODY_LENGTH), SIGNATURE_LENGTH);
+        byte[] actual = Arrays.copyOfRange(data, BODY_LENGTH, data.length);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new IllegalArgumentException("Подпись билета недействительна");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, BODY_LENGTH - 1);
+        long registrationId = Integer.toUnsignedLong(buffer.getInt());
+        long issuedAt = Integer.toUnsignedLong(buffer.getInt());
+        int flags = buffer.get() & 0xFF;
+        return new Ticket(registrationId, Instant.ofEpochSecond(issuedAt), flags);
+    }
+
+    private static int flagsOf(Registration registration) {
+        int flags = 0;
+        if (registration.getRegistrationCompletedAt() != null) {
+            flags |= FLAG_PAID;
+        }
+        if (Boolean.TRUE.equals(registration.getNeedAccommodation())) {
+            flags |= FLAG_ACCOMMODATION;
+        }
+        if (Boolean.TRUE.equals(registration.getConsentUnder14())) {
+            flags |= FLAG_UNDER_14;
+        }
+        return flags;
+    }
+
+    private byte[] sign(byte[] data, int length) {
+        Mac instance = mac.get();
+        instance.update(data, 0, length);
+        return instance.doFinal();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Ticket {
+        private final long registrationId;
+        private final Instant issuedAt;
+        private final int flags;
+
+        public boolean hasFlag(int flag) {
+            return (flags & flag) != 0;
+        }
+    }
+}
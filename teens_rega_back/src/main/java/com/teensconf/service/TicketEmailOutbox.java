@@ -0,0 +1,95 @@
+package com.teensconf.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Учёт доставки писем с билетами в таблице регистраций.
+ * Очередь {@link EmailDispatcher} живёт только в памяти, поэтому письмо, не ушедшее до остановки
+ * или падения узла, остаётся в базе без отметки о доставке и отправляется повторно.
+ * Постановка в очередь - условный UPDATE: одно и то же письмо в очереди держит только один узел,
+ * пока не истечёт {@code app.mail.ticket-resend-after-minutes}.
+ */
+@Slf4j
+@Service
+public class TicketEmailOutbox {
+
+    private static final String PENDING = "registration_completed_at IS NOT NULL "
+            + "AND ticket_email_sent_at IS NULL AND ticket_email_failed_at IS NULL "
+            + "AND (ticket_email_queued_at IS NULL OR ticket_email_queued_at < ?)";
+
+    private static final String CLAIM =
+            "UPDATE registrations SET ticket_email_queued_at = ? WHERE id = ? AND " + PENDING;
+    private static final String SELECT_UNDELIVERED =
+            "SELECT id FROM registrations WHERE " + PENDING + " ORDER BY id LIMIT ?";
+    private static final String MARK_QUEUED =
+            "UPDATE registrations SET ticket_email_queued_at = ? WHERE id = ? AND ticket_email_sent_at IS NULL";
+    private static final String MARK_SENT =
+            "UPDATE registrations SET ticket_email_sent_at = ? WHERE id = ?";
+    private static final String MARK_FAILED =
+            "UPDATE registrations SET ticket_email_failed_at = ? WHERE id = ? AND ticket_email_sent_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration resendAfter;
+
+    public TicketEmailOutbox(JdbcTemplate jdbcTemplate,
+                             @Value("${app.mail.ticket-resend-after-minutes:15}") long resendAfterMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.resendAfter = Duration.ofMinutes(resendAfterMinutes);
+    }
+
+    /**
+     * Забирает письмо с билетом этой регистрации себе
+     *
+     * @return false, если билет уже доставлен, отклонён или стоит в очереди другого узла
+     */
+    public boolean claim(long registrationId) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(CLAIM, Timestamp.valueOf(now), registrationId, staleBefore(now)) > 0;
+    }
+
+    /**
+     * Регистрации, письмо с билетом которым так и не ушло: узел остановился, не успев его отправить
+     */
+    public List<Long> findUndelivered(int limit) {
+        return jdbcTemplate.queryForList(SELECT_UNDELIVERED, Long.class, staleBefore(LocalDateTime.now()), limit);
+    }
+
+    /**
+     * Письмо всё ещё в очереди этого узла (повтор после временного отказа) - другие узлы его не трогают
+     */
+    public void markQueued(long registrationId) {
+        update(MARK_QUEUED, registrationId);
+    }
+
+    public void markSent(long registrationId) {
+        update(MARK_SENT, registrationId);
+    }
+
+    /**
+     * Провайдер отклонил письмо окончательно (например, адреса нет) - повторно не отправляем
+     */
+    public void markFailed(long registrationId) {
+        update(MARK_FAILED, registrationId);
+    }
+
+    private void update(String sql, long registrationId) {
+        try {
+            jdbcTemplate.update(sql, Timestamp.valueOf(LocalDateTime.now()), registrationId);
+        } catch (DataAccessException e) {
+            log.error("Could not record ticket email state for registration {}: {}", registrationId, e.getMessage());
+        }
+    }
+
+    private Timestamp staleBefore(LocalDateTime now) {
+        return Timestamp.valueOf(now.minus(resendAfter));
+    }
+}
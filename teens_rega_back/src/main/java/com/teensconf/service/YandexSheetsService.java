@@ -1,5 +1,6 @@
 package com.teensconf.service;
 
+import com.teensconf.config.ReplicaReads;
 import com.teensconf.entity.PaymentReceipt;
 import com.teensconf.entity.Registration;
 import com.teensconf.repository.RegistrationRepository;
@@ -22,11 +23,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @Slf4j
 @Service
@@ -36,6 +33,8 @@ public class YandexSheetsService {
     private final RestTemplate restTemplate;
     private final RegistrationRepository registrationRepository;
     private final PaymentReceiptRepository paymentReceiptRepository; // Добавляем репозиторий для сохранения статуса
+    private final ReceiptStorage receiptStorage;
+    private final ReplicaReads replicaReads;
 
     @Value("${yandex.sheets.access-token}")
     private String accessToken;
@@ -52,7 +51,7 @@ public class YandexSheetsService {
     @Scheduled(fixedDelay = 300000, initialDelay = 10000)
     public void uploadRegistrationsToDisk() {
         try {
-            List<Registration> registrations = registrationRepository.findAll();
+            List<Registration> registrations = replicaReads.read(registrationRepository::findAll);
 
             if (uploadReceiptsEnabled) {
                 uploadReceiptsToDisk(registrations);
@@ -101,7 +100,7 @@ public class YandexSheetsService {
 
             byte[] fileContent = Files.readAllBytes(filePath);
 
-            String filename = generateReceiptFileName(registration, receipt.getFileName());
+            String filename = receiptStorage.aliasFor(registration, receipt.getContentHash());
             String diskPath = receiptsFolder + "/" + filename;
 
             boolean uploaded = uploadFileWithRetry(diskPath, fileContent);
@@ -122,74 +121,6 @@ public class YandexSheetsService {
         return false;
     }
 
-    /**
-     * Генерация имени файла в том же формате, что и в PaymentService
-     */
-    private String generateReceiptFileName(Registration registration, String originalFileName) {
-        String firstNameTranslit = transliterate(registration.getFirstName());
-        String lastNameTranslit = transliterate(registration.getLastName());
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-
-        String fileExtension = ".pdf"; // По умолчанию для чеков
-        if (originalFileName != null) {
-            int lastDotIndex = originalFileName.lastIndexOf(".");
-            if (lastDotIndex > 0) {
-                fileExtension = originalFileName.substring(lastDotIndex);
-            }
-        }
-
-        return String.format("%d_%s_%s_%s%s",
-                registration.getId(),
-                firstNameTranslit,
-                lastNameTranslit,
-                timestamp,
-                fileExtension.toLowerCase());
-    }
-
-    /**
-     * Транслитерация кириллицы в латиницу
-     */
-    private String transliterate(String text) {
-        if (text == null) return "";
-
-        Map<Character, String> translitMap = new HashMap<>();
-        translitMap.put('а', "a"); translitMap.put('б', "b"); translitMap.put('в', "v");
-        translitMap.put('г', "g"); translitMap.put('д', "d"); translitMap.put('е', "e");
-        translitMap.put('ё', "e"); translitMap.put('ж', "zh"); translitMap.put('з', "z");
-        translitMap.put('и', "i"); translitMap.put('й', "y"); translitMap.put('к', "k");
-        translitMap.put('л', "l"); translitMap.put('м', "m"); translitMap.put('н', "n");
-        translitMap.put('о', "o"); translitMap.put('п', "p"); translitMap.put('р', "r");
-        translitMap.put('с', "s"); translitMap.put('т', "t"); translitMap.put('у', "u");
-        translitMap.put('ф', "f"); translitMap.put('х', "h"); translitMap.put('ц', "ts");
-        translitMap.put('ч', "ch"); translitMap.put('ш', "sh"); translitMap.put('щ', "sch");
-        translitMap.put('ы', "y"); translitMap.put('э', "e"); translitMap.put('ю', "yu");
-        translitMap.put('я', "ya");
-        translitMap.put('А', "A"); translitMap.put('Б', "B"); translitMap.put('В', "V");
-        translitMap.put('Г', "G"); translitMap.put('Д', "D"); translitMap.put('Е', "E");
-        translitMap.put('Ё', "E"); translitMap.put('Ж', "Zh"); translitMap.put('З', "Z");
-        translitMap.put('И', "I"); translitMap.put('Й', "Y"); translitMap.put('К', "K");
-        translitMap.put('Л', "L"); translitMap.put('М', "M"); translitMap.put('Н', "N");
-        translitMap.put('О', "O"); translitMap.put('П', "P"); translitMap.put('Р', "R");
-        translitMap.put('С', "S"); translitMap.put('Т', "T"); translitMap.put('У', "U");
-        translitMap.put('Ф', "F"); translitMap.put('Х', "H"); translitMap.put('Ц', "Ts");
-        translitMap.put('Ч', "Ch"); translitMap.put('Ш', "Sh"); translitMap.put('Щ', "Sch");
-        translitMap.put('Ы', "Y"); translitMap.put('Э', "E"); translitMap.put('Ю', "Yu");
-        translitMap.put('Я', "Ya");
-
-        StringBuilder result = new StringBuilder();
-        for (char c : text.toCharArray()) {
-            if (translitMap.containsKey(c)) {
-                result.append(translitMap.get(c));
-            } else if (Character.isLetterOrDigit(c)) {
-                result.append(c);
-            } else {
-                result.append('_');
-            }
-        }
-
-        return result.toString().replaceAll("_+", "_").replaceAll("^_|_$", "");
-    }
-
     private String getFilePublicUrl(String diskPath) {
         try {
             publishFile(diskPath);
@@ -0,0 +1,75 @@
+package com.teensconf.util;
+
+import java.util.Arrays;
+
+/**
+ * Base45 (RFC 9285): алфавит совпадает с алфавитно-цифровым режимом QR-кода,
+ * поэтому двоичные данные кодируются в QR плотнее, чем через Base64.
+ */
+public final class Base45 {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:".toCharArray();
+    private static final int[] INDEX = new int[128];
+
+    static {
+        Arrays.fill(INDEX, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            INDEX[ALPHABET[i]] = i;
+        }
+    }
+
+    private Base45() {
+    }
+
+    public static String encode(byte[] data) {
+        StringBuilder sb = new StringBuilder((data.length / 2) * 3 + 2);
+        int i = 0;
+        for (; i + 1 < data.length; i += 2) {
+            int n = ((data[i] & 0xFF) << 8) | (data[i + 1] & 0xFF);
+            sb.append(ALPHABET[n % 45]);
+            sb.append(ALPHABET[(n / 45) % 45]);
+            sb.append(ALPHABET[n / 2025]);
+        }
+        if (i < data.length) {
+            int n = data[i] & 0xFF;
+            sb.append(ALPHABET[n % 45]);
+            sb.append(ALPHABET[n / 45]);
+        }
+        return sb.toString();
+    }
+
+    public static byte[] decode(String text) {
+        int length = text.length();
+        if (length % 3 == 1) {
+            throw new IllegalArgumentException("Invalid Base45 length: " + length);
+        }
+        byte[] out = new byte[(length / 3) * 2 + (length % 3 == 2 ? 1 : 0)];
+        int o = 0;
+        int i = 0;
+        for (; i + 2 < length; i += 3) {
+            int n = digit(text, i) + digit(text, i + 1) * 45 + digit(text, i + 2) * 2025;
+            if (n > 0xFFFF) {
+                throw new IllegalArgumentException("Invalid Base45 triplet at " + i);
+            }
+            out[o++] = (byte) (n >>> 8);
+            out[o++] = (byte) n;
+        }
+        if (i < length) {
+            int n = digit(text, i) + digit(text, i + 1) * 45;
+            if (n > 0xFF) {
+                throw new IllegalArgumentException("Invalid Base45 pair at " + i);
+            }
+            out[o] = (byte) n;
+        }
+        return out;
+    }
+
+    private static int digit(String text, int position) {
+        char c = text.charAt(position);
+        int value = c < INDEX.length ? INDEX[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid Base45 character '" + c + "' at " + position);
+        }
+        return value;
+    }
+}
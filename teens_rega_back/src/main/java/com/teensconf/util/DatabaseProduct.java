@@ -0,0 +1,18 @@
+package com.teensconf.util;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Определение СУБД для запросов, которые есть только в PostgreSQL (в тестах работает H2)
+ */
+public final class DatabaseProduct {
+
+    private DatabaseProduct() {
+    }
+
+    public static boolean isPostgres(JdbcTemplate jdbcTemplate) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+}
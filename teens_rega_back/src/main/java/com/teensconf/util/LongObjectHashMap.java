@@ -0,0 +1,142 @@
+package com.teensconf.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Хэш-таблица с ключами {@code long} без упаковки в {@link Long}: открытая адресация,
+ * линейное пробирование, ключи и значения в двух параллельных массивах.
+ * Ключ 0 зарезервирован под пустую ячейку (id из базы всегда положительные).
+ * Не потокобезопасна: заполняется одним потоком и публикуется через volatile-ссылку,
+ * после чего только читается.
+ */
+public final class LongObjectHashMap<V> {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        checkKey(key);
+        int index = index(key);
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return (V) values[index];
+            }
+            if (current == EMPTY) {
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        checkKey(key);
+        int index = index(key);
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            if (current == EMPTY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > threshold) {
+                    rehash(keys.length << 1);
+                }
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Копия с запасом места под {@code additional} новых ключей
+     */
+    public LongObjectHashMap<V> copy(int additional) {
+        LongObjectHashMap<V> copy = new LongObjectHashMap<>(size + additional);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                copy.insertNew(keys[i], values[i]);
+            }
+        }
+        return copy;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insertNew(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Вставка ключа, которого заведомо нет в таблице, без проверки порога
+     */
+    private void insertNew(long key, Object value) {
+        int index = index(key);
+        while (keys[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = 0;
+        // Заполнение не больше половины: цепочки пробирования остаются короткими
+        threshold = capacity >>> 1;
+    }
+
+    private int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity >>> 1 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+}
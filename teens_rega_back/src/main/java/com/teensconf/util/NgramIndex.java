@@ -0,0 +1,212 @@
+package com.teensconf.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Триграммный индекс в памяти для нечёткого поиска, устроенный как pg_trgm:
+ * текст режется на слова, каждое слово дополняется пробелами ("  ив", " ив", "ива", ..., "ов ")
+ * и раскладывается на триграммы. Поэтому начало слова находится уже по двум буквам,
+ * а середина номера телефона - по любым трём цифрам.
+ * <p>
+ * Ранг - доля триграмм запроса, найденных в документе (как word_similarity), плюс бонусы
+ * за точное вхождение и за совпадение слова целиком.
+ * Потокобезопасен: чтение под общей блокировкой, запись под исключительной.
+ */
+public final class NgramIndex {
+
+    /** Порог похожести по умолчанию в pg_trgm */
+    public static final double DEFAULT_THRESHOLD = 0.3;
+
+    private static final Pattern PHONE_SEPARATORS = Pattern.compile("(?<=\\d)[\\s()\\-]+(?=\\d)|[+(](?=\\d)");
+    /** Поля не склеиваются между собой при нормализации телефонов */
+    private static final String FIELD_SEPARATOR = " | ";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IntList> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+
+    /**
+     * Добавляет документ или заменяет ранее добавленный с тем же id
+     */
+    public void put(long id, String... fields) {
+        String text = normalize(String.join(FIELD_SEPARATOR, nonNull(fields)));
+        Set<String> trigrams = trigrams(text, true);
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(id);
+            if (existing != null) {
+                // Старая версия остаётся в списках, но помечается удалённой и отфильтровывается при поиске
+                documents.get(existing).removed = true;
+            }
+            int ordinal = documents.size();
+            documents.add(new Document(id, text));
+            ordinals.put(id, ordinal);
+            for (String trigram : trigrams) {
+                postings.computeIfAbsent(trigram, key -> new IntList()).add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Id документов, похожих на запрос, по убыванию ранга (при равенстве - новые, т.е. с большим id, выше)
+     */
+    public List<Hit> search(String query, int limit, double threshold) {
+        String normalized = normalize(query).trim();
+        // Запрос - начало слова, поэтому триграмма конца слова ("ов ") для него не строится
+        Set<String> queryTrigrams = trigrams(normalized, false);
+        if (queryTrigrams.isEmpty()) {
+            return List.of();
+        }
+        // Концы слов учитываются только в ранге: "петров" выше "петровой"
+        Set<String> wordEnds = trigrams(normalized, true);
+        wordEnds.removeAll(queryTrigrams);
+
+        lock.readLock().lock();
+        try {
+            int[] counts = count(queryTrigrams);
+            int[] wholeWords = count(wordEnds);
+
+            List<Hit> hits = new ArrayList<>();
+            for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+                if (counts[ordinal] == 0) {
+                    continue;
+                }
+                Document document = documents.get(ordinal);
+                if (document.removed) {
+                    continue;
+                }
+                double score = (double) counts[ordinal] / queryTrigrams.size();
+                boolean contains = document.text.contains(normalized);
+                if (score < threshold && !contains) {
+                    continue;
+                }
+                if (contains) {
+                    score += 1;
+                }
+                score += 0.5 * wholeWords[ordinal] / wordEnds.size();
+                hits.add(new Hit(document.id, score));
+            }
+            hits.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : Long.compare(b.id, a.id));
+            return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] count(Set<String> trigrams) {
+        int[] counts = new int[documents.size()];
+        for (String trigram : trigrams) {
+            IntList list = postings.get(trigram);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                counts[list.values[i]]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Нижний регистр без ё; разделители внутри номеров телефонов убираются,
+     * чтобы "+7 (926) 123" находило "79261234567"
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        return PHONE_SEPARATORS.matcher(lower).replaceAll("");
+    }
+
+    static Set<String> trigrams(String text, boolean padEnd) {
+        Set<String> result = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String padded = "  " + text.substring(start, i) + (padEnd ? " " : "");
+                for (int j = 0; j + 3 <= padded.length(); j++) {
+                    result.add(padded.substring(j, j + 3));
+                }
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static String[] nonNull(String[] fields) {
+        String[] result = Arrays.copyOf(fields, fields.length);
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] == null) {
+                result[i] = "";
+            }
+        }
+        return result;
+    }
+
+    public static final class Hit {
+        private final long id;
+        private final double score;
+
+        public Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private static final class Document {
+        private final long id;
+        private final String text;
+        private boolean removed;
+
+        private Document(long id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
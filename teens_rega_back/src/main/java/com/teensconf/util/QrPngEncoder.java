@@ -0,0 +1,116 @@
+package com.teensconf.util;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Кодирует {@link BitMatrix} в PNG с 1-битной палитрой напрямую, без AWT и ImageIO.
+ * Каждый модуль матрицы растягивается до квадрата {@code scale x scale} пикселей.
+ */
+public final class QrPngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int BIT_DEPTH = 1;
+    private static final int COLOR_TYPE_PALETTE = 3;
+    /** Индекс 0 - белый фон, индекс 1 - чёрный модуль */
+    private static final byte[] PALETTE = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, 0};
+
+    private QrPngEncoder() {
+    }
+
+    public static byte[] encode(BitMatrix matrix, int scale) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Scale must be positive: " + scale);
+        }
+        int modulesWide = matrix.getWidth();
+        int modulesHigh = matrix.getHeight();
+        int width = modulesWide * scale;
+        int height = modulesHigh * scale;
+        int rowBytes = (width + 7) >>> 3;
+
+        // Строка PNG: байт фильтра (0 - без фильтра) и упакованные по 8 пикселей биты
+        byte[] raw = new byte[(rowBytes + 1) * height];
+        byte[] row = new byte[rowBytes];
+        int offset = 0;
+        for (int y = 0; y < modulesHigh; y++) {
+            Arrays.fill(row, (byte) 0);
+            for (int x = 0; x < modulesWide; x++) {
+                if (!matrix.get(x, y)) {
+                    continue;
+                }
+                int start = x * scale;
+                for (int px = start; px < start + scale; px++) {
+                    row[px >>> 3] |= (byte) (0x80 >>> (px & 7));
+                }
+            }
+            for (int repeat = 0; repeat < scale; repeat++) {
+                raw[offset++] = 0;
+                System.arraycopy(row, 0, raw, offset, rowBytes);
+                offset += rowBytes;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 + raw.length / 8);
+        out.write(SIGNATURE, 0, SIGNATURE.length);
+        writeChunk(out, "IHDR", header(width, height));
+        writeChunk(out, "PLTE", PALETTE);
+        writeChunk(out, "IDAT", deflate(raw));
+        writeChunk(out, "IEND", new byte[0]);
+        return out.toByteArray();
+    }
+
+    private static byte[] header(int width, int height) {
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = BIT_DEPTH;
+        header[9] = COLOR_TYPE_PALETTE;
+        // compression, filter и interlace - нули
+        return header;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeChunk(ByteArrayOutputStream out, String type, byte[] data) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] length = new byte[4];
+        putInt(length, 0, data.length);
+        out.write(length, 0, 4);
+        out.write(typeBytes, 0, 4);
+        out.write(data, 0, data.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        byte[] checksum = new byte[4];
+        putInt(checksum, 0, (int) crc.getValue());
+        out.write(checksum, 0, 4);
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
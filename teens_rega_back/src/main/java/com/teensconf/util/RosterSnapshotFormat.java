@@ -0,0 +1,85 @@
+package com.teensconf.util;
+
+import java.util.Locale;
+
+/**
+ * Двоичный формат офлайн-снимка списка участников (версия 1), все числа big-endian.
+ *
+ * <pre>
+ * Заголовок, 64 байта:
+ *   0  magic "TINSROST"        8
+ *   8  версия формата          2
+ *  10  флаги (1 - дельта)      2
+ *  12  число записей           4
+ *  16  версия снимка           8   максимум из времени оплаты/прохода, мс
+ *  24  базовая версия          8   для дельты - версия, от которой она считается
+ *  32  время создания, мс      8
+ *  40  смещение индекса id     4   long[n], id по возрастанию
+ *  44  смещение записей        4   n записей по RECORD_SIZE в том же порядке
+ *  48  смещение индекса имён   4   int[n], номера записей по возрастанию ключа поиска
+ *  52  смещение строк          4
+ *  56  длина таблицы строк     4
+ *  60  CRC32 всего после заголовка 4
+ *
+ * Запись, 40 байт:
+ *   0  id                      8
+ *   8  имя                     4   смещение строки в таблице строк
+ *  12  фамилия                 4
+ *  16  роль                    4
+ *  20  город                   4
+ *  24  ключ поиска             4   "фамилия имя" в нижнем регистре
+ *  28  флаги                   1   + 3 байта выравнивания
+ *  32  время прохода, мс       8   0 - ещё не проходил
+ *
+ * Строка: длина в байтах (2) и UTF-8. Одинаковые строки хранятся один раз.
+ * </pre>
+ */
+public final class RosterSnapshotFormat {
+
+    public static final long MAGIC = 0x54494E53524F5354L;
+    public static final short FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 40;
+
+    public static final short FLAG_DELTA = 1;
+
+    public static final int RECORD_ACCOMMODATION = 1;
+    public static final int RECORD_UNDER_14 = 1 << 1;
+    public static final int RECORD_CHECKED_IN = 1 << 2;
+
+    static final int OFFSET_FORMAT_VERSION = 8;
+    static final int OFFSET_FLAGS = 10;
+    static final int OFFSET_COUNT = 12;
+    static final int OFFSET_VERSION = 16;
+    static final int OFFSET_BASE_VERSION = 24;
+    static final int OFFSET_CREATED_AT = 32;
+    static final int OFFSET_ID_INDEX = 40;
+    static final int OFFSET_RECORDS = 44;
+    static final int OFFSET_NAME_INDEX = 48;
+    static final int OFFSET_STRINGS = 52;
+    static final int OFFSET_STRINGS_LENGTH = 56;
+    static final int OFFSET_CRC = 60;
+
+    static final int RECORD_ID = 0;
+    static final int RECORD_FIRST_NAME = 8;
+    static final int RECORD_LAST_NAME = 12;
+    static final int RECORD_ROLE = 16;
+    static final int RECORD_CITY = 20;
+    static final int RECORD_SEARCH_KEY = 24;
+    static final int RECORD_FLAGS = 28;
+    static final int RECORD_CHECKED_IN_AT = 32;
+
+    private RosterSnapshotFormat() {
+    }
+
+    /**
+     * Ключ поиска по имени: регистр и буква ё не учитываются
+     */
+    public static String searchKey(String lastName, String firstName) {
+        return normalize((lastName == null ? "" : lastName.trim()) + " " + (firstName == null ? "" : firstName.trim()));
+    }
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+}
@@ -0,0 +1,228 @@
+package com.teensconf.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.teensconf.util.RosterSnapshotFormat.*;
+
+/**
+ * Чтение снимка списка участников (см. {@link RosterSnapshotFormat}) прямо из отображённого в память файла.
+ * Поиск идёт по индексам в буфере, строки декодируются только у найденных записей.
+ * <p>
+ * Станция на входе хранит полный снимок и последнюю дельту к нему:
+ * запись ищется сначала в дельте, потом в полном снимке.
+ */
+public final class RosterSnapshotReader {
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int idIndexOffset;
+    private final int recordsOffset;
+    private final int nameIndexOffset;
+    private final int stringsOffset;
+
+    private RosterSnapshotReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a roster snapshot");
+        }
+        if (buffer.getShort(OFFSET_FORMAT_VERSION) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported roster snapshot version: " + buffer.getShort(OFFSET_FORMAT_VERSION));
+        }
+        this.count = buffer.getInt(OFFSET_COUNT);
+        this.idIndexOffset = buffer.getInt(OFFSET_ID_INDEX);
+        this.recordsOffset = buffer.getInt(OFFSET_RECORDS);
+        this.nameIndexOffset = buffer.getInt(OFFSET_NAME_INDEX);
+        this.stringsOffset = buffer.getInt(OFFSET_STRINGS);
+
+        int end = stringsOffset + buffer.getInt(OFFSET_STRINGS_LENGTH);
+        if (end != buffer.capacity()) {
+            throw new IllegalArgumentException("Roster snapshot is truncated");
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE).limit(end);
+        crc.update(body);
+        if ((int) crc.getValue() != buffer.getInt(OFFSET_CRC)) {
+            throw new IllegalArgumentException("Roster snapshot checksum mismatch");
+        }
+    }
+
+    public static RosterSnapshotReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Отображение остаётся действительным и после закрытия канала
+            return new RosterSnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static RosterSnapshotReader wrap(byte[] content) {
+        return new RosterSnapshotReader(ByteBuffer.wrap(content));
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isDelta() {
+        return (buffer.getShort(OFFSET_FLAGS) & FLAG_DELTA) != 0;
+    }
+
+    public long getVersion() {
+        return buffer.getLong(OFFSET_VERSION);
+    }
+
+    public long getBaseVersion() {
+        return buffer.getLong(OFFSET_BASE_VERSION);
+    }
+
+    public Instant getCreatedAt() {
+        return Instant.ofEpochMilli(buffer.getLong(OFFSET_CREATED_AT));
+    }
+
+    public Entry get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+        return new Entry(recordsOffset + index * RECORD_SIZE);
+    }
+
+    /**
+     * Двоичный поиск по плотному массиву id
+     */
+    public Entry findById(long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = buffer.getLong(idIndexOffset + mid * 8);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return get(mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Участники, у которых "фамилия имя" начинается с {@code prefix} (без учёта регистра и ё).
+     * Ключи сравниваются как байты UTF-8 прямо в буфере: порядок байтов UTF-8 совпадает с порядком символов.
+     */
+    public List<Entry> findByNamePrefix(String prefix, int limit) {
+        byte[] wanted = RosterSnapshotFormat.normalize(prefix.trim()).getBytes(StandardCharsets.UTF_8);
+
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(recordAtName(mid), wanted) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<Entry> result = new ArrayList<>();
+        for (int i = low; i < count && result.size() < limit; i++) {
+            int record = recordAtName(i);
+            if (!keyStartsWith(record, wanted)) {
+                break;
+            }
+            result.add(new Entry(record));
+        }
+        return result;
+    }
+
+    private int recordAtName(int position) {
+        return recordsOffset + buffer.getInt(nameIndexOffset + position * 4) * RECORD_SIZE;
+    }
+
+    /**
+     * Сравнение ключа записи с префиксом; ключ, начинающийся с префикса, считается не меньше его
+     */
+    private int compareKey(int record, byte[] prefix) {
+        int string = stringsOffset + buffer.getInt(record + RECORD_SEARCH_KEY);
+        int length = buffer.getShort(string) & 0xFFFF;
+        int start = string + 2;
+        int n = Math.min(length, prefix.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(start + i) & 0xFF) - (prefix[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length >= prefix.length ? 0 : -1;
+    }
+
+    private boolean keyStartsWith(int record, byte[] prefix) {
+        return compareKey(record, prefix) == 0;
+    }
+
+    private String string(int reference) {
+        int position = stringsOffset + reference;
+        int length = buffer.getShort(position) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + 2);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Запись снимка: поля читаются из буфера при обращении
+     */
+    public final class Entry {
+        private final int offset;
+
+        private Entry(int offset) {
+            this.offset = offset;
+        }
+
+        public long getId() {
+            return buffer.getLong(offset + RECORD_ID);
+        }
+
+        public String getFirstName() {
+            return string(buffer.getInt(offset + RECORD_FIRST_NAME));
+        }
+
+        public String getLastName() {
+            return string(buffer.getInt(offset + RECORD_LAST_NAME));
+        }
+
+        public String getRole() {
+            return string(buffer.getInt(offset + RECORD_ROLE));
+        }
+
+        public String getCity() {
+            return string(buffer.getInt(offset + RECORD_CITY));
+        }
+
+        public boolean isNeedAccommodation() {
+            return (buffer.get(offset + RECORD_FLAGS) & RECORD_ACCOMMODATION) != 0;
+        }
+
+        public boolean isUnder14() {
+            return (buffer.get(offset + RECORD_FLAGS) & RECORD_UNDER_14) != 0;
+        }
+
+        public boolean isCheckedIn() {
+            return (buffer.get(offset + RECORD_FLAGS) & RECORD_CHECKED_IN) != 0;
+        }
+
+        public Instant getCheckedInAt() {
+            long millis = buffer.getLong(offset + RECORD_CHECKED_IN_AT);
+            return millis == 0 ? null : Instant.ofEpochMilli(millis);
+        }
+    }
+}
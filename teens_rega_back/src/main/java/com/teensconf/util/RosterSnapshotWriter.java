@@ -0,0 +1,157 @@
+package com.teensconf.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.teensconf.util.RosterSnapshotFormat.*;
+
+/**
+ * Сборка снимка списка участников в формате {@link RosterSnapshotFormat}
+ */
+public final class RosterSnapshotWriter {
+
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private final List<Row> rows = new ArrayList<>();
+
+    public RosterSnapshotWriter add(long id, String firstName, String lastName, String role, String city,
+                                    int flags, long checkedInAtMillis) {
+        rows.add(new Row(id, firstName, lastName, role, city, flags, checkedInAtMillis));
+        return this;
+    }
+
+    public byte[] write(long version, long baseVersion, boolean delta, long createdAtMillis) {
+        rows.sort(Comparator.comparingLong(row -> row.id));
+        int count = rows.size();
+
+        StringTable strings = new StringTable();
+        int[][] refs = new int[count][];
+        byte[][] keys = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            Row row = rows.get(i);
+            if (i > 0 && rows.get(i - 1).id == row.id) {
+                throw new IllegalArgumentException("Duplicate registration id " + row.id);
+            }
+            String key = RosterSnapshotFormat.searchKey(row.lastName, row.firstName);
+            keys[i] = truncate(key.getBytes(StandardCharsets.UTF_8));
+            refs[i] = new int[]{
+                    strings.intern(row.firstName),
+                    strings.intern(row.lastName),
+                    strings.intern(row.role),
+                    strings.intern(row.city),
+                    strings.intern(keys[i])
+            };
+        }
+
+        // Индекс имён сортируется побайтово, так же как сравнивает читатель
+        Integer[] byName = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            byName[i] = i;
+        }
+        Arrays.sort(byName, (a, b) -> Arrays.compareUnsigned(keys[a], keys[b]));
+
+        int idIndexOffset = HEADER_SIZE;
+        int recordsOffset = idIndexOffset + count * 8;
+        int nameIndexOffset = recordsOffset + count * RECORD_SIZE;
+        int stringsOffset = nameIndexOffset + count * 4;
+        byte[] stringBytes = strings.toByteArray();
+
+        ByteBuffer buffer = ByteBuffer.allocate(stringsOffset + stringBytes.length);
+        buffer.putLong(0, MAGIC);
+        buffer.putShort(OFFSET_FORMAT_VERSION, FORMAT_VERSION);
+        buffer.putShort(OFFSET_FLAGS, delta ? FLAG_DELTA : 0);
+        buffer.putInt(OFFSET_COUNT, count);
+        buffer.putLong(OFFSET_VERSION, version);
+        buffer.putLong(OFFSET_BASE_VERSION, baseVersion);
+        buffer.putLong(OFFSET_CREATED_AT, createdAtMillis);
+        buffer.putInt(OFFSET_ID_INDEX, idIndexOffset);
+        buffer.putInt(OFFSET_RECORDS, recordsOffset);
+        buffer.putInt(OFFSET_NAME_INDEX, nameIndexOffset);
+        buffer.putInt(OFFSET_STRINGS, stringsOffset);
+        buffer.putInt(OFFSET_STRINGS_LENGTH, stringBytes.length);
+
+        for (int i = 0; i < count; i++) {
+            Row row = rows.get(i);
+            buffer.putLong(idIndexOffset + i * 8, row.id);
+
+            int record = recordsOffset + i * RECORD_SIZE;
+            buffer.putLong(record + RECORD_ID, row.id);
+            buffer.putInt(record + RECORD_FIRST_NAME, refs[i][0]);
+            buffer.putInt(record + RECORD_LAST_NAME, refs[i][1]);
+            buffer.putInt(record + RECORD_ROLE, refs[i][2]);
+            buffer.putInt(record + RECORD_CITY, refs[i][3]);
+            buffer.putInt(record + RECORD_SEARCH_KEY, refs[i][4]);
+            buffer.put(record + RECORD_FLAGS, (byte) row.flags);
+            buffer.putLong(record + RECORD_CHECKED_IN_AT, row.checkedInAtMillis);
+
+            buffer.putInt(nameIndexOffset + i * 4, byName[i]);
+        }
+        buffer.position(stringsOffset);
+        buffer.put(stringBytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+        buffer.putInt(OFFSET_CRC, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static byte[] truncate(byte[] bytes) {
+        return bytes.length <= MAX_STRING_BYTES ? bytes : Arrays.copyOf(bytes, MAX_STRING_BYTES);
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int intern(String value) {
+            return intern(truncate((value == null ? "" : value).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        int intern(byte[] bytes) {
+            String key = new String(bytes, StandardCharsets.ISO_8859_1);
+            Integer existing = offsets.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            int offset = out.size();
+            out.write(bytes.length >>> 8);
+            out.write(bytes.length);
+            out.write(bytes, 0, bytes.length);
+            offsets.put(key, offset);
+            return offset;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Row {
+        private final long id;
+        private final String firstName;
+        private final String lastName;
+        private final String role;
+        private final String city;
+        private final int flags;
+        private final long checkedInAtMillis;
+
+        private Row(long id, String firstName, String lastName, String role, String city,
+                    int flags, long checkedInAtMillis) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.role = role;
+            this.city = city;
+            this.flags = flags;
+            this.checkedInAtMillis = checkedInAtMillis;
+        }
+    }
+}
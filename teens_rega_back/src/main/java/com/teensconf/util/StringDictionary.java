@@ -0,0 +1,55 @@
+package com.teensconf.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Словарь для кодирования строковой колонки: каждое различное значение получает номер по порядку появления.
+ * Колонка хранит номера в {@code int[]}, а сравнение и группировка идут по числам.
+ * Не потокобезопасен: заполняется одним потоком, после публикации только читается.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> codes;
+    private final List<String> values;
+
+    public StringDictionary() {
+        this.codes = new HashMap<>();
+        this.values = new ArrayList<>();
+    }
+
+    private StringDictionary(StringDictionary source) {
+        this.codes = new HashMap<>(source.codes);
+        this.values = new ArrayList<>(source.values);
+    }
+
+    /**
+     * Номер значения; новое значение добавляется в конец словаря
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Независимая копия: номера уже закодированных значений в ней те же
+     */
+    public StringDictionary copy() {
+        return new StringDictionary(this);
+    }
+}
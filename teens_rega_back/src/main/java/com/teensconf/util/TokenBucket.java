@@ -0,0 +1,69 @@
+package com.teensconf.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничитель скорости "ведро с жетонами": {@code ratePerSecond} жетонов в секунду,
+ * не больше {@code burst} накопленных. Потокобезопасен.
+ */
+public final class TokenBucket {
+
+    private final double nanosPerToken;
+    private final double burst;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double ratePerSecond, int burst, LongSupplier nanoClock) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Забирает жетон, если он есть.
+     *
+     * @return 0, если жетон получен, иначе сколько наносекунд ждать до следующего
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) * nanosPerToken));
+    }
+
+    /**
+     * Обнуляет накопленные жетоны: после отказа провайдера не отправляем сразу всю пачку
+     */
+    public synchronized void drain() {
+        refill();
+        tokens = 0;
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed / nanosPerToken);
+            lastRefillNanos = now;
+        }
+    }
+}
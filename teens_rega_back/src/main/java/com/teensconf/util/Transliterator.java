@@ -0,0 +1,60 @@
+package com.teensconf.util;
+
+/**
+ * Транслитерация кириллицы в латиницу для имён файлов.
+ * Таблица строится один раз и индексируется кодом символа.
+ */
+public final class Transliterator {
+
+    private static final char CYRILLIC_FIRST = 'Ѐ';
+    private static final char CYRILLIC_LAST = 'џ';
+
+    private static final String[] TABLE = new String[CYRILLIC_LAST - CYRILLIC_FIRST + 1];
+
+    static {
+        String lower = "абвгдеёжзийклмнопрстуфхцчшщыэюя";
+        String[] latin = {
+                "a", "b", "v", "g", "d", "e", "e", "zh", "z", "i", "y", "k", "l", "m", "n", "o",
+                "p", "r", "s", "t", "u", "f", "h", "ts", "ch", "sh", "sch", "y", "e", "yu", "ya"
+        };
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            String value = latin[i];
+            TABLE[c - CYRILLIC_FIRST] = value;
+            TABLE[Character.toUpperCase(c) - CYRILLIC_FIRST] =
+                    Character.toUpperCase(value.charAt(0)) + value.substring(1);
+        }
+    }
+
+    private Transliterator() {
+    }
+
+    /**
+     * Буквы переводятся в латиницу, прочие символы заменяются на '_',
+     * повторы '_' схлопываются, крайние '_' отбрасываются.
+     */
+    public static String transliterate(String text) {
+        if (text == null) return "";
+
+        StringBuilder result = new StringBuilder(text.length() + 8);
+        boolean pendingUnderscore = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String mapped = c >= CYRILLIC_FIRST && c <= CYRILLIC_LAST ? TABLE[c - CYRILLIC_FIRST] : null;
+            if (mapped == null && !Character.isLetterOrDigit(c)) {
+                pendingUnderscore = result.length() > 0;
+                continue;
+            }
+            if (pendingUnderscore) {
+                result.append('_');
+                pendingUnderscore = false;
+            }
+            if (mapped != null) {
+                result.append(mapped);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.teensconf.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU-кэш в памяти с ограничением по суммарному весу записей и временем жизни записи.
+ * Вес записи - оценка занимаемых байт: накладные расходы, ключ и {@code valueWeigher} от значения.
+ * Метрики: {@code <name>} с тегом result=hit/miss, {@code <name>.evictions}, {@code <name>.size},
+ * {@code <name>.weight.bytes}. Потокобезопасен.
+ */
+public final class WeightedTtlCache<V> {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxWeightBytes;
+    private final long ttlNanos;
+    private final ToLongFunction<V> valueWeigher;
+
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentWeight;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public WeightedTtlCache(String name, long maxWeightBytes, long ttlSeconds,
+                            ToLongFunction<V> valueWeigher, MeterRegistry meterRegistry) {
+        this.maxWeightBytes = maxWeightBytes;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.valueWeigher = valueWeigher;
+
+        this.hits = Counter.builder(name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder(name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder(name + ".evictions")
+                .register(meterRegistry);
+        Gauge.builder(name + ".size", this, WeightedTtlCache::size)
+                .register(meterRegistry);
+        Gauge.builder(name + ".weight.bytes", this, WeightedTtlCache::weight)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return сохранённое значение или null, если записи нет или она устарела
+     */
+    public V get(String key) {
+        return get(key, value -> true);
+    }
+
+    /**
+     * @return сохранённое значение или null, если записи нет, она устарела или не проходит {@code isCurrent};
+     * такая запись удаляется
+     */
+    public synchronized V get(String key, Predicate<? super V> isCurrent) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt >= ttlNanos || !isCurrent.test(entry.value)) {
+            remove(key, entry);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(String key, V value) {
+        long weight = ENTRY_OVERHEAD_BYTES + key.length() * 2L + valueWeigher.applyAsLong(value);
+        if (weight > maxWeightBytes) {
+            return;
+        }
+
+        Entry<V> previous = entries.put(key, new Entry<>(value, weight, System.nanoTime()));
+        if (previous != null) {
+            currentWeight -= previous.weight;
+        }
+        currentWeight += weight;
+
+        evictExpired();
+        Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+        while (currentWeight > maxWeightBytes && it.hasNext()) {
+            Map.Entry<String, Entry<V>> eldest = it.next();
+            currentWeight -= eldest.getValue().weight;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return currentWeight;
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> entry = it.next();
+            if (now - entry.createdAt >= ttlNanos) {
+                currentWeight -= entry.weight;
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(String key, Entry<V> entry) {
+        entries.remove(key);
+        currentWeight -= entry.weight;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long createdAt;
+
+        private Entry(V value, long weight, long createdAt) {
+            this.value = value;
+            this.weight = weight;
+            this.createdAt = createdAt;
+        }
+    }
+}
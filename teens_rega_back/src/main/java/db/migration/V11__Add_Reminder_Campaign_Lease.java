@@ -0,0 +1,32 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Аренда рассылки напоминаний: рассылку ведёт узел, который записал себя в lease_owner,
+ * пока не истёк lease_until (ReminderCampaignService).
+ * Частичный уникальный индекс не даёт запустить вторую рассылку, пока идёт первая; он есть только
+ * в PostgreSQL, в H2 (тесты) ограничение не создаётся.
+ */
+public class V11__Add_Reminder_Campaign_Lease extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE reminder_campaigns ADD lease_owner VARCHAR(64)");
+            statement.execute("ALTER TABLE reminder_campaigns ADD lease_until TIMESTAMP");
+            // Лишние рассылки, запущенные параллельно до появления ограничения, останавливаем
+            statement.execute("UPDATE reminder_campaigns SET status = 'CANCELLED', finished_at = CURRENT_TIMESTAMP "
+                    + "WHERE status = 'RUNNING' AND id <> (SELECT MIN(id) FROM reminder_campaigns WHERE status = 'RUNNING')");
+            if ("PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                statement.execute("CREATE UNIQUE INDEX uq_reminder_campaigns_running ON reminder_campaigns(status) "
+                        + "WHERE status = 'RUNNING'");
+            }
+        }
+    }
+}
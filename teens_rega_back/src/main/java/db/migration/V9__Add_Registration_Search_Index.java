@@ -0,0 +1,44 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Триграммный индекс для поиска в админке. Только для PostgreSQL и только если доступно расширение pg_trgm;
+ * иначе приложение ищет по индексу в памяти (RegistrationSearchService).
+ */
+public class V9__Add_Registration_Search_Index extends BaseJavaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(V9__Add_Registration_Search_Index.class);
+
+    /** Должно совпадать с выражением в RegistrationSearchService, иначе индекс не используется */
+    private static final String SEARCH_DOCUMENT = "translate(lower(last_name || ' ' || first_name || ' ' || email"
+            + " || ' ' || regexp_replace(phone, '[^0-9]', '', 'g') || ' ' || city || ' ' || church), 'ё', 'е')";
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SAVEPOINT pg_trgm");
+            try {
+                statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            } catch (SQLException e) {
+                // Нет прав на расширение - откатываемся к точке сохранения и оставляем поиск в памяти
+                statement.execute("ROLLBACK TO SAVEPOINT pg_trgm");
+                log.warn("pg_trgm is not available, admin search will use the in-memory index: {}", e.getMessage());
+                return;
+            }
+            statement.execute("CREATE INDEX idx_registrations_search_trgm ON registrations USING gin ("
+                    + SEARCH_DOCUMENT + " gin_trgm_ops)");
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- Письмо с билетом: поставлено в очередь, доставлено или окончательно отклонено провайдером.
+-- Завершённые регистрации без отметки о доставке рассылаются повторно (PaymentNotificationListener).
+ALTER TABLE registrations ADD ticket_email_queued_at TIMESTAMP;
+ALTER TABLE registrations ADD ticket_email_sent_at TIMESTAMP;
+ALTER TABLE registrations ADD ticket_email_failed_at TIMESTAMP;
+
+-- Билеты по уже завершённым регистрациям считаем отправленными, чтобы не разослать их второй раз
+UPDATE registrations SET ticket_email_sent_at = registration_completed_at WHERE registration_completed_at IS NOT NULL;
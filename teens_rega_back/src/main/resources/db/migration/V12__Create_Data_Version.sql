@@ -0,0 +1,9 @@
+-- Общая для всех экземпляров версия данных регистраций (DataVersion): увеличивается в транзакции каждой записи
+CREATE TABLE data_version
+(
+    id      INTEGER NOT NULL,
+    version BIGINT  NOT NULL,
+    CONSTRAINT pk_data_version PRIMARY KEY (id)
+);
+
+INSERT INTO data_version (id, version) VALUES (1, 0);
@@ -0,0 +1,2 @@
+ALTER TABLE payment_receipts ADD content_hash VARCHAR(64);
+CREATE INDEX idx_payment_receipts_content_hash ON payment_receipts(content_hash);
@@ -0,0 +1 @@
+ALTER TABLE registrations ADD checked_in_at TIMESTAMP;
@@ -0,0 +1,14 @@
+CREATE TABLE reminder_campaigns
+(
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    status               VARCHAR(32)                             NOT NULL,
+    max_registration_id  BIGINT                                  NOT NULL,
+    last_registration_id BIGINT                                  NOT NULL,
+    queued_count         INTEGER                                 NOT NULL,
+    started_at           TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    updated_at           TIMESTAMP WITHOUT TIME ZONE,
+    finished_at          TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_reminder_campaigns PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_reminder_campaigns_status ON reminder_campaigns(status);
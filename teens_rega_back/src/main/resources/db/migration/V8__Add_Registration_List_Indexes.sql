@@ -0,0 +1,4 @@
+-- Ключ сортировки списка в админке не должен содержать NULL
+UPDATE registrations SET registration_created_at = COALESCE(registration_completed_at, CURRENT_TIMESTAMP) WHERE registration_created_at IS NULL;
+
+CREATE INDEX idx_registrations_created_id ON registrations(registration_created_at, id);
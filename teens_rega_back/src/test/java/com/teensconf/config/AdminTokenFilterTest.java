@@ -0,0 +1,68 @@
+package com.teensconf.config;
+
+import com.teensconf.service.AdminTokenService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminTokenFilterTest {
+
+    private final AdminTokenService tokenService =
+            new AdminTokenService("c2VjcmV0LWtleS1mb3ItdGVzdHMtdGhhdC1pcy1sb25nLWVub3VnaC0xMjM0NTY3OA==", 60, 16);
+    private final AdminTokenFilter filter = new AdminTokenFilter(tokenService);
+    private final AtomicReference<Authentication> seen = new AtomicReference<>();
+    private final FilterChain chain = (request, response) ->
+            seen.set(SecurityContextHolder.getContext().getAuthentication());
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void bearerToken_AuthenticatesAdmin() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/stats");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.issue("admin").getToken());
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNotNull(seen.get());
+        assertEquals("admin", seen.get().getName());
+        assertTrue(seen.get().getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+    }
+
+    @Test
+    void queryToken_AcceptedOnlyForStream() throws Exception {
+        String token = tokenService.issue("admin").getToken();
+
+        MockHttpServletRequest stream = new MockHttpServletRequest("GET", AdminTokenFilter.STREAM_PATH);
+        stream.setParameter("access_token", token);
+        filter.doFilter(stream, new MockHttpServletResponse(), chain);
+        assertNotNull(seen.get());
+
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest other = new MockHttpServletRequest("GET", "/api/admin/stats");
+        other.setParameter("access_token", token);
+        filter.doFilter(other, new MockHttpServletResponse(), chain);
+        assertNull(seen.get());
+    }
+
+    @Test
+    void invalidToken_LeavesRequestAnonymous() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/stats");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer admin-auth-token");
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(seen.get());
+    }
+}
@@ -0,0 +1,113 @@
+package com.teensconf.config;
+
+import com.teensconf.service.DataVersion;
+import com.teensconf.service.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionalGetFilterTest {
+
+    private final DataVersion dataVersion = new DataVersion();
+    private final ResponseCache responseCache = new ResponseCache(1024 * 1024, 30, new SimpleMeterRegistry());
+    private ConditionalGetFilter filter = new ConditionalGetFilter(dataVersion, responseCache, 300_000);
+    private final AtomicInteger controllerCalls = new AtomicInteger();
+
+    private final FilterChain controller = (request, response) -> {
+        controllerCalls.incrementAndGet();
+        response.setContentType("application/json");
+        response.getOutputStream().write("{\"totalRegistrations\":5}".getBytes(StandardCharsets.UTF_8));
+    };
+
+    private MockHttpServletResponse get(String uri, String ifNoneMatch) throws Exception {
+        int query = uri.indexOf('?');
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", query < 0 ? uri : uri.substring(0, query));
+        if (query >= 0) {
+            request.setQueryString(uri.substring(query + 1));
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+        return response;
+    }
+
+    @Test
+    void unchangedData_ReturnsNotModifiedWithoutCallingController() throws Exception {
+        MockHttpServletResponse first = get("/api/admin/stats", null);
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertEquals(200, first.getStatus());
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("W/\""));
+
+        MockHttpServletResponse second = get("/api/admin/stats", etag);
+
+        assertEquals(304, second.getStatus());
+        assertEquals("", second.getContentAsString());
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    void sameVersionWithoutEtag_ServedFromCache() throws Exception {
+        get("/api/admin/registrations/7", null);
+
+        MockHttpServletResponse second = get("/api/admin/registrations/7", null);
+
+        assertEquals(200, second.getStatus());
+        assertEquals("{\"totalRegistrations\":5}", second.getContentAsString());
+        assertEquals("application/json", second.getContentType());
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    void afterWrite_EtagChangesAndControllerRunsAgain() throws Exception {
+        String etag = get("/api/admin/stats", null).getHeader(HttpHeaders.ETAG);
+
+        dataVersion.bump();
+        MockHttpServletResponse second = get("/api/admin/stats", etag);
+
+        assertEquals(200, second.getStatus());
+        assertNotEquals(etag, second.getHeader(HttpHeaders.ETAG));
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    void etagExpires_AfterTtlEvenWithoutWrites() throws Exception {
+        filter = new ConditionalGetFilter(dataVersion, responseCache, 1);
+        String etag = get("/api/admin/stats", null).getHeader(HttpHeaders.ETAG);
+
+        Thread.sleep(5);
+        MockHttpServletResponse second = get("/api/admin/stats", etag);
+
+        assertEquals(200, second.getStatus());
+        assertNotEquals(etag, second.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void differentQueryParameters_CachedSeparately() throws Exception {
+        get("/api/admin/registrations?size=50", null);
+        get("/api/admin/registrations?size=20", null);
+        MockHttpServletResponse repeated = get("/api/admin/registrations?size=50", null);
+
+        assertNotNull(repeated.getHeader(HttpHeaders.ETAG));
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    void otherEndpoints_NotFiltered() throws Exception {
+        MockHttpServletResponse response = get("/api/admin/registrations/search?q=ив", null);
+        get("/api/admin/registrations/search?q=ив", null);
+
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertEquals(2, controllerCalls.get());
+    }
+}
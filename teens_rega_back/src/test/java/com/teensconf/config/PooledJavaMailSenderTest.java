@@ -0,0 +1,112 @@
+package com.teensconf.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PooledJavaMailSenderTest {
+
+    private final List<Transport> connections = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void send_ReusesOpenConnection() throws Exception {
+        PooledJavaMailSender sender = sender(2, 50);
+
+        sender.send(message(sender));
+        sender.send(message(sender));
+        sender.send(message(sender));
+
+        assertEquals(1, connections.size());
+        verify(connections.get(0), times(3)).sendMessage(any(Message.class), any(Address[].class));
+        verify(connections.get(0), never()).close();
+        assertEquals(0, sender.getActiveConnections());
+        assertEquals(1, sender.getIdleConnections());
+        assertEquals(3, meterRegistry.get("mail.send").tag("result", "success").timer().count());
+    }
+
+    @Test
+    void send_RecyclesConnectionAfterMaxMessages() throws Exception {
+        PooledJavaMailSender sender = sender(2, 2);
+
+        sender.send(message(sender));
+        sender.send(message(sender));
+        sender.send(message(sender));
+
+        assertEquals(2, connections.size());
+        verify(connections.get(0), times(1)).close();
+        verify(connections.get(1), never()).close();
+    }
+
+    @Test
+    void send_FailureDiscardsConnection() throws Exception {
+        PooledJavaMailSender sender = sender(2, 50);
+
+        sender.send(message(sender));
+        doThrow(new MessagingException("421 Service not available"))
+                .when(connections.get(0)).sendMessage(any(Message.class), any(Address[].class));
+
+        assertThrows(MailSendException.class, () -> sender.send(message(sender)));
+        verify(connections.get(0), times(1)).close();
+        assertEquals(0, sender.getIdleConnections());
+        assertEquals(1, meterRegistry.get("mail.send").tag("result", "failure").timer().count());
+
+        sender.send(message(sender));
+        assertEquals(2, connections.size());
+        assertEquals(0, sender.getActiveConnections());
+    }
+
+    @Test
+    void destroy_ClosesIdleConnections() throws Exception {
+        PooledJavaMailSender sender = sender(2, 50);
+        sender.send(message(sender));
+
+        sender.destroy();
+
+        verify(connections.get(0), times(1)).close();
+        assertEquals(0, sender.getIdleConnections());
+    }
+
+    private PooledJavaMailSender sender(int maxSize, int maxMessagesPerConnection) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(maxSize, maxMessagesPerConnection, 60_000, 1_000) {
+            @Override
+            protected Transport connectTransport() throws MessagingException {
+                Transport transport = mock(Transport.class);
+                when(transport.isConnected()).thenReturn(true);
+                connections.add(transport);
+                return transport;
+            }
+        };
+        sender.setHost("localhost");
+        sender.bindMetrics(meterRegistry);
+        return sender;
+    }
+
+    private MimeMessage message(PooledJavaMailSender sender) throws MessagingException {
+        MimeMessage message = sender.createMimeMessage();
+        message.setFrom(new InternetAddress("test@example.com"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("user@example.com"));
+        message.setSubject("Test");
+        message.setText("Test");
+        return message;
+    }
+}
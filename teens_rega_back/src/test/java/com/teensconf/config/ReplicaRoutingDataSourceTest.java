@@ -0,0 +1,134 @@
+package com.teensconf.config;
+
+import com.teensconf.service.DataVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Две базы H2 в памяти вместо основной базы и реплики: в каждой таблица с её именем
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final String WHERE_AM_I = "SELECT name FROM origin";
+
+    private final DataVersion dataVersion = new DataVersion();
+
+    private FlakyDataSource replica;
+    private JdbcTemplate replicaAdmin;
+    private ReplicaLagMonitor lagMonitor;
+    private ReplicaReads replicaReads;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        replica = new FlakyDataSource(database("replica"));
+        replicaAdmin = new JdbcTemplate(replica);
+        replicaAdmin.execute("CREATE TABLE replica_lag (seconds DOUBLE)");
+        replicaAdmin.update("INSERT INTO replica_lag VALUES (0.2)");
+
+        lagMonitor = new ReplicaLagMonitor(replica, "SELECT seconds FROM replica_lag", 10, dataVersion,
+                new SimpleMeterRegistry());
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, lagMonitor);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        replicaReads = new ReplicaReads(transactionManager);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        lagMonitor.check();
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE origin (name VARCHAR(16))");
+        template.update("INSERT INTO origin VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String readFromReplica() {
+        return replicaReads.read(() -> jdbcTemplate.queryForObject(WHERE_AM_I, String.class));
+    }
+
+    @Test
+    void replicaReads_GoToReplica() {
+        assertEquals("replica", readFromReplica());
+    }
+
+    @Test
+    void otherWork_StaysOnPrimary() {
+        assertEquals("primary", jdbcTemplate.queryForObject(WHERE_AM_I, String.class));
+        assertEquals("primary", writeTransaction.execute(status -> jdbcTemplate.queryForObject(WHERE_AM_I, String.class)));
+        // Чтение внутри транзакции на запись видит её же изменения
+        assertEquals("primary", writeTransaction.execute(status -> readFromReplica()));
+    }
+
+    @Test
+    void lagAboveTolerance_FallsBackToPrimary() {
+        replicaAdmin.update("UPDATE replica_lag SET seconds = 60");
+        lagMonitor.check();
+
+        assertEquals("primary", readFromReplica());
+
+        replicaAdmin.update("UPDATE replica_lag SET seconds = 0");
+        lagMonitor.check();
+        assertEquals("replica", readFromReplica());
+    }
+
+    @Test
+    void recentLocalWrite_ReadsFromPrimary() {
+        dataVersion.bump();
+
+        assertEquals("primary", readFromReplica());
+    }
+
+    @Test
+    void replicaUnavailable_FallsBackToPrimary() {
+        replica.down = true;
+
+        assertEquals("primary", readFromReplica());
+        assertFalse(lagMonitor.isUsable());
+
+        lagMonitor.check();
+        assertEquals("primary", readFromReplica());
+
+        replica.down = false;
+        lagMonitor.check();
+        assertEquals("replica", readFromReplica());
+    }
+
+    private static final class FlakyDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        private FlakyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.teensconf.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teensconf.dto.AdminFeedUpdate;
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.RegistrationCreatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminFeedServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<Runnable> pending = new ArrayList<>();
+    private final Executor manualExecutor = pending::add;
+
+    private AdminFeedService service(Executor executor, int bufferSize, int maxSubscribers) {
+        return new AdminFeedService(objectMapper, new SimpleMeterRegistry(), executor, bufferSize, maxSubscribers, 60_000);
+    }
+
+    private void runPending() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+
+    @Test
+    void onRegistrationCreated_SendsUpdateToEverySubscriber() {
+        AdminFeedService service = service(Runnable::run, 16, 10);
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        service.subscribe(first);
+        service.subscribe(second);
+
+        Registration registration = new Registration();
+        registration.setId(7L);
+        registration.setFirstName("Иван");
+        registration.setLastName("Петров");
+        service.onRegistrationCreated(new RegistrationCreatedEvent(registration));
+
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            assertEquals(1, emitter.events.size());
+            String event = emitter.events.get(0);
+            assertTrue(event.startsWith("event:registration\n"));
+            assertTrue(event.contains("\"change\":\"CREATED\""));
+            assertTrue(event.contains("\"id\":7"));
+            assertTrue(event.contains("\"totalDelta\":1"));
+        }
+    }
+
+    @Test
+    void slowSubscriber_DropsOldestAndAsksToResync() {
+        AdminFeedService service = service(manualExecutor, 3, 10);
+        RecordingEmitter emitter = new RecordingEmitter();
+        service.subscribe(emitter);
+
+        // Поток отправки ещё не успел ничего отправить, а событий больше, чем помещается в буфер
+        for (long id = 1; id <= 5; id++) {
+            service.publish(update(id));
+        }
+        runPending();
+
+        assertEquals(4, emitter.events.size());
+        assertTrue(emitter.events.get(0).startsWith("event:resync\n"));
+        assertTrue(emitter.events.get(1).contains("\"id\":3"));
+        assertTrue(emitter.events.get(2).contains("\"id\":4"));
+        assertTrue(emitter.events.get(3).contains("\"id\":5"));
+    }
+
+    @Test
+    void failedSend_RemovesSubscriber() {
+        AdminFeedService service = service(Runnable::run, 16, 10);
+        RecordingEmitter broken = new RecordingEmitter();
+        broken.fail = true;
+        RecordingEmitter healthy = new RecordingEmitter();
+        service.subscribe(broken);
+        service.subscribe(healthy);
+
+        service.publish(update(1));
+
+        assertEquals(1, service.getSubscriberCount());
+        assertEquals(1, healthy.events.size());
+    }
+
+    @Test
+    void subscribe_TooManySubscribers_Rejected() {
+        AdminFeedService service = service(Runnable::run, 16, 1);
+        service.subscribe(new RecordingEmitter());
+
+        assertThrows(IllegalStateException.class, () -> service.subscribe(new RecordingEmitter()));
+    }
+
+    private static AdminFeedUpdate update(long id) {
+        return new AdminFeedUpdate(AdminFeedUpdate.Change.CREATED,
+                new RegistrationListItem(id, "Имя", "Фамилия", "a@b.ru", "+79990000000",
+                        "Москва", "Участник", false, null, null, null),
+                1, 0, 1);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private boolean fail;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (fail) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(builder.build().stream()
+                    .map(part -> part.getData().toString())
+                    .collect(Collectors.joining()));
+        }
+    }
+}
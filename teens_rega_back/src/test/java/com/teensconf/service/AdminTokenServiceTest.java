@@ -0,0 +1,111 @@
+package com.teensconf.service;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminTokenServiceTest {
+
+    private static final String SECRET = "c2VjcmV0LWtleS1mb3ItdGVzdHMtdGhhdC1pcy1sb25nLWVub3VnaC0xMjM0NTY3OA==";
+    private static final String OTHER_SECRET = "YW5vdGhlci1rZXktZm9yLXRlc3RzLXRoYXQtaXMtbG9uZy1lbm91Z2gtMDAwMA==";
+
+    private final AdminTokenService service = new AdminTokenService(SECRET, 60, 16);
+
+    @Test
+    void issuedToken_VerifiedByAnotherInstanceWithSameSecret() {
+        AdminTokenService.AdminToken issued = service.issue("admin");
+
+        Optional<AdminTokenService.AdminToken> verified = new AdminTokenService(SECRET, 60, 16).verify(issued.getToken());
+
+        assertTrue(verified.isPresent());
+        assertEquals("admin", verified.get().getUsername());
+        assertEquals(issued.getExpiresAt().getEpochSecond(), verified.get().getExpiresAt().getEpochSecond());
+    }
+
+    @Test
+    void repeatedVerification_ServedFromCache() {
+        String token = service.issue("admin").getToken();
+
+        assertSame(service.verify(token).orElseThrow(), service.verify(token).orElseThrow());
+    }
+
+    @Test
+    void tamperedOrForeignToken_Rejected() {
+        String token = service.issue("admin").getToken();
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String foreign = new AdminTokenService(OTHER_SECRET, 60, 16).issue("admin").getToken();
+
+        assertTrue(service.verify(tampered).isEmpty());
+        assertTrue(service.verify(foreign).isEmpty());
+        assertTrue(service.verify("admin-auth-token").isEmpty());
+        assertTrue(service.verify(null).isEmpty());
+    }
+
+    @Test
+    void expiredToken_Rejected() {
+        Instant issuedAt = Instant.now().minus(2, ChronoUnit.HOURS);
+        String expired = Jwts.builder()
+                .setSubject("admin")
+                .claim("role", "ADMIN")
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(issuedAt.plus(1, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertTrue(service.verify(expired).isEmpty());
+    }
+
+    @Test
+    void tokenWithoutAdminRole_Rejected() {
+        String token = Jwts.builder()
+                .setSubject("someone")
+                .setExpiration(Date.from(Instant.now().plus(1, ChronoUnit.HOURS)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertTrue(service.verify(token).isEmpty());
+    }
+
+    @Test
+    void missingSecret_FailsOutsideDevAndTest() {
+        MockEnvironment production = new MockEnvironment();
+        production.setActiveProfiles("prod");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new AdminTokenService("", 60, 16, production));
+        assertTrue(e.getMessage().contains("app.admin.jwt-secret"));
+        assertThrows(IllegalStateException.class, () -> new AdminTokenService((String) null, 60, 16));
+    }
+
+    @Test
+    void missingSecret_RandomKeyInDevProfile() {
+        MockEnvironment dev = new MockEnvironment();
+        dev.setActiveProfiles("dev");
+        AdminTokenService devService = new AdminTokenService("", 60, 16, dev);
+
+        String token = devService.issue("admin").getToken();
+
+        assertTrue(devService.verify(token).isPresent());
+        assertTrue(service.verify(token).isEmpty());
+    }
+
+    @Test
+    void weakOrMalformedSecret_Rejected() {
+        IllegalStateException shortKey = assertThrows(IllegalStateException.class,
+                () -> new AdminTokenService("dG9vLXNob3J0LWtleQ==", 60, 16));
+        assertTrue(shortKey.getMessage().contains("104 bits"));
+        assertTrue(shortKey.getMessage().contains("256"));
+
+        assertThrows(IllegalStateException.class, () -> new AdminTokenService("не base64!", 60, 16));
+    }
+}
@@ -0,0 +1,255 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.CheckInResult;
+import com.teensconf.dto.RosterRow;
+import com.teensconf.repository.RegistrationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckInServiceTest {
+
+    private static final LocalDateTime COMPLETED_AT = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Mock
+    private RegistrationRepository registrationRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final TicketCodec ticketCodec = new TicketCodec("test-secret");
+    private final DataVersion dataVersion = new DataVersion();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CheckInService checkInService;
+
+    @BeforeEach
+    void setUp() {
+        checkInService = new CheckInService(registrationRepository, ticketCodec, jdbcTemplate, dataVersion,
+                meterRegistry);
+    }
+
+    @Test
+    void scan_FirstAndRepeatedScan() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, null), row(2L, null)));
+        checkInService.refreshRoster();
+
+        CheckInResult first = checkInService.scan(ticket(1L));
+        CheckInResult second = checkInService.scan(ticket(1L));
+
+        assertEquals(CheckInResult.Status.CHECKED_IN, first.getStatus());
+        assertEquals("Иван1 Иванов", first.getFullName());
+        assertNotNull(first.getCheckedInAt());
+        assertEquals(CheckInResult.Status.ALREADY_CHECKED_IN, second.getStatus());
+        assertEquals(first.getCheckedInAt(), second.getCheckedInAt());
+        assertEquals(1, checkInService.getCheckedInCount());
+        assertEquals(1, checkInService.getPendingWrites());
+    }
+
+    @Test
+    void scan_AlreadyCheckedInBeforeRestart() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, COMPLETED_AT.plusDays(1))));
+        checkInService.refreshRoster();
+
+        CheckInResult result = checkInService.scan(ticket(1L));
+
+        assertEquals(CheckInResult.Status.ALREADY_CHECKED_IN, result.getStatus());
+        assertEquals(0, checkInService.getPendingWrites());
+    }
+
+    @Test
+    void scan_ForgedTicket_Invalid() {
+        String forged = new TicketCodec("other-secret").encode(1L, 0, TicketCodec.FLAG_PAID);
+
+        CheckInResult result = checkInService.scan(forged);
+
+        assertEquals(CheckInResult.Status.INVALID, result.getStatus());
+        verifyNoInteractions(registrationRepository);
+    }
+
+    @Test
+    void scan_UnknownRegistration_RefreshesRosterOnce() {
+        when(registrationRepository.findRoster()).thenReturn(List.of());
+
+        CheckInResult first = checkInService.scan(ticket(99L));
+        CheckInResult second = checkInService.scan(ticket(99L));
+
+        assertEquals(CheckInResult.Status.NOT_FOUND, first.getStatus());
+        assertEquals(CheckInResult.Status.NOT_FOUND, second.getStatus());
+        // Второй промах попадает в интервал ограничения и в базу не ходит
+        verify(registrationRepository, times(1)).findRoster();
+    }
+
+    @Test
+    void refreshRoster_LoadsWithOverlapAndKeepsCheckIns() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, null)));
+        checkInService.refreshRoster();
+        checkInService.scan(ticket(1L));
+
+        // Перекрытие: регистрация 2 завершена раньше уже загруженной, но закоммичена позже
+        when(registrationRepository.findRosterCompletedSince(argThat((LocalDateTime since) -> since.isBefore(COMPLETED_AT))))
+                .thenReturn(List.of(row(1L, null), row(2L, null, COMPLETED_AT.minusSeconds(30))));
+        checkInService.refreshRoster();
+
+        assertEquals(2, checkInService.getRosterSize());
+        assertEquals(CheckInResult.Status.ALREADY_CHECKED_IN, checkInService.scan(ticket(1L)).getStatus());
+        assertEquals(CheckInResult.Status.CHECKED_IN, checkInService.scan(ticket(2L)).getStatus());
+    }
+
+    @Test
+    void reloadRoster_PicksUpRowsBelowWatermarkAndKeepsCheckIns() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, null)));
+        checkInService.refreshRoster();
+        checkInService.scan(ticket(1L));
+
+        when(registrationRepository.findRoster())
+                .thenReturn(List.of(row(1L, null), row(2L, null, COMPLETED_AT.minusHours(1))));
+        checkInService.reloadRoster();
+
+        assertEquals(2, checkInService.getRosterSize());
+        assertEquals(CheckInResult.Status.ALREADY_CHECKED_IN, checkInService.scan(ticket(1L)).getStatus());
+        assertEquals(CheckInResult.Status.CHECKED_IN, checkInService.scan(ticket(2L)).getStatus());
+    }
+
+    @Test
+    void scan_ConcurrentScanners_ExactlyOneCheckInPerParticipant() throws Exception {
+        int participants = 200;
+        int scanners = 10;
+        List<RosterRow> rows = new ArrayList<>();
+        List<String> tickets = new ArrayList<>();
+        for (long id = 1; id <= participants; id++) {
+            rows.add(row(id, null));
+            tickets.add(ticket(id));
+        }
+        when(registrationRepository.findRoster()).thenReturn(rows);
+        checkInService.refreshRoster();
+
+        ExecutorService executor = Executors.newFixedThreadPool(scanners);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int s = 0; s < scanners; s++) {
+                Callable<Integer> scanner = () -> {
+                    startGate.await();
+                    int checkedIn = 0;
+                    for (String ticket : tickets) {
+                        if (checkInService.scan(ticket).getStatus() == CheckInResult.Status.CHECKED_IN) {
+                            checkedIn++;
+                        }
+                    }
+                    return checkedIn;
+                };
+                results.add(executor.submit(scanner));
+            }
+            startGate.countDown();
+
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get();
+            }
+            assertEquals(participants, total);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(participants, checkInService.getCheckedInCount());
+        assertEquals(participants, checkInService.getPendingWrites());
+    }
+
+    @Test
+    void flushCheckIns_WritesPendingInOneBatch() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, null), row(2L, null)));
+        checkInService.refreshRoster();
+        checkInService.scan(ticket(1L));
+        checkInService.scan(ticket(2L));
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any()))
+                .thenReturn(new int[][]{{1, 1}});
+
+        checkInService.flushCheckIns();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(),
+                argThat((Collection<Object> batch) -> batch.size() == 2), eq(2), any());
+        assertEquals(0, checkInService.getPendingWrites());
+        assertEquals(0, meterRegistry.counter("checkin.duplicate.writes").count());
+    }
+
+    @Test
+    void flushCheckIns_AlreadyRecordedByAnotherNode_Counted() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, null), row(2L, null)));
+        checkInService.refreshRoster();
+        checkInService.scan(ticket(1L));
+        checkInService.scan(ticket(2L));
+        // Участника 2 уже отметил вход, который обслуживает другой экземпляр
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any()))
+                .thenReturn(new int[][]{{1, 0}});
+        long version = dataVersion.current();
+
+        checkInService.flushCheckIns();
+
+        assertEquals(1, meterRegistry.counter("checkin.duplicate.writes").count());
+        assertEquals(0, checkInService.getPendingWrites());
+        assertTrue(dataVersion.current() > version);
+    }
+
+    @Test
+    void flushCheckIns_AllAlreadyRecorded_DataVersionUnchanged() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, null)));
+        checkInService.refreshRoster();
+        checkInService.scan(ticket(1L));
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any()))
+                .thenReturn(new int[][]{{0}});
+        long version = dataVersion.current();
+
+        checkInService.flushCheckIns();
+
+        assertEquals(1, meterRegistry.counter("checkin.duplicate.writes").count());
+        assertEquals(version, dataVersion.current());
+    }
+
+    @Test
+    void flushCheckIns_DatabaseError_KeepsPendingWrites() {
+        when(registrationRepository.findRoster()).thenReturn(List.of(row(1L, null)));
+        checkInService.refreshRoster();
+        checkInService.scan(ticket(1L));
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any()))
+                .thenThrow(new TransientDataAccessResourceException("connection lost"));
+
+        checkInService.flushCheckIns();
+
+        assertEquals(1, checkInService.getPendingWrites());
+    }
+
+    private String ticket(long registrationId) {
+        return ticketCodec.encode(registrationId, 1_700_000_000L, TicketCodec.FLAG_PAID);
+    }
+
+    private static RosterRow row(long id, LocalDateTime checkedInAt) {
+        return row(id, checkedInAt, COMPLETED_AT);
+    }
+
+    private static RosterRow row(long id, LocalDateTime checkedInAt, LocalDateTime completedAt) {
+        return new RosterRow(id, "Иван" + id, "Иванов", "participant", "Москва", false, false, completedAt, checkedInAt);
+    }
+}
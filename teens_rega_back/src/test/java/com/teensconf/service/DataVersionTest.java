@@ -0,0 +1,118 @@
+package com.teensconf.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Два экземпляра приложения над одной базой H2 в памяти
+ */
+class DataVersionTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private DataVersion node;
+    private DataVersion otherNode;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:version-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE data_version (id INTEGER PRIMARY KEY, version BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO data_version (id, version) VALUES (1, 0)");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        node = new DataVersion(jdbcTemplates(), 0);
+        otherNode = new DataVersion(jdbcTemplates(), 0);
+    }
+
+    private ObjectProvider<JdbcTemplate> jdbcTemplates() {
+        return new StaticListableBeanFactory(Map.of("jdbcTemplate", jdbcTemplate)).getBeanProvider(JdbcTemplate.class);
+    }
+
+    private long shared() {
+        return jdbcTemplate.queryForObject("SELECT version FROM data_version WHERE id = 1", Long.class);
+    }
+
+    @Test
+    void recordWrite_VisibleOnOtherInstance() {
+        long before = otherNode.current();
+
+        node.recordWrite();
+
+        assertTrue(otherNode.current() > before);
+        assertEquals(node.current(), otherNode.current());
+    }
+
+    @Test
+    void recordWrite_OncePerTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            node.recordWrite();
+            node.recordWrite();
+        });
+
+        assertEquals(1, shared());
+        assertEquals(1, node.current());
+    }
+
+    @Test
+    void recordWrite_RolledBackWithTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            node.recordWrite();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, shared());
+        assertEquals(0, otherNode.current());
+    }
+
+    @Test
+    void remoteWrites_CountsOnlyOtherInstances() {
+        assertEquals(0, node.remoteWrites());
+        assertEquals(0, otherNode.remoteWrites());
+
+        node.recordWrite();
+        transactionTemplate.executeWithoutResult(status -> node.recordWrite());
+        assertEquals(0, node.remoteWrites());
+
+        otherNode.recordWrite();
+        otherNode.recordWrite();
+        assertEquals(2, node.remoteWrites());
+        assertEquals(2, otherNode.remoteWrites());
+    }
+
+    @Test
+    void bump_ChangesOnlyThisInstance() {
+        node.bump();
+
+        assertEquals(1, node.current());
+        assertEquals(0, otherNode.current());
+        assertEquals(0, shared());
+    }
+
+    @Test
+    void current_ReadsSharedVersionOncePerPollInterval() {
+        DataVersion polling = new DataVersion(jdbcTemplates(), 60_000);
+        node.recordWrite();
+        assertEquals(1, polling.current());
+
+        otherNode.recordWrite();
+
+        // До следующего опроса экземпляр отдаёт прочитанное значение, а не лезет в базу на каждый запрос
+        assertEquals(1, polling.current());
+        polling.recordWrite();
+        assertEquals(3, polling.current());
+    }
+}
@@ -0,0 +1,74 @@
+package com.teensconf.service;
+
+import com.teensconf.config.DonationTierProperties;
+import com.teensconf.entity.Registration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DonationTierRegistryTest {
+
+    @Test
+    void resolve_PicksFirstMatchingTierByRoleAndAccommodation() {
+        DonationTierRegistry registry = new DonationTierRegistry(createProperties());
+
+        assertEquals("teen", registry.resolve(registration("подросток", false)).getCode());
+        assertEquals("leader-accommodation", registry.resolve(registration("служитель", true)).getCode());
+        assertEquals("leader", registry.resolve(registration("служитель", false)).getCode());
+    }
+
+    @Test
+    void resolve_NoTierMatches_ReturnsDefaultAmount() {
+        DonationTierRegistry registry = new DonationTierRegistry(new DonationTierProperties());
+
+        DonationTier tier = registry.resolve(registration("подросток", true));
+
+        assertEquals(500.0, tier.getAmount());
+        assertEquals("500", tier.getDisplayAmount());
+    }
+
+    @Test
+    void matchesAmount_AcceptsCommonFormatsAndRejectsNeighbouringDigits() {
+        DonationTier tier = DonationTier.compile("teen", 500.0, null, null);
+
+        assertTrue(tier.matchesAmount("СУММА: 500.00 РУБ"));
+        assertTrue(tier.matchesAmount("ИТОГО 500,00Р"));
+        assertTrue(tier.matchesAmount("500 ₽"));
+        assertFalse(tier.matchesAmount("СУММА: 1500.00 РУБ"));
+        assertFalse(tier.matchesAmount("СУММА: 500,50 РУБ"));
+        assertFalse(tier.matchesAmount("ОПЕРАЦИЯ A5317171444036040000080011630701"));
+    }
+
+    @Test
+    void matchesAmount_ThousandsWithSpaceSeparator() {
+        DonationTier tier = DonationTier.compile("leader-accommodation", 1200.0, null, null);
+
+        assertTrue(tier.matchesAmount("СУММА 1 200,00 РУБ"));
+        assertTrue(tier.matchesAmount("СУММА 1200 Р"));
+        assertFalse(tier.matchesAmount("СУММА 200,00 РУБ"));
+    }
+
+    private DonationTierProperties createProperties() {
+        DonationTierProperties properties = new DonationTierProperties();
+        properties.getTiers().add(tier("teen", 500.0, "подросток", null));
+        properties.getTiers().add(tier("leader-accommodation", 1200.0, "служитель", true));
+        properties.getTiers().add(tier("leader", 700.0, "служитель", null));
+        return properties;
+    }
+
+    private DonationTierProperties.Tier tier(String code, double amount, String role, Boolean needAccommodation) {
+        DonationTierProperties.Tier tier = new DonationTierProperties.Tier();
+        tier.setCode(code);
+        tier.setAmount(amount);
+        tier.setRole(role);
+        tier.setNeedAccommodation(needAccommodation);
+        return tier;
+    }
+
+    private Registration registration(String role, boolean needAccommodation) {
+        Registration registration = new Registration();
+        registration.setRole(role);
+        registration.setNeedAccommodation(needAccommodation);
+        return registration;
+    }
+}
@@ -0,0 +1,200 @@
+package com.teensconf.service;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailDispatcherTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EmailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Потоки не запускаем: письма отправляются вызовом dispatchNext из теста
+        dispatcher = new EmailDispatcher(mailSender, meterRegistry, 1000, 10, 2, 0, 3, 10, 40);
+    }
+
+    @Test
+    void dispatchNext_TicketsBeforeConfirmationsBeforeReminders() throws Exception {
+        MimeMessage reminder = message();
+        MimeMessage confirmation = message();
+        MimeMessage ticket = message();
+        dispatcher.submit(EmailDispatcher.Lane.REMINDER, "c@example.com", reminder);
+        dispatcher.submit(EmailDispatcher.Lane.CONFIRMATION, "b@example.com", confirmation);
+        dispatcher.submit(EmailDispatcher.Lane.TICKET, "a@example.com", ticket);
+
+        while (dispatcher.dispatchNext()) {
+            // отправляем всё
+        }
+
+        InOrder order = inOrder(mailSender);
+        order.verify(mailSender).send(ticket);
+        order.verify(mailSender).send(confirmation);
+        order.verify(mailSender).send(reminder);
+        assertEquals(0, dispatcher.getQueueSize());
+        assertEquals(1, meterRegistry.get("mail.queue.lag").tag("lane", "ticket").timer().count());
+    }
+
+    @Test
+    void dispatchNext_ProviderThrottling_BacksOffAndRetries() throws Exception {
+        MimeMessage ticket = message();
+        doThrow(throttled(421)).doNothing().when(mailSender).send(ticket);
+        dispatcher.submit(EmailDispatcher.Lane.TICKET, "a@example.com", ticket);
+
+        dispatcher.dispatchNext();
+
+        assertEquals(1, dispatcher.getQueueSize(EmailDispatcher.Lane.TICKET));
+        assertEquals(10, dispatcher.getBackoffMillis());
+
+        long start = System.nanoTime();
+        dispatcher.dispatchNext();
+
+        assertTrue(System.nanoTime() - start >= 5_000_000, "second attempt must wait for the backoff");
+        verify(mailSender, times(2)).send(ticket);
+        assertEquals(0, dispatcher.getQueueSize());
+        assertEquals(0, dispatcher.getBackoffMillis());
+        assertEquals(1.0, meterRegistry.get("mail.dispatch").tag("lane", "ticket").tag("result", "throttled").counter().count());
+    }
+
+    @Test
+    void dispatchNext_ConnectionTimeout_IsRetried() throws Exception {
+        MimeMessage confirmation = message();
+        doThrow(new MailSendException("Mail server connection failed", new SocketTimeoutException("Read timed out")))
+                .doNothing().when(mailSender).send(confirmation);
+        dispatcher.submit(EmailDispatcher.Lane.CONFIRMATION, "b@example.com", confirmation);
+
+        dispatcher.dispatchNext();
+        dispatcher.dispatchNext();
+
+        verify(mailSender, times(2)).send(confirmation);
+    }
+
+    @Test
+    void dispatchNext_PermanentFailure_NotRetried() throws Exception {
+        MimeMessage confirmation = message();
+        doThrow(throttled(550)).when(mailSender).send(confirmation);
+        dispatcher.submit(EmailDispatcher.Lane.CONFIRMATION, "b@example.com", confirmation);
+
+        dispatcher.dispatchNext();
+
+        assertFalse(dispatcher.dispatchNext());
+        verify(mailSender, times(1)).send(confirmation);
+        assertEquals(0, dispatcher.getBackoffMillis());
+        assertEquals(1.0, meterRegistry.get("mail.dispatch").tag("lane", "confirmation").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void dispatchNext_GivesUpAfterMaxAttempts() throws Exception {
+        MimeMessage reminder = message();
+        doThrow(throttled(451)).when(mailSender).send(reminder);
+        dispatcher.submit(EmailDispatcher.Lane.REMINDER, "c@example.com", reminder);
+
+        while (dispatcher.dispatchNext()) {
+            // до исчерпания попыток
+        }
+
+        verify(mailSender, times(3)).send(reminder);
+        // Пауза растёт: 10, 20 мс
+        assertEquals(20, dispatcher.getBackoffMillis());
+    }
+
+    @Test
+    void submit_FullLane_Dropped() {
+        assertTrue(dispatcher.submit(EmailDispatcher.Lane.REMINDER, "c@example.com", message()));
+        assertTrue(dispatcher.submit(EmailDispatcher.Lane.REMINDER, "d@example.com", message()));
+
+        assertFalse(dispatcher.submit(EmailDispatcher.Lane.REMINDER, "e@example.com", message()));
+        // Другие полосы не страдают от переполнения напоминаний
+        assertTrue(dispatcher.submit(EmailDispatcher.Lane.TICKET, "a@example.com", message()));
+        assertEquals(1.0, meterRegistry.get("mail.dispatch").tag("lane", "reminder").tag("result", "dropped").counter().count());
+    }
+
+    @Test
+    void submit_TicketLaneNeverDropped() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(dispatcher.submit(EmailDispatcher.Lane.TICKET, "a" + i + "@example.com", message()));
+        }
+
+        assertEquals(5, dispatcher.getQueueSize(EmailDispatcher.Lane.TICKET));
+        assertEquals(0.0, meterRegistry.get("mail.dispatch").tag("lane", "ticket").tag("result", "dropped").counter().count());
+    }
+
+    @Test
+    void dispatchNext_TicketRetriedPastMaxAttempts() throws Exception {
+        MimeMessage ticket = message();
+        EmailDispatcher.DeliveryCallback callback = mock(EmailDispatcher.DeliveryCallback.class);
+        doThrow(throttled(451)).doThrow(throttled(451)).doThrow(throttled(451)).doThrow(throttled(451))
+                .doNothing().when(mailSender).send(ticket);
+        dispatcher = new EmailDispatcher(mailSender, meterRegistry, 1000, 10, 2, 0, 3, 1, 2);
+        dispatcher.submit(EmailDispatcher.Lane.TICKET, "a@example.com", ticket, callback);
+
+        while (dispatcher.dispatchNext()) {
+            // пока билет не уйдёт
+        }
+
+        verify(mailSender, times(5)).send(ticket);
+        verify(callback, times(4)).retrying();
+        verify(callback).delivered();
+        verify(callback, never()).rejected();
+    }
+
+    @Test
+    void dispatchNext_PermanentFailure_ReportedToCallback() throws Exception {
+        MimeMessage ticket = message();
+        EmailDispatcher.DeliveryCallback callback = mock(EmailDispatcher.DeliveryCallback.class);
+        doThrow(throttled(550)).when(mailSender).send(ticket);
+        dispatcher.submit(EmailDispatcher.Lane.TICKET, "a@example.com", ticket, callback);
+
+        dispatcher.dispatchNext();
+
+        verify(callback).rejected();
+        verify(callback, never()).delivered();
+        assertEquals(0, dispatcher.getQueueSize());
+    }
+
+    @Test
+    void dispatchNext_CallbackErrorIsNotSendError() throws Exception {
+        MimeMessage ticket = message();
+        EmailDispatcher.DeliveryCallback callback = mock(EmailDispatcher.DeliveryCallback.class);
+        doThrow(new IllegalStateException("database is down")).when(callback).delivered();
+        dispatcher.submit(EmailDispatcher.Lane.TICKET, "a@example.com", ticket, callback);
+
+        dispatcher.dispatchNext();
+
+        verify(mailSender, times(1)).send(ticket);
+        assertEquals(0, dispatcher.getQueueSize());
+        assertEquals(1.0, meterRegistry.get("mail.dispatch").tag("lane", "ticket").tag("result", "sent").counter().count());
+    }
+
+    private static MailSendException throttled(int code) {
+        SMTPSendFailedException cause = new SMTPSendFailedException("DATA", code,
+                code + " Too many messages, slow down", null, null, null, null);
+        return new MailSendException(Map.of(new Object(), cause));
+    }
+
+    private static MimeMessage message() {
+        return new MimeMessage(Session.getInstance(new Properties()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.Registration;
+import com.teensconf.repository.RegistrationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentNotificationListenerTest {
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private TicketEmailOutbox ticketEmailOutbox;
+
+    @Mock
+    private RegistrationRepository registrationRepository;
+
+    @InjectMocks
+    private PaymentNotificationListener listener;
+
+    private static Registration registration(long id) {
+        Registration registration = new Registration();
+        registration.setId(id);
+        registration.setEmail(id + "@example.com");
+        return registration;
+    }
+
+    @Test
+    void resendUndeliveredTickets_SendsEachPendingTicket() {
+        Registration first = registration(1L);
+        Registration second = registration(2L);
+        when(ticketEmailOutbox.findUndelivered(anyInt())).thenReturn(List.of(1L, 2L));
+        when(registrationRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(first, second));
+
+        listener.resendUndeliveredTickets();
+
+        verify(emailService).sendPaymentSuccessNotification(first);
+        verify(emailService).sendPaymentSuccessNotification(second);
+    }
+
+    @Test
+    void resendUndeliveredTickets_NothingPending() {
+        when(ticketEmailOutbox.findUndelivered(anyInt())).thenReturn(List.of());
+
+        listener.resendUndeliveredTickets();
+
+        verifyNoInteractions(emailService, registrationRepository);
+    }
+
+    @Test
+    void resendUndeliveredTickets_DatabaseDown_TriesNextTime() {
+        when(ticketEmailOutbox.findUndelivered(anyInt()))
+                .thenThrow(new TransientDataAccessResourceException("connection lost"));
+
+        listener.resendUndeliveredTickets();
+
+        verifyNoInteractions(emailService, registrationRepository);
+    }
+}
@@ -0,0 +1,247 @@
+package com.teensconf.service;
+
+import com.teensconf.config.DonationTierProperties;
+import com.teensconf.dto.PaymentCompletionRequest;
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.repository.PaymentReceiptRepository;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.Hashing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Параллельные попытки завершить одну и ту же регистрацию
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceConcurrencyTest {
+
+    private static final Long REGISTRATION_ID = 1L;
+    private static final int THREADS = 16;
+
+    @Mock
+    private RegistrationRepository registrationRepository;
+
+    @Mock
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @Mock
+    private PdfValidationService pdfValidationService;
+
+    @Spy
+    private ReceiptValidationCache validationCache =
+            new ReceiptValidationCache(1024 * 1024, 1800, new SimpleMeterRegistry());
+
+    @Spy
+    private DonationTierRegistry donationTierRegistry = new DonationTierRegistry(new DonationTierProperties());
+
+    @Spy
+    private ReceiptStorage receiptStorage = new ReceiptStorage();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    @TempDir
+    Path tempDir;
+
+    private Registration registration;
+    private ExecutorService executor;
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        registration = new Registration();
+        registration.setId(REGISTRATION_ID);
+        registration.setEmail("test@example.com");
+        registration.setFirstName("John");
+        registration.setLastName("Doe");
+
+        receiptStorage.uploadDir = tempDir.toString();
+        paymentService.init();
+
+        executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable);
+            workers.add(thread);
+            return thread;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void processPaymentCompletion_ConcurrentDoubleSubmit_ValidatesAndSavesOnce() throws Exception {
+        when(registrationRepository.findById(REGISTRATION_ID)).thenReturn(Optional.of(registration));
+        when(paymentReceiptRepository.save(any(PaymentReceipt.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenAnswer(inv -> {
+            awaitOtherWorkersWaiting();
+            return PdfValidationService.ValidationResult.success();
+        });
+
+        List<Future<PaymentReceipt>> results = submitAll(THREADS, i -> "same receipt");
+
+        PaymentReceipt first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<PaymentReceipt> result : results) {
+            assertSame(first, result.get(10, TimeUnit.SECONDS));
+        }
+
+        verify(pdfValidationService, times(1)).validatePdf(any(Path.class), any());
+        verify(paymentReceiptRepository, times(1)).save(any(PaymentReceipt.class));
+        verify(registrationRepository, times(1)).save(registration);
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentCompletedEvent.class));
+        assertSame(first, registration.getPaymentReceipt());
+        assertTrue(Files.exists(Path.of(first.getFilePath())));
+    }
+
+    @Test
+    void processPaymentCompletion_FirstAttemptFails_WaiterRetriesWithOwnFile() throws Exception {
+        when(registrationRepository.findById(REGISTRATION_ID)).thenReturn(Optional.of(registration));
+        when(paymentReceiptRepository.save(any(PaymentReceipt.class))).thenAnswer(inv -> inv.getArgument(0));
+        AtomicInteger attempts = new AtomicInteger();
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenAnswer(inv -> {
+            if (attempts.getAndIncrement() == 0) {
+                awaitOtherWorkersWaiting();
+                return PdfValidationService.ValidationResult.error("Не найдена сумма пожертвования");
+            }
+            return PdfValidationService.ValidationResult.success();
+        });
+
+        List<Future<PaymentReceipt>> results = submitAll(2, i -> "receipt " + i);
+
+        int failed = 0;
+        int completed = 0;
+        for (Future<PaymentReceipt> result : results) {
+            try {
+                assertNotNull(result.get(10, TimeUnit.SECONDS));
+                completed++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalArgumentException.class, e.getCause());
+                failed++;
+            }
+        }
+
+        assertEquals(1, failed);
+        assertEquals(1, completed);
+        verify(pdfValidationService, times(2)).validatePdf(any(Path.class), any());
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentCompletedEvent.class));
+    }
+
+    @Test
+    void processPaymentCompletion_CompletedByAnotherInstance_ReturnsExistingReceipt() throws Exception {
+        PaymentReceipt existing = new PaymentReceipt();
+        existing.setId(42L);
+
+        when(registrationRepository.findById(REGISTRATION_ID)).thenReturn(Optional.of(registration));
+        when(pdfValidationService.validatePdf(any(Path.class), any()))
+                .thenReturn(PdfValidationService.ValidationResult.success());
+        doThrow(new ObjectOptimisticLockingFailureException(Registration.class, REGISTRATION_ID))
+                .when(transactionTemplate).execute(any());
+        when(paymentReceiptRepository.findByRegistrationId(REGISTRATION_ID)).thenReturn(List.of(existing));
+
+        PaymentReceipt result = paymentService.processPaymentCompletion(REGISTRATION_ID, request("same receipt"));
+
+        assertSame(existing, result);
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
+        // Файл с тем же содержимым принадлежит сохранённому чеку и остаётся на месте
+        assertTrue(Files.exists(receiptStorage.resolve(Hashing.sha256Hex(
+                "same receipt".getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    @Test
+    void processPaymentCompletion_ConflictWithoutSavedReceipt_ThrowsAndLeavesFileToSweeper() throws Exception {
+        when(registrationRepository.findById(REGISTRATION_ID)).thenReturn(Optional.of(registration));
+        when(pdfValidationService.validatePdf(any(Path.class), any()))
+                .thenReturn(PdfValidationService.ValidationResult.success());
+        doThrow(new ObjectOptimisticLockingFailureException(Registration.class, REGISTRATION_ID))
+                .when(transactionTemplate).execute(any());
+        when(paymentReceiptRepository.findByRegistrationId(REGISTRATION_ID)).thenReturn(List.of());
+
+        assertThrows(IllegalStateException.class,
+                () -> paymentService.processPaymentCompletion(REGISTRATION_ID, request("orphan receipt")));
+
+        // Проверка ссылок и удаление гонялись бы с загрузкой того же файла - его уберёт ReceiptOrphanSweeper
+        verify(paymentReceiptRepository, never()).existsByContentHash(any());
+        assertTrue(Files.exists(receiptStorage.resolve(Hashing.sha256Hex(
+                "orphan receipt".getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    private List<Future<PaymentReceipt>> submitAll(int count, IntFunction<String> content) {
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<PaymentReceipt>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PaymentCompletionRequest request = request(content.apply(i));
+            results.add(executor.submit(() -> {
+                startGate.await();
+                return paymentService.processPaymentCompletion(REGISTRATION_ID, request);
+            }));
+        }
+        startGate.countDown();
+        return results;
+    }
+
+    /**
+     * Держит первую попытку, пока все остальные потоки не встанут в ожидание её результата
+     */
+    private void awaitOtherWorkersWaiting() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            boolean allWaiting = workers.stream()
+                    .filter(thread -> thread != Thread.currentThread())
+                    .allMatch(thread -> thread.getState() == Thread.State.TIMED_WAITING);
+            if (allWaiting && !workers.isEmpty()) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Concurrent requests did not wait for the first attempt");
+    }
+
+    private PaymentCompletionRequest request(String content) {
+        PaymentCompletionRequest request = new PaymentCompletionRequest();
+        request.setReceiptFile(new MockMultipartFile(
+                "receiptFile", "receipt.pdf", "application/pdf", content.getBytes(StandardCharsets.UTF_8)));
+        return request;
+    }
+}
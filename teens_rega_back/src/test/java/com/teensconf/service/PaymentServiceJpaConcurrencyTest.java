@@ -0,0 +1,148 @@
+package com.teensconf.service;
+
+import com.teensconf.config.DonationTierProperties;
+import com.teensconf.dto.PaymentCompletionRequest;
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.repository.PaymentReceiptRepository;
+import com.teensconf.repository.RegistrationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Два экземпляра приложения одновременно завершают одну регистрацию в общей базе H2.
+ * Обе транзакции успевают прочитать незавершённую регистрацию, и исход решает база:
+ * уникальный ключ на чеке и версия регистрации.
+ */
+@DataJpaTest(properties = "spring.flyway.enabled=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentServiceJpaConcurrencyTest {
+
+    @Autowired
+    private RegistrationRepository registrationRepository;
+
+    @Autowired
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final PdfValidationService pdfValidationService = mock(PdfValidationService.class);
+    private final CyclicBarrier insideTransactions = new CyclicBarrier(2);
+
+    private Long registrationId;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        Registration registration = new Registration();
+        registration.setFirstName("Анна");
+        registration.setLastName("Иванова");
+        registration.setEmail("anna@example.com");
+        registration.setBirthDate("2010-01-01");
+        registration.setPhone("+79990000000");
+        registration.setTelegram("@anna");
+        registration.setCity("Москва");
+        registration.setChurch("Церковь");
+        registration.setRole("участник");
+        registrationId = registrationRepository.save(registration).getId();
+
+        when(pdfValidationService.validatePdf(any(Path.class), any()))
+                .thenReturn(PdfValidationService.ValidationResult.success());
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        paymentReceiptRepository.deleteAll();
+        registrationRepository.deleteAll();
+    }
+
+    /**
+     * Отдельный экземпляр сервиса - как на другом узле: своя карта запросов в обработке и свой кэш проверок
+     */
+    private PaymentService node(String name) {
+        // Регистрация читается внутри транзакции только после того, как туда же дошёл второй узел
+        RegistrationRepository registrations = mock(RegistrationRepository.class, delegatesTo(registrationRepository));
+        doAnswer(invocation -> {
+            Optional<Registration> registration = registrationRepository.findById(invocation.getArgument(0));
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                insideTransactions.await(10, TimeUnit.SECONDS);
+            }
+            return registration;
+        }).when(registrations).findById(any());
+
+        ReceiptStorage receiptStorage = new ReceiptStorage();
+        receiptStorage.uploadDir = tempDir.resolve(name).toString();
+        receiptStorage.init();
+
+        return new PaymentService(registrations, paymentReceiptRepository, pdfValidationService,
+                new ReceiptValidationCache(1024 * 1024, 1800, new SimpleMeterRegistry()),
+                new DonationTierRegistry(new DonationTierProperties()), receiptStorage,
+                new TransactionTemplate(transactionManager), eventPublisher);
+    }
+
+    @Test
+    void processPaymentCompletion_TwoNodes_OneReceiptAndOneEvent() throws Exception {
+        PaymentService first = node("first");
+        PaymentService second = node("second");
+
+        Future<PaymentReceipt> fromFirst = executor.submit(() -> first.processPaymentCompletion(registrationId, request()));
+        Future<PaymentReceipt> fromSecond = executor.submit(() -> second.processPaymentCompletion(registrationId, request()));
+
+        PaymentReceipt a = fromFirst.get(30, TimeUnit.SECONDS);
+        PaymentReceipt b = fromSecond.get(30, TimeUnit.SECONDS);
+
+        // Проигравший узел получает чек победителя
+        assertEquals(a.getId(), b.getId());
+        List<PaymentReceipt> receipts = paymentReceiptRepository.findByRegistrationId(registrationId);
+        assertEquals(1, receipts.size());
+        assertEquals(a.getId(), receipts.get(0).getId());
+
+        Registration registration = registrationRepository.findById(registrationId).orElseThrow();
+        assertNotNull(registration.getRegistrationCompletedAt());
+        assertEquals(1L, registration.getVersion());
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentCompletedEvent.class));
+        verify(pdfValidationService, times(2)).validatePdf(any(Path.class), any());
+    }
+
+    private static PaymentCompletionRequest request() {
+        PaymentCompletionRequest request = new PaymentCompletionRequest();
+        request.setReceiptFile(new MockMultipartFile(
+                "receiptFile", "receipt.pdf", "application/pdf", "same receipt".getBytes(StandardCharsets.UTF_8)));
+        return request;
+    }
+}
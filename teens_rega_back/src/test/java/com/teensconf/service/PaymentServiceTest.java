@@ -1,20 +1,27 @@
 package com.teensconf.service;
 
+import com.teensconf.config.DonationTierProperties;
 import com.teensconf.config.TestSecurityConfig;
 import com.teensconf.dto.PaymentCompletionRequest;
 import com.teensconf.entity.PaymentReceipt;
 import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
 import com.teensconf.repository.PaymentReceiptRepository;
 import com.teensconf.repository.RegistrationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Import;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -36,10 +43,23 @@ class PaymentServiceTest {
     private PaymentReceiptRepository paymentReceiptRepository;
 
     @Mock
-    private EmailService emailService;
+    private PdfValidationService pdfValidationService;
+
+    @Spy
+    private ReceiptValidationCache validationCache =
+            new ReceiptValidationCache(1024 * 1024, 1800, new SimpleMeterRegistry());
+
+    @Spy
+    private DonationTierRegistry donationTierRegistry = new DonationTierRegistry(new DonationTierProperties());
+
+    @Spy
+    private ReceiptStorage receiptStorage = new ReceiptStorage();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @Mock
-    private PdfValidationService pdfValidationService;
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private PaymentService paymentService;
@@ -59,7 +79,7 @@ class PaymentServiceTest {
         registration.setLastName("Doe");
 
         // Используем временную директорию для тестов
-        paymentService.uploadDir = tempDir.toString();
+        receiptStorage.uploadDir = tempDir.toString();
         paymentService.init(); // Создаем директорию
     }
 
@@ -81,7 +101,7 @@ class PaymentServiceTest {
         // Используем новый ValidationResult вместо boolean
         PdfValidationService.ValidationResult validationResult =
                 PdfValidationService.ValidationResult.success();
-        when(pdfValidationService.validatePdf(any())).thenReturn(validationResult);
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenReturn(validationResult);
 
         // When
         PaymentReceipt result = paymentService.processPaymentCompletion(REGISTRATION_ID, request);
@@ -93,10 +113,12 @@ class PaymentServiceTest {
         assertEquals("receipt.pdf", result.getFileName());
         assertNotNull(result.getFilePath());
         assertTrue(result.getFilePath().contains(".pdf"));
+        assertEquals(receiptStorage.resolve(result.getContentHash()).toString(), result.getFilePath());
         assertNotNull(result.getFileSize());
         assertNotNull(registration.getRegistrationCompletedAt());
-        verify(emailService, times(1)).sendPaymentSuccessNotification(registration);
-        verify(pdfValidationService, times(1)).validatePdf(any());
+        assertSame(result, registration.getPaymentReceipt());
+        verify(eventPublisher, times(1)).publishEvent(any(PaymentCompletedEvent.class));
+        verify(pdfValidationService, times(1)).validatePdf(any(Path.class), any());
 
         // Проверяем, что файл действительно сохранен
         assertTrue(Files.exists(Path.of(result.getFilePath())));
@@ -123,8 +145,8 @@ class PaymentServiceTest {
 
         assertEquals("Файл должен быть в формате PDF", exception.getMessage());
         verify(paymentReceiptRepository, never()).save(any());
-        verify(emailService, never()).sendPaymentSuccessNotification(any());
-        verify(pdfValidationService, never()).validatePdf(any());
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
+        verify(pdfValidationService, never()).validatePdf(any(Path.class), any());
     }
 
     @Test
@@ -144,7 +166,7 @@ class PaymentServiceTest {
         // Используем новый ValidationResult с ошибкой
         PdfValidationService.ValidationResult validationResult =
                 PdfValidationService.ValidationResult.error("Чек не прошел валидацию. Не найдены реквизиты получателя");
-        when(pdfValidationService.validatePdf(any())).thenReturn(validationResult);
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenReturn(validationResult);
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -153,8 +175,8 @@ class PaymentServiceTest {
 
         assertTrue(exception.getMessage().contains("Чек не прошел валидацию"));
         verify(paymentReceiptRepository, never()).save(any());
-        verify(emailService, never()).sendPaymentSuccessNotification(any());
-        verify(pdfValidationService, times(1)).validatePdf(any());
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
+        verify(pdfValidationService, times(1)).validatePdf(any(Path.class), any());
     }
 
     @Test
@@ -170,7 +192,7 @@ class PaymentServiceTest {
         request.setReceiptFile(pdfFile);
 
         when(registrationRepository.findById(REGISTRATION_ID)).thenReturn(Optional.of(registration));
-        when(pdfValidationService.validatePdf(any())).thenThrow(new RuntimeException("Validation error"));
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenThrow(new RuntimeException("Validation error"));
 
         // When & Then
         assertThrows(RuntimeException.class, () -> {
@@ -178,7 +200,7 @@ class PaymentServiceTest {
         });
 
         verify(paymentReceiptRepository, never()).save(any());
-        verify(emailService, never()).sendPaymentSuccessNotification(any());
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
     }
 
     @Test
@@ -195,7 +217,7 @@ class PaymentServiceTest {
 
         assertEquals("Не предоставлены данные об оплате", exception.getMessage());
         verify(paymentReceiptRepository, never()).save(any());
-        verify(emailService, never()).sendPaymentSuccessNotification(any());
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
     }
 
     @Test
@@ -221,19 +243,24 @@ class PaymentServiceTest {
     @Test
     void init_CreatesUploadDirectory() {
         // Given
+        ReceiptStorage storage = new ReceiptStorage();
+        storage.uploadDir = tempDir.resolve("new-uploads").toString();
         PaymentService service = new PaymentService(
                 registrationRepository,
                 paymentReceiptRepository,
-                emailService,
-                pdfValidationService
+                pdfValidationService,
+                validationCache,
+                donationTierRegistry,
+                storage,
+                transactionTemplate,
+                eventPublisher
         );
-        service.uploadDir = tempDir.resolve("new-uploads").toString();
 
         // When
         service.init();
 
         // Then
-        assertTrue(Files.exists(Path.of(service.uploadDir)));
+        assertTrue(Files.exists(Path.of(storage.uploadDir)));
     }
 
     @Test
@@ -253,7 +280,7 @@ class PaymentServiceTest {
         // Создаем ValidationResult с детализированной ошибкой суммы
         PdfValidationService.ValidationResult validationResult =
                 PdfValidationService.ValidationResult.error("Сумма пожертвования должна быть 500 рублей. Найдены суммы: 600, 450");
-        when(pdfValidationService.validatePdf(any())).thenReturn(validationResult);
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenReturn(validationResult);
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -263,8 +290,8 @@ class PaymentServiceTest {
         assertTrue(exception.getMessage().contains("Сумма пожертвования должна быть 500 рублей"));
         assertTrue(exception.getMessage().contains("600, 450"));
         verify(paymentReceiptRepository, never()).save(any());
-        verify(emailService, never()).sendPaymentSuccessNotification(any());
-        verify(pdfValidationService, times(1)).validatePdf(any());
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
+        verify(pdfValidationService, times(1)).validatePdf(any(Path.class), any());
     }
 
     @Test
@@ -284,7 +311,7 @@ class PaymentServiceTest {
         // Создаем ValidationResult с ошибкой отсутствия получателя
         PdfValidationService.ValidationResult validationResult =
                 PdfValidationService.ValidationResult.error("Не найдены реквизиты получателя: ЦЕРКОВЬ_СЛОВО_ЖИЗНИ_SBP или Церковь \"Слово Жизни\" Саратов");
-        when(pdfValidationService.validatePdf(any())).thenReturn(validationResult);
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenReturn(validationResult);
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -294,8 +321,8 @@ class PaymentServiceTest {
         assertTrue(exception.getMessage().contains("Не найдены реквизиты получателя"));
         assertTrue(exception.getMessage().contains("ЦЕРКОВЬ_СЛОВО_ЖИЗНИ_SBP"));
         verify(paymentReceiptRepository, never()).save(any());
-        verify(emailService, never()).sendPaymentSuccessNotification(any());
-        verify(pdfValidationService, times(1)).validatePdf(any());
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
+        verify(pdfValidationService, times(1)).validatePdf(any(Path.class), any());
     }
 
     @Test
@@ -315,7 +342,7 @@ class PaymentServiceTest {
         // Создаем ValidationResult с несколькими ошибками
         PdfValidationService.ValidationResult validationResult =
                 PdfValidationService.ValidationResult.error("Не найдены реквизиты получателя: ЦЕРКОВЬ_СЛОВО_ЖИЗНИ_SBP или Церковь \"Слово Жизни\" Саратов; Не найден ИНН получателя: 6453041398; Сумма пожертвования должна быть 500 рублей. Найдены суммы: 300");
-        when(pdfValidationService.validatePdf(any())).thenReturn(validationResult);
+        when(pdfValidationService.validatePdf(any(Path.class), any())).thenReturn(validationResult);
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -326,8 +353,43 @@ class PaymentServiceTest {
         assertTrue(exception.getMessage().contains("Не найден ИНН получателя"));
         assertTrue(exception.getMessage().contains("Сумма пожертвования должна быть 500 рублей"));
         verify(paymentReceiptRepository, never()).save(any());
-        verify(emailService, never()).sendPaymentSuccessNotification(any());
-        verify(pdfValidationService, times(1)).validatePdf(any());
+        verify(eventPublisher, never()).publishEvent(any(PaymentCompletedEvent.class));
+        verify(pdfValidationService, times(1)).validatePdf(any(Path.class), any());
+    }
+
+    @Test
+    void processPaymentCompletion_ReadFailureNotCached_RetriedOnNextUpload() {
+        PaymentCompletionRequest request = new PaymentCompletionRequest();
+        request.setReceiptFile(new MockMultipartFile(
+                "receiptFile", "receipt.pdf", "application/pdf", createValidPdfContent()));
+        when(registrationRepository.findById(REGISTRATION_ID)).thenReturn(Optional.of(registration));
+        when(pdfValidationService.validatePdf(any(Path.class), any()))
+                .thenReturn(PdfValidationService.ValidationResult.readFailure("Ошибка при чтении PDF файла: timeout"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.processPaymentCompletion(REGISTRATION_ID, request));
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.processPaymentCompletion(REGISTRATION_ID, request));
+
+        // Временная ошибка чтения не попадает в кэш: тот же файл проверяется заново
+        verify(pdfValidationService, times(2)).validatePdf(any(Path.class), any());
+    }
+
+    @Test
+    void processPaymentCompletion_DefinitiveRejectionCached() {
+        PaymentCompletionRequest request = new PaymentCompletionRequest();
+        request.setReceiptFile(new MockMultipartFile(
+                "receiptFile", "receipt.pdf", "application/pdf", createValidPdfContent()));
+        when(registrationRepository.findById(REGISTRATION_ID)).thenReturn(Optional.of(registration));
+        when(pdfValidationService.validatePdf(any(Path.class), any()))
+                .thenReturn(PdfValidationService.ValidationResult.error("Сумма пожертвования должна быть 500 рублей"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.processPaymentCompletion(REGISTRATION_ID, request));
+        assertThrows(IllegalArgumentException.class,
+                () -> paymentService.processPaymentCompletion(REGISTRATION_ID, request));
+
+        verify(pdfValidationService, times(1)).validatePdf(any(Path.class), any());
     }
 
     private byte[] createValidPdfContent() {
@@ -0,0 +1,70 @@
+package com.teensconf.service;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.teensconf.entity.Registration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrCodeServiceTest {
+
+    private QrCodeService qrCodeService;
+    private TicketCodec ticketCodec;
+    private Registration registration;
+
+    @BeforeEach
+    void setUp() {
+        ticketCodec = new TicketCodec("test-secret");
+        qrCodeService = new QrCodeService(ticketCodec, 16);
+
+        registration = new Registration();
+        registration.setId(42L);
+        registration.setFirstName("Иван");
+        registration.setLastName("Иванов");
+        registration.setRegistrationCreatedAt(LocalDateTime.of(2025, 5, 1, 10, 0));
+    }
+
+    @Test
+    void generateRegistrationQrCodeBytes_ProducesDecodablePng() throws Exception {
+        byte[] png = qrCodeService.generateRegistrationQrCodeBytes(registration);
+
+        assertNotNull(png);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(image);
+        assertTrue(image.getWidth() >= 250 && image.getWidth() <= 300);
+        assertEquals(image.getWidth(), image.getHeight());
+
+        String decoded = new QRCodeReader()
+                .decode(new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image))))
+                .getText();
+        assertEquals(42L, ticketCodec.decode(decoded).getRegistrationId());
+    }
+
+    @Test
+    void generateRegistrationQrCodeBytes_CachesPerRegistration() {
+        byte[] first = qrCodeService.generateRegistrationQrCodeBytes(registration);
+        byte[] second = qrCodeService.generateRegistrationQrCodeBytes(registration);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void generateRegistrationQrCodeBytes_ContentChange_ReencodesQr() {
+        byte[] beforePayment = qrCodeService.generateRegistrationQrCodeBytes(registration);
+
+        registration.setRegistrationCompletedAt(LocalDateTime.of(2025, 6, 1, 12, 0));
+        byte[] afterPayment = qrCodeService.generateRegistrationQrCodeBytes(registration);
+
+        assertNotSame(beforePayment, afterPayment);
+        assertTrue(ticketCodec.decode(qrCodeService.buildQrContent(registration)).hasFlag(TicketCodec.FLAG_PAID));
+    }
+}
@@ -0,0 +1,153 @@
+package com.teensconf.service;
+
+import com.teensconf.config.ReplicaReads;
+import com.teensconf.dto.ReceiptArchiveEntry;
+import com.teensconf.repository.PaymentReceiptRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiptArchiveServiceTest {
+
+    private static final int RECEIPTS = 205;
+
+    @Mock
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private ReceiptArchiveService service;
+    private final List<ReceiptArchiveEntry> receipts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new ReceiptArchiveService(paymentReceiptRepository, new ReceiptStorage(),
+                new ReplicaReads(mock(PlatformTransactionManager.class)));
+        for (long id = 1; id <= RECEIPTS; id++) {
+            String hash = String.format("%064x", id);
+            Path file = tempDir.resolve(hash + ".pdf");
+            // У каждого пятидесятого чека файла на диске нет
+            if (id % 50 != 0) {
+                Files.writeString(file, "pdf-" + id);
+            }
+            receipts.add(new ReceiptArchiveEntry(id, 1000 + id, "Анна", "Иванова", "anna" + id + "@example.com",
+                    "check.pdf", file.toString(), 7L, hash, id % 2 == 0, 500.0, LocalDateTime.of(2026, 5, 1, 12, 0)));
+        }
+    }
+
+    @Test
+    void writeArchive_ManifestMatchesEntries() throws Exception {
+        when(paymentReceiptRepository.findArchiveChunk(anyLong(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long afterId = invocation.getArgument(0);
+                    Pageable page = invocation.getArgument(4);
+                    // Файл чека из второй порции удалён, пока выгружалась первая
+                    if (afterId > 0) {
+                        Files.deleteIfExists(Path.of(receipts.get(200).getFilePath()));
+                    }
+                    return receipts.stream()
+                            .filter(entry -> entry.getReceiptId() > afterId)
+                            .limit(page.getPageSize())
+                            .collect(Collectors.toList());
+                });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeArchive(out, null, null, null);
+
+        Map<String, String> entries = unzip(out.toByteArray());
+        List<String> names = new ArrayList<>(entries.keySet());
+        assertEquals("manifest.csv", names.get(names.size() - 1));
+
+        String manifest = entries.remove("manifest.csv");
+        assertTrue(manifest.startsWith("\uFEFFreceipt_id;"));
+        List<String[]> rows = manifest.lines()
+                .skip(1)
+                .map(line -> line.split(";", -1))
+                .collect(Collectors.toList());
+        assertEquals(RECEIPTS, rows.size());
+
+        List<String> listed = new ArrayList<>();
+        int missing = 0;
+        for (String[] row : rows) {
+            String archiveFile = row[9];
+            if ("ok".equals(row[12])) {
+                listed.add(archiveFile);
+                assertEquals("pdf-" + row[0], entries.get(archiveFile));
+            } else {
+                assertEquals("file_missing", row[12]);
+                assertEquals("", archiveFile);
+                missing++;
+            }
+        }
+        // Четыре чека без файла изначально и один удалённый во время выгрузки
+        assertEquals(5, missing);
+        assertEquals(listed, new ArrayList<>(entries.keySet()));
+        assertTrue(listed.contains("receipts/1001_Anna_Ivanova_00000000.pdf"));
+        // Два прохода по две порции: файлы, затем опись
+        verify(paymentReceiptRepository, times(4))
+                .findArchiveChunk(anyLong(), isNull(), isNull(), isNull(), any(Pageable.class));
+    }
+
+    @Test
+    void writeArchive_ReceiptsChangedBetweenPasses_MarkedInManifest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ReceiptArchiveEntry added = new ReceiptArchiveEntry(3L, 1003L, "Анна", "Иванова", "anna3@example.com",
+                "check.pdf", null, 7L, String.format("%064x", 3), false, 500.0, LocalDateTime.of(2026, 5, 1, 12, 0));
+        when(paymentReceiptRepository.findArchiveChunk(anyLong(), isNull(), isNull(), isNull(), any(Pageable.class)))
+                .thenAnswer(invocation -> calls.getAndIncrement() == 0
+                        // Первый проход: чеки 1, 2 и 4
+                        ? List.of(receipts.get(0), receipts.get(1), receipts.get(3))
+                        // Второй проход: чек 2 исключён, чек 3 появился, чек 5 добавлен после первого прохода
+                        : List.of(receipts.get(0), added, receipts.get(3), receipts.get(4)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeArchive(out, null, null, null);
+
+        Map<String, String> entries = unzip(out.toByteArray());
+        Map<String, String> statuses = entries.get("manifest.csv").lines()
+                .skip(1)
+                .map(line -> line.split(";", -1))
+                .collect(Collectors.toMap(row -> row[0], row -> row[12], (a, b) -> a, LinkedHashMap::new));
+        assertEquals(Map.of("1", "ok", "3", "added_during_export", "4", "ok", "2", "removed_during_export"), statuses);
+        assertEquals(4, entries.size());
+    }
+
+    private static Map<String, String> unzip(byte[] archive) throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,94 @@
+package com.teensconf.service;
+
+import com.teensconf.repository.PaymentReceiptRepository;
+import com.teensconf.util.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiptOrphanSweeperTest {
+
+    @Mock
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private final ReceiptStorage storage = new ReceiptStorage();
+
+    private ReceiptOrphanSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        storage.uploadDir = tempDir.toString();
+        storage.init();
+        sweeper = new ReceiptOrphanSweeper(storage, paymentReceiptRepository, 24);
+    }
+
+    private String store(String content, Duration age) throws Exception {
+        String hash = Hashing.sha256Hex(content.getBytes(StandardCharsets.UTF_8));
+        Path file = storage.createTempFile();
+        Files.writeString(file, content);
+        Path stored = storage.store(file, hash);
+        Files.setLastModifiedTime(stored, FileTime.from(Instant.now().minus(age)));
+        return hash;
+    }
+
+    @Test
+    void sweep_RemovesOnlyOldUnreferencedFiles() throws Exception {
+        String orphan = store("orphan", Duration.ofDays(2));
+        String referenced = store("referenced", Duration.ofDays(2));
+        String fresh = store("fresh", Duration.ofMinutes(5));
+        Path staleUpload = Files.writeString(storage.createTempFile(), "part");
+        Files.setLastModifiedTime(staleUpload, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        when(paymentReceiptRepository.existsByContentHash(orphan)).thenReturn(false);
+        when(paymentReceiptRepository.existsByContentHash(referenced)).thenReturn(true);
+
+        sweeper.sweep();
+
+        assertFalse(Files.exists(storage.resolve(orphan)));
+        assertTrue(Files.exists(storage.resolve(referenced)));
+        assertTrue(Files.exists(storage.resolve(fresh)));
+        assertTrue(Files.exists(staleUpload));
+        // Свежий файл мог только что загрузить участник, чья оплата ещё не записана в базу
+        verify(paymentReceiptRepository, never()).existsByContentHash(fresh);
+    }
+
+    @Test
+    void sweep_FileReusedByUploadIsKept() throws Exception {
+        String hash = store("reused", Duration.ofDays(2));
+        when(paymentReceiptRepository.existsByContentHash(hash)).thenAnswer(invocation -> {
+            // Тот же PDF загружают повторно, пока чек ещё не сохранён
+            Path upload = storage.createTempFile();
+            Files.writeString(upload, "reused");
+            storage.store(upload, hash);
+            return false;
+        });
+
+        sweeper.sweep();
+
+        assertEquals("reused", Files.readString(storage.resolve(hash)));
+    }
+
+    @Test
+    void sweep_MissingUploadDir_DoesNothing() throws Exception {
+        storage.uploadDir = tempDir.resolve("missing").toString();
+
+        assertDoesNotThrow(sweeper::sweep);
+        verifyNoInteractions(paymentReceiptRepository);
+    }
+}
@@ -0,0 +1,150 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.ReceiptReviewResult;
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.repository.PaymentReceiptRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiptReviewServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final DataVersion dataVersion = new DataVersion();
+
+    private ReceiptReviewService service;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReceiptReviewService(jdbcTemplate, paymentReceiptRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), eventPublisher, dataVersion,
+                new SimpleMeterRegistry());
+    }
+
+    private static PaymentReceipt receipt(long registrationId) {
+        Registration registration = new Registration();
+        registration.setId(registrationId);
+        PaymentReceipt receipt = new PaymentReceipt();
+        receipt.setRegistration(registration);
+        return receipt;
+    }
+
+    private static int[] ones(int size) {
+        int[] counts = new int[size];
+        Arrays.fill(counts, 1);
+        return counts;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void verify_CompletesInBatchesAndPublishesEvents() {
+        List<Long> ids = LongStream.rangeClosed(1, 450).boxed().collect(Collectors.toList());
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE registrations"), anyList()))
+                .thenAnswer(invocation -> {
+                    int[] counts = ones(((List<Object[]>) invocation.getArgument(1)).size());
+                    // Регистрация 3 уже завершена или без непроверенного чека
+                    if (((List<Object[]>) invocation.getArgument(1)).get(0)[1].equals(1L)) {
+                        counts[2] = 0;
+                    }
+                    return counts;
+                });
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE payment_receipts"), anyList()))
+                .thenAnswer(invocation -> ones(((List<Object[]>) invocation.getArgument(1)).size()));
+        when(paymentReceiptRepository.findWithRegistrationByRegistrationIdIn(anyList()))
+                .thenAnswer(invocation -> ((List<Long>) invocation.getArgument(0)).stream()
+                        .map(ReceiptReviewServiceTest::receipt)
+                        .collect(Collectors.toList()));
+
+        ReceiptReviewResult result = service.verify(ids);
+
+        assertEquals(450, result.getRequested());
+        assertEquals(449, result.getApplied());
+        assertEquals(List.of(3L), result.getSkipped());
+        // 450 регистраций - три порции по 200, а не 450 отдельных запросов
+        verify(jdbcTemplate, times(3)).batchUpdate(startsWith("UPDATE registrations"), anyList());
+        ArgumentCaptor<List<Object[]>> receipts = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(startsWith("UPDATE payment_receipts"), receipts.capture());
+        assertEquals(199, receipts.getAllValues().get(0).size());
+        verify(eventPublisher, times(449)).publishEvent(any(PaymentCompletedEvent.class));
+    }
+
+    @Test
+    void verify_NothingApplicable_SkipsReceiptUpdate() {
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE registrations"), anyList())).thenReturn(new int[]{0, 0});
+
+        ReceiptReviewResult result = service.verify(List.of(5L, 6L, 5L));
+
+        assertEquals(2, result.getRequested());
+        assertEquals(0, result.getApplied());
+        assertEquals(List.of(5L, 6L), result.getSkipped());
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE payment_receipts"), anyList());
+        verifyNoInteractions(eventPublisher, paymentReceiptRepository);
+    }
+
+    @Test
+    void reject_DeletesReceiptsButLeavesFilesToSweeper() throws Exception {
+        Path stored = Files.writeString(tempDir.resolve("receipt.pdf"), "pdf");
+        when(jdbcTemplate.batchUpdate(startsWith("DELETE FROM payment_receipts"), anyList()))
+                .thenReturn(new int[]{1, 0});
+        long version = dataVersion.current();
+
+        ReceiptReviewResult result = service.reject(List.of(1L, 2L));
+
+        assertEquals(1, result.getApplied());
+        assertEquals(List.of(2L), result.getSkipped());
+        // Проверка ссылок и удаление гонялись бы с повторной загрузкой того же PDF
+        assertTrue(Files.exists(stored));
+        verifyNoInteractions(paymentReceiptRepository);
+        assertTrue(dataVersion.current() > version);
+    }
+
+    @Test
+    void invalidInput_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.verify(null));
+        assertThrows(IllegalArgumentException.class, () -> service.reject(List.of()));
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 1; id <= ReceiptReviewService.MAX_REGISTRATIONS + 1; id++) {
+            tooMany.add(id);
+        }
+        assertThrows(IllegalArgumentException.class, () -> service.verify(tooMany));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
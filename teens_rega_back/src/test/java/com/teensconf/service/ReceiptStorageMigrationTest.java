@@ -0,0 +1,111 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.repository.PaymentReceiptRepository;
+import com.teensconf.util.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiptStorageMigrationTest {
+
+    @Mock
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private final ReceiptStorage receiptStorage = new ReceiptStorage();
+
+    private ReceiptStorageMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        receiptStorage.uploadDir = tempDir.resolve("store").toString();
+        receiptStorage.init();
+        migration = new ReceiptStorageMigration(paymentReceiptRepository, receiptStorage);
+    }
+
+    private PaymentReceipt legacyReceipt(long id, String content) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("receipt_" + id + ".pdf"), content);
+        PaymentReceipt receipt = new PaymentReceipt();
+        receipt.setId(id);
+        receipt.setFilePath(file.toString());
+        return receipt;
+    }
+
+    private void givenReceipts(PaymentReceipt... receipts) {
+        when(paymentReceiptRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(receipts)));
+    }
+
+    @Test
+    void run_MovesFilesIntoHashStorage() throws Exception {
+        PaymentReceipt receipt = legacyReceipt(1, "чек 1");
+        Path legacy = Path.of(receipt.getFilePath());
+        String hash = Hashing.sha256Hex(legacy);
+        givenReceipts(receipt);
+
+        migration.run(null);
+
+        assertEquals(hash, receipt.getContentHash());
+        assertEquals(receiptStorage.resolve(hash).toString(), receipt.getFilePath());
+        assertEquals("чек 1", Files.readString(receiptStorage.resolve(hash)));
+        assertFalse(Files.exists(legacy));
+        verify(paymentReceiptRepository).save(receipt);
+    }
+
+    @Test
+    void run_SaveFails_OldFileKept() throws Exception {
+        PaymentReceipt failing = legacyReceipt(1, "чек 1");
+        PaymentReceipt next = legacyReceipt(2, "чек 2");
+        Path failingFile = Path.of(failing.getFilePath());
+        givenReceipts(failing, next);
+        when(paymentReceiptRepository.save(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == failing) {
+                throw new DataAccessResourceFailureException("down");
+            }
+            return invocation.getArgument(0);
+        });
+
+        migration.run(null);
+
+        // Запись чека в базе по-прежнему указывает на старый файл - он не удалён
+        assertTrue(Files.exists(failingFile));
+        // Сбой одной записи не останавливает перенос остальных
+        assertFalse(Files.exists(tempDir.resolve("receipt_2.pdf")));
+        verify(paymentReceiptRepository).save(next);
+    }
+
+    @Test
+    void run_AlreadyMigratedOrMissing_Skipped() throws Exception {
+        PaymentReceipt stored = legacyReceipt(1, "чек 1");
+        String hash = Hashing.sha256Hex(Path.of(stored.getFilePath()));
+        Path target = receiptStorage.storeCopy(Path.of(stored.getFilePath()), hash);
+        stored.setFilePath(target.toString());
+        stored.setContentHash(hash);
+        PaymentReceipt missing = new PaymentReceipt();
+        missing.setId(2L);
+        missing.setFilePath(tempDir.resolve("gone.pdf").toString());
+        givenReceipts(stored, missing);
+
+        migration.run(null);
+
+        verify(paymentReceiptRepository, never()).save(any());
+        assertTrue(Files.exists(target));
+    }
+}
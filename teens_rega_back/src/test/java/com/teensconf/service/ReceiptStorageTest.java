@@ -0,0 +1,114 @@
+package com.teensconf.service;
+
+import com.teensconf.util.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ReceiptStorage storage = new ReceiptStorage();
+
+    @BeforeEach
+    void setUp() {
+        storage.uploadDir = tempDir.toString();
+        storage.init();
+    }
+
+    private Path incoming(String content) throws Exception {
+        Path file = storage.createTempFile();
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    void resolve_ShardsByHashPrefix() {
+        String hash = "ab" + "cd" + "0".repeat(60);
+
+        assertEquals(tempDir.resolve("ab").resolve("cd").resolve(hash + ".pdf"), storage.resolve(hash));
+        assertThrows(IllegalArgumentException.class, () -> storage.resolve("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> storage.resolve(hash.toUpperCase()));
+    }
+
+    @Test
+    void store_SameContentStoredOnce() throws Exception {
+        String hash = Hashing.sha256Hex("чек".getBytes(StandardCharsets.UTF_8));
+        Path first = incoming("чек");
+        Path second = incoming("чек");
+
+        Path stored = storage.store(first, hash);
+        Path again = storage.store(second, hash);
+
+        assertEquals(stored, again);
+        assertEquals("чек", Files.readString(stored));
+        assertFalse(Files.exists(first));
+        assertFalse(Files.exists(second));
+        assertTrue(storage.isStored(stored, hash));
+        assertFalse(storage.isStored(tempDir.resolve("receipt.pdf"), hash));
+        assertFalse(storage.isStored(stored, null));
+    }
+
+    @Test
+    void storeCopy_KeepsSource() throws Exception {
+        Path legacy = Files.writeString(tempDir.resolve("legacy.pdf"), "старый чек");
+        String hash = Hashing.sha256Hex(legacy);
+
+        Path stored = storage.storeCopy(legacy, hash);
+
+        assertTrue(Files.exists(legacy));
+        assertEquals("старый чек", Files.readString(stored));
+        try (var leftovers = Files.list(storage.incomingDir())) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    @Test
+    void store_ReuseRefreshesModificationTime() throws Exception {
+        String hash = Hashing.sha256Hex("чек".getBytes(StandardCharsets.UTF_8));
+        Path stored = storage.store(incoming("чек"), hash);
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(3)));
+        Files.setLastModifiedTime(stored, old);
+
+        storage.store(incoming("чек"), hash);
+
+        assertTrue(Files.getLastModifiedTime(stored).compareTo(old) > 0);
+    }
+
+    @Test
+    void discardIfStale_RemovesOnlyUntouchedFiles() throws Exception {
+        String hash = Hashing.sha256Hex("чек".getBytes(StandardCharsets.UTF_8));
+        Path stored = storage.store(incoming("чек"), hash);
+        Instant cutoff = Instant.now().minus(Duration.ofHours(24));
+
+        assertFalse(storage.discardIfStale(hash, cutoff));
+        assertEquals("чек", Files.readString(stored));
+
+        Files.setLastModifiedTime(stored, FileTime.from(cutoff.minus(Duration.ofHours(1))));
+        assertTrue(storage.discardIfStale(hash, cutoff));
+        assertFalse(Files.exists(stored));
+        assertFalse(storage.discardIfStale(hash, cutoff));
+        try (var leftovers = Files.list(storage.incomingDir())) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    @Test
+    void aliasFor_TransliteratesNameAndAddsHashPrefix() {
+        String hash = "0123456789" + "a".repeat(54);
+
+        assertEquals("42_Petr_Ivanov_Sidorov_01234567.pdf", storage.aliasFor(42L, "Пётр", "Иванов-Сидоров", hash));
+        assertEquals("7_Anna_Smith.pdf", storage.aliasFor(7L, "Anna", "Smith", null));
+    }
+}
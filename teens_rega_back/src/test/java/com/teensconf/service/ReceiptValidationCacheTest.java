@@ -0,0 +1,47 @@
+package com.teensconf.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptValidationCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_AfterPut_ReturnsCachedResultAndCountsHit() {
+        ReceiptValidationCache cache = new ReceiptValidationCache(1024 * 1024, 1800, meterRegistry);
+        PdfValidationService.ValidationResult result = PdfValidationService.ValidationResult.success("A531717144403604");
+
+        assertNull(cache.get("abc"));
+        cache.put("abc", result);
+
+        assertSame(result, cache.get("abc"));
+        assertEquals(1.0, meterRegistry.get("receipt.validation.cache").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("receipt.validation.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_ExpiredEntry_ReturnsNull() {
+        ReceiptValidationCache cache = new ReceiptValidationCache(1024 * 1024, 0, meterRegistry);
+        cache.put("abc", PdfValidationService.ValidationResult.success());
+
+        assertNull(cache.get("abc"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_OverWeightLimit_EvictsLeastRecentlyUsed() {
+        ReceiptValidationCache cache = new ReceiptValidationCache(600, 1800, meterRegistry);
+        cache.put("first", PdfValidationService.ValidationResult.error("Сумма пожертвования должна быть 500 рублей"));
+        cache.put("second", PdfValidationService.ValidationResult.error("Сумма пожертвования должна быть 500 рублей"));
+        cache.get("first");
+        cache.put("third", PdfValidationService.ValidationResult.error("Сумма пожертвования должна быть 500 рублей"));
+
+        assertNotNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertTrue(cache.weight() <= 600);
+    }
+}
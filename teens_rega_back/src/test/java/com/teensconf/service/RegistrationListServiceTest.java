@@ -0,0 +1,109 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.KeysetPage;
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistrationListServiceTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 5, 1, 10, 15, 30, 123_456_000);
+
+    @Mock
+    private RegistrationRepository registrationRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private RegistrationListService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RegistrationListService(registrationRepository, jdbcTemplate);
+    }
+
+    @Test
+    void getPage_FirstPage_ReturnsCursorOfLastRow() {
+        when(registrationRepository.findListPage(argThat((Pageable p) -> p.getPageSize() == 3)))
+                .thenReturn(items(3));
+
+        KeysetPage<RegistrationListItem> page = service.getPage(null, 2, false);
+
+        assertEquals(2, page.getItems().size());
+        assertNull(page.getApproximateTotal());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(CREATED_AT.minusMinutes(1), cursor.getCreatedAt());
+        assertEquals(99L, cursor.getId());
+        verify(registrationRepository, never()).count();
+    }
+
+    @Test
+    void getPage_NextPage_SeeksAfterCursor() {
+        String cursor = new KeysetCursor(CREATED_AT, 42L).encode();
+        when(registrationRepository.findListPageAfter(eq(CREATED_AT), eq(42L), any(Pageable.class)))
+                .thenReturn(items(1));
+
+        KeysetPage<RegistrationListItem> page = service.getPage(cursor, 2, false);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        verify(registrationRepository, never()).findListPage(any());
+    }
+
+    @Test
+    void getPage_SizeIsCapped() {
+        when(registrationRepository.findListPage(any(Pageable.class))).thenReturn(List.of());
+
+        service.getPage(null, 100_000, false);
+
+        verify(registrationRepository).findListPage(argThat((Pageable p) ->
+                p.getPageSize() == RegistrationListService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void getPage_WithTotal_FallsBackToCountOutsidePostgres() {
+        when(registrationRepository.findListPage(any(Pageable.class))).thenReturn(List.of());
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+        when(registrationRepository.count()).thenReturn(7L);
+
+        assertEquals(7L, service.getPage(null, 10, true).getApproximateTotal());
+        assertEquals(7L, service.getPage(null, 10, true).getApproximateTotal());
+
+        // Тип базы определяется один раз
+        verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+    }
+
+    @Test
+    void getPage_MalformedCursor_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.getPage("not-a-cursor", 10, false));
+        verifyNoInteractions(registrationRepository);
+    }
+
+    private static List<RegistrationListItem> items(int count) {
+        List<RegistrationListItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new RegistrationListItem(100L - i, "Иван", "Иванов", "ivan@example.com", "+70000000000",
+                    "Москва", "подросток", false, CREATED_AT.minusMinutes(i), null, null));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,117 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.RegistrationListItem;
+import com.teensconf.dto.RegistrationSearchRow;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.RegistrationCreatedEvent;
+import com.teensconf.repository.RegistrationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistrationSearchServiceTest {
+
+    @Mock
+    private RegistrationRepository registrationRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private RegistrationSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RegistrationSearchService(registrationRepository, jdbcTemplate, new SimpleMeterRegistry());
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+        when(registrationRepository.findSearchChunk(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new RegistrationSearchRow(1L, "Иван", "Петров", "ivan@mail.ru", "+79261234567", "Москва", "Благодать"),
+                new RegistrationSearchRow(2L, "Олег", "Сидоров", "oleg@mail.ru", "+79035550000", "Казань", "Слово жизни")));
+        service.initialize();
+    }
+
+    @Test
+    void search_InMemory_ReturnsRankedItems() {
+        when(registrationRepository.findListItemsByIds(List.of(2L))).thenReturn(List.of(item(2L)));
+
+        List<RegistrationListItem> result = service.search("сидор", 10);
+
+        assertEquals(1, result.size());
+        assertEquals(2L, result.get(0).getId());
+    }
+
+    @Test
+    void search_KeepsRankOrderOfLoadedRows() {
+        when(registrationRepository.findListItemsByIds(any())).thenReturn(List.of(item(1L), item(2L)));
+
+        // Одинаковый ранг - новые регистрации выше, хотя база вернула строки по возрастанию id
+        List<RegistrationListItem> result = service.search("mail", 10);
+
+        assertEquals(List.of(2L, 1L), List.of(result.get(0).getId(), result.get(1).getId()));
+    }
+
+    @Test
+    void search_TooShortQuery_DoesNotHitDatabase() {
+        assertTrue(service.search(" и ", 10).isEmpty());
+        verify(registrationRepository, never()).findListItemsByIds(any());
+    }
+
+    @Test
+    void onRegistrationCreated_NewRegistrationIsSearchable() {
+        Registration registration = new Registration();
+        registration.setId(3L);
+        registration.setFirstName("Мария");
+        registration.setLastName("Кузнецова");
+        registration.setEmail("maria@mail.ru");
+        registration.setPhone("+79990001122");
+        registration.setCity("Тула");
+        registration.setChurch("Благодать");
+        when(registrationRepository.findListItemsByIds(List.of(3L))).thenReturn(List.of(item(3L)));
+
+        service.onRegistrationCreated(new RegistrationCreatedEvent(registration));
+
+        assertEquals(3L, service.search("кузнец", 10).get(0).getId());
+    }
+
+    @Test
+    void refreshIndex_PicksUpRegistrationsFromOtherInstances() {
+        when(registrationRepository.findSearchChunk(eq(2L), any(Pageable.class))).thenReturn(List.of(
+                new RegistrationSearchRow(3L, "Анна", "Волкова", "anna@mail.ru", "+79160000000", "Тверь", "Благодать")));
+        when(registrationRepository.findListItemsByIds(List.of(3L))).thenReturn(List.of(item(3L)));
+
+        service.refreshIndex();
+
+        assertEquals(3L, service.search("волков", 10).get(0).getId());
+    }
+
+    @Test
+    void rebuildIndex_ReflectsEditsAndDeletes() {
+        when(registrationRepository.findSearchChunk(eq(0L), any(Pageable.class))).thenReturn(List.of(
+                new RegistrationSearchRow(2L, "Олег", "Смирнов", "oleg@mail.ru", "+79035550000", "Казань", "Слово жизни")));
+        when(registrationRepository.findListItemsByIds(List.of(2L))).thenReturn(List.of(item(2L)));
+
+        service.rebuildIndex();
+
+        assertTrue(service.search("сидор", 10).isEmpty());
+        assertTrue(service.search("петров", 10).isEmpty());
+        assertEquals(2L, service.search("смирн", 10).get(0).getId());
+    }
+
+    private static RegistrationListItem item(long id) {
+        return new RegistrationListItem(id, "Имя", "Фамилия", "mail@example.com", "+70000000000",
+                "Москва", "подросток", false, null, null, null);
+    }
+}
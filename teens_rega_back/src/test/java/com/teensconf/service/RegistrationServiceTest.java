@@ -3,12 +3,14 @@ package com.teensconf.service;
 import com.teensconf.config.TestSecurityConfig;
 import com.teensconf.dto.RegistrationRequest;
 import com.teensconf.entity.Registration;
+import com.teensconf.event.RegistrationCreatedEvent;
 import com.teensconf.repository.RegistrationRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Import;
 
 import java.time.LocalDateTime;
@@ -30,6 +32,9 @@ class RegistrationServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private RegistrationService registrationService;
 
@@ -58,6 +63,7 @@ class RegistrationServiceTest {
         verify(registrationRepository, times(1)).save(any(Registration.class));
         verify(emailService, times(1)).sendRegistrationConfirmation(any(Registration.class));
         verify(yandexSheetsService, times(1)).uploadRegistrationsToDisk();
+        verify(eventPublisher, times(1)).publishEvent(any(RegistrationCreatedEvent.class));
     }
 
     @Test
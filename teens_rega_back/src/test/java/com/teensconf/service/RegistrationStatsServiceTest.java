@@ -0,0 +1,165 @@
+package com.teensconf.service;
+
+import com.teensconf.config.ReplicaReads;
+import com.teensconf.dto.RegistrationStats;
+import com.teensconf.entity.PaymentReceipt;
+import com.teensconf.entity.Registration;
+import com.teensconf.event.PaymentCompletedEvent;
+import com.teensconf.event.RegistrationCreatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistrationStatsServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final DataVersion dataVersion = new DataVersion();
+
+    private RegistrationStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RegistrationStatsService(jdbcTemplate,
+                new ReplicaReads(mock(PlatformTransactionManager.class)), dataVersion, new SimpleMeterRegistry());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenGroups(RegistrationStatsService.Group... groups) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(List.of(groups));
+    }
+
+    @Test
+    void getStats_ReconcilesOnceAndServesFromMemory() {
+        String teen = birthDate(15);
+        givenGroups(
+                new RegistrationStatsService.Group("Участник", "Москва", "Благодать", true, teen, 3, 2),
+                new RegistrationStatsService.Group("Участник", "Москва ", "Благодать", false, teen, 1, 0),
+                new RegistrationStatsService.Group("Служитель", "Казань", "Слово жизни", false, birthDate(30), 2, 2));
+
+        RegistrationStats stats = service.getStats();
+        service.getStats();
+
+        assertEquals(6, stats.getTotalRegistrations());
+        assertEquals(4, stats.getCompletedRegistrations());
+        assertEquals(2, stats.getPendingRegistrations());
+        assertEquals(new RegistrationStats.Counts(3, 2), stats.getNeedAccommodation());
+        assertEquals(new RegistrationStats.Counts(4, 2), stats.getByCity().get("Москва"));
+        assertEquals(List.of("Участник", "Служитель"), List.copyOf(stats.getByRole().keySet()));
+        assertEquals(new RegistrationStats.Counts(4, 2), stats.getByAgeGroup().get("14-17"));
+        assertEquals(new RegistrationStats.Counts(2, 2), stats.getByAgeGroup().get("25+"));
+        assertNotNull(stats.getReconciledAt());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class));
+    }
+
+    @Test
+    void events_UpdateCountersIncrementally() {
+        givenGroups(new RegistrationStatsService.Group("Участник", "Москва", "Благодать", false, birthDate(15), 1, 0));
+        service.getStats();
+
+        Registration registration = registration("Участник", "Тула", birthDate(12));
+        service.onRegistrationCreated(new RegistrationCreatedEvent(registration));
+        service.onPaymentCompleted(new PaymentCompletedEvent(registration, new PaymentReceipt()));
+
+        RegistrationStats stats = service.getStats();
+        assertEquals(2, stats.getTotalRegistrations());
+        assertEquals(1, stats.getCompletedRegistrations());
+        assertEquals(new RegistrationStats.Counts(1, 1), stats.getByCity().get("Тула"));
+        assertEquals(new RegistrationStats.Counts(2, 1), stats.getByRole().get("Участник"));
+        assertEquals(new RegistrationStats.Counts(1, 1), stats.getByAgeGroup().get("до 14"));
+        assertEquals(2, dataVersion.current());
+    }
+
+    @Test
+    void reconcile_ReplacesDriftedCounters() {
+        givenGroups(new RegistrationStatsService.Group("Участник", "Москва", "Благодать", false, birthDate(15), 1, 0));
+        service.getStats();
+        service.onRegistrationCreated(new RegistrationCreatedEvent(registration("Участник", "Москва", birthDate(15))));
+
+        // Вторая регистрация в базе так и не появилась - пересчёт возвращает счётчики к фактическим
+        service.reconcile();
+
+        assertEquals(1, service.getStats().getTotalRegistrations());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_DatabaseFailure_KeepsPreviousCounters() {
+        givenGroups(new RegistrationStatsService.Group("Участник", "Москва", "Благодать", false, birthDate(15), 5, 1));
+        service.getStats();
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        service.reconcile();
+
+        assertEquals(5, service.getStats().getTotalRegistrations());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcileAfterRemoteWrites_RecountsAndInvalidatesCachedStats() {
+        DataVersion sharedVersion = mock(DataVersion.class);
+        when(sharedVersion.remoteWrites()).thenReturn(0L, 2L, 2L);
+        service = new RegistrationStatsService(jdbcTemplate,
+                new ReplicaReads(mock(PlatformTransactionManager.class)), sharedVersion, new SimpleMeterRegistry());
+        givenGroups(new RegistrationStatsService.Group("Участник", "Москва", "Благодать", false, birthDate(15), 1, 0));
+        service.getStats();
+
+        service.reconcileAfterRemoteWrites();
+        verify(sharedVersion, never()).bump();
+
+        // Другой экземпляр принял регистрацию и оплату: до этого узла события не дошли
+        givenGroups(new RegistrationStatsService.Group("Участник", "Москва", "Благодать", false, birthDate(15), 2, 1));
+        service.reconcileAfterRemoteWrites();
+        service.reconcileAfterRemoteWrites();
+
+        assertEquals(2, service.getStats().getTotalRegistrations());
+        assertEquals(1, service.getStats().getCompletedRegistrations());
+        verify(sharedVersion, atLeastOnce()).bump();
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class));
+    }
+
+    @Test
+    void ageGroup_BoundariesAndUnparsableDates() {
+        LocalDate today = LocalDate.of(2025, 7, 1);
+        assertEquals("до 14", RegistrationStatsService.ageGroup("02/07/2011", today));
+        assertEquals("14-17", RegistrationStatsService.ageGroup("01/07/2011", today));
+        assertEquals("18-24", RegistrationStatsService.ageGroup("01/07/2007", today));
+        assertEquals("25+", RegistrationStatsService.ageGroup("01/07/2000", today));
+        assertEquals(RegistrationStatsService.UNKNOWN, RegistrationStatsService.ageGroup("2000-07-01", today));
+        assertEquals(RegistrationStatsService.UNKNOWN, RegistrationStatsService.ageGroup(null, today));
+    }
+
+    private static String birthDate(int age) {
+        return LocalDate.now().minusYears(age).minusDays(1)
+                .format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+    }
+
+    private static Registration registration(String role, String city, String birthDate) {
+        Registration registration = new Registration();
+        registration.setId(100L);
+        registration.setRole(role);
+        registration.setCity(city);
+        registration.setChurch("Благодать");
+        registration.setBirthDate(birthDate);
+        return registration;
+    }
+}
@@ -0,0 +1,184 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.ReminderRecipient;
+import com.teensconf.entity.ReminderCampaign;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.repository.ReminderCampaignRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReminderCampaignServiceTest {
+
+    private static final String TEMPLATE = "<p>Привет, {{fullName}}!</p>";
+
+    @Mock
+    private RegistrationRepository registrationRepository;
+
+    @Mock
+    private ReminderCampaignRepository campaignRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private EmailDispatcher emailDispatcher;
+
+    private ReminderCampaignService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReminderCampaignService(registrationRepository, campaignRepository, emailService, emailDispatcher, 2, 1, 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void run_SendsChunksAndCheckpointsEach() {
+        leaseAvailable();
+        when(campaignRepository.findById(1L)).thenReturn(Optional.of(campaign(0L)));
+        when(registrationRepository.findReminderChunk(eq(0L), eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(recipient(2L), recipient(5L)));
+        when(registrationRepository.findReminderChunk(eq(5L), eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(recipient(9L)));
+        when(emailService.renderPaymentReminder()).thenReturn(TEMPLATE);
+        when(emailService.sendPaymentReminder(any(ReminderRecipient.class), eq(TEMPLATE))).thenReturn(true);
+        when(emailDispatcher.getQueueSize(EmailDispatcher.Lane.REMINDER)).thenReturn(1, 0);
+        when(campaignRepository.checkpoint(eq(1L), anyString(), anyLong(), anyInt(), any(LocalDateTime.class),
+                any(LocalDateTime.class))).thenReturn(1);
+
+        service.run(1L);
+
+        // Шаблон отрисован по разу на порцию, а не на каждое письмо
+        verify(emailService, times(2)).renderPaymentReminder();
+        verify(emailService, times(3)).sendPaymentReminder(any(ReminderRecipient.class), eq(TEMPLATE));
+        verify(campaignRepository).checkpoint(eq(1L), anyString(), eq(5L), eq(2), any(LocalDateTime.class),
+                any(LocalDateTime.class));
+        verify(campaignRepository).checkpoint(eq(1L), anyString(), eq(9L), eq(1), any(LocalDateTime.class),
+                any(LocalDateTime.class));
+        verify(campaignRepository).finish(eq(1L), eq(ReminderCampaign.Status.COMPLETED), any(LocalDateTime.class));
+    }
+
+    @Test
+    void run_ResumesFromCheckpoint() {
+        leaseAvailable();
+        when(campaignRepository.findById(1L)).thenReturn(Optional.of(campaign(7L)));
+        when(registrationRepository.findReminderChunk(eq(7L), eq(10L), any(Pageable.class))).thenReturn(List.of());
+
+        service.run(1L);
+
+        verify(registrationRepository, never()).findReminderChunk(eq(0L), anyLong(), any(Pageable.class));
+        verifyNoInteractions(emailService);
+        verify(campaignRepository).finish(eq(1L), eq(ReminderCampaign.Status.COMPLETED), any(LocalDateTime.class));
+    }
+
+    @Test
+    void run_CancelledCampaign_StopsAfterCurrentChunk() {
+        leaseAvailable();
+        when(campaignRepository.findById(1L)).thenReturn(Optional.of(campaign(0L)));
+        when(registrationRepository.findReminderChunk(eq(0L), eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(recipient(2L), recipient(5L)));
+        when(emailService.renderPaymentReminder()).thenReturn(TEMPLATE);
+        when(emailService.sendPaymentReminder(any(ReminderRecipient.class), eq(TEMPLATE))).thenReturn(true);
+        when(campaignRepository.checkpoint(eq(1L), anyString(), eq(5L), eq(2), any(LocalDateTime.class),
+                any(LocalDateTime.class))).thenReturn(0);
+
+        service.run(1L);
+
+        verify(registrationRepository, times(1)).findReminderChunk(anyLong(), anyLong(), any(Pageable.class));
+        verify(campaignRepository, never()).finish(anyLong(), any(), any());
+    }
+
+    @Test
+    void start_AlreadyRunning_Rejected() {
+        when(campaignRepository.findByStatus(ReminderCampaign.Status.RUNNING)).thenReturn(List.of(campaign(0L)));
+
+        assertThrows(IllegalStateException.class, () -> service.start());
+        verify(campaignRepository, never()).save(any());
+    }
+
+    @Test
+    void start_ConcurrentStartOnAnotherNode_Rejected() {
+        when(campaignRepository.findByStatus(ReminderCampaign.Status.RUNNING)).thenReturn(List.of());
+        when(registrationRepository.findMaxId()).thenReturn(10L);
+        when(campaignRepository.save(any(ReminderCampaign.class)))
+                .thenThrow(new DataIntegrityViolationException("uq_reminder_campaigns_running"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.start());
+        assertEquals("Рассылка напоминаний уже идёт", e.getMessage());
+    }
+
+    @Test
+    void run_LeaseHeldByAnotherNode_DoesNothing() {
+        when(campaignRepository.acquireLease(eq(1L), anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        service.run(1L);
+
+        verify(campaignRepository, never()).findById(anyLong());
+        verifyNoInteractions(registrationRepository, emailService);
+        verify(campaignRepository, never()).finish(anyLong(), any(), any());
+    }
+
+    @Test
+    void run_LeaseLostWhileWaitingForDispatcher_StopsWithoutCheckpoint() throws Exception {
+        service.shutdown();
+        // Аренда 0 секунд: продлевать её нужно на каждом опросе очереди
+        service = new ReminderCampaignService(registrationRepository, campaignRepository, emailService,
+                emailDispatcher, 2, 1, 0);
+        leaseAvailable();
+        when(campaignRepository.findById(1L)).thenReturn(Optional.of(campaign(0L)));
+        when(registrationRepository.findReminderChunk(eq(0L), eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(recipient(2L), recipient(5L)));
+        when(emailService.renderPaymentReminder()).thenReturn(TEMPLATE);
+        when(emailService.sendPaymentReminder(any(ReminderRecipient.class), eq(TEMPLATE))).thenReturn(true);
+        when(emailDispatcher.getQueueSize(EmailDispatcher.Lane.REMINDER)).thenReturn(1);
+        when(campaignRepository.renewLease(eq(1L), anyString(), any(LocalDateTime.class))).thenReturn(0);
+
+        service.run(1L);
+
+        verify(campaignRepository, never()).checkpoint(anyLong(), anyString(), anyLong(), anyInt(),
+                any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(campaignRepository, never()).finish(anyLong(), any(), any());
+    }
+
+    private void leaseAvailable() {
+        when(campaignRepository.acquireLease(eq(1L), anyString(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(1);
+    }
+
+    private static ReminderCampaign campaign(long lastRegistrationId) {
+        ReminderCampaign campaign = new ReminderCampaign();
+        campaign.setId(1L);
+        campaign.setStatus(ReminderCampaign.Status.RUNNING);
+        campaign.setMaxRegistrationId(10L);
+        campaign.setLastRegistrationId(lastRegistrationId);
+        campaign.setStartedAt(LocalDateTime.now());
+        return campaign;
+    }
+
+    private static ReminderRecipient recipient(long id) {
+        return new ReminderRecipient(id, "Иван" + id, "Иванов", "user" + id + "@example.com");
+    }
+}
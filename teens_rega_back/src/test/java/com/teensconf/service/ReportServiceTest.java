@@ -0,0 +1,157 @@
+package com.teensconf.service;
+
+import com.teensconf.config.ReplicaReads;
+import com.teensconf.dto.PivotReport;
+import com.teensconf.dto.ReportDimension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2025, 5, 1, 10, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final DataVersion dataVersion = new DataVersion();
+
+    private ReportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReportService(jdbcTemplate, new ReplicaReads(mock(PlatformTransactionManager.class)), dataVersion,
+                new SimpleMeterRegistry());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenSnapshot(List<RegistrationColumns.Row> rows) {
+        when(jdbcTemplate.query(eq("SELECT id, role, city, church, need_accommodation, was_before, birth_date, "
+                + "registration_created_at, registration_completed_at FROM registrations"), any(RowMapper.class)))
+                .thenReturn(rows);
+    }
+
+    private static RegistrationColumns.Row row(long id, String role, String city, boolean accommodation,
+                                               LocalDateTime createdAt, LocalDateTime completedAt) {
+        return new RegistrationColumns.Row(id, role, city, "Благодать", accommodation, false, "01/01/2010",
+                createdAt, completedAt);
+    }
+
+    private static Map<List<String>, Long> counts(PivotReport report) {
+        return report.getRows().stream()
+                .collect(Collectors.toMap(PivotReport.Row::getValues, PivotReport.Row::getCount));
+    }
+
+    @Test
+    void pivot_CountsEveryCombination() {
+        givenSnapshot(List.of(
+                row(1, "Участник", "Москва", true, DAY_ONE, DAY_ONE),
+                row(2, "Участник", "Москва", false, DAY_ONE, null),
+                row(3, "Служитель", "Москва ", false, DAY_ONE.plusDays(1), null),
+                row(4, "Участник", "Казань", true, DAY_ONE.plusDays(2), DAY_ONE.plusDays(2))));
+
+        PivotReport report = service.pivot(List.of(ReportDimension.CITY, ReportDimension.ROLE));
+
+        assertEquals(4, report.getTotal());
+        assertEquals(List.of("Город", "Роль"), report.getTitles());
+        assertEquals(Map.of(
+                List.of("Москва", "Участник"), 2L,
+                List.of("Москва", "Служитель"), 1L,
+                List.of("Казань", "Участник"), 1L), counts(report));
+        assertEquals(List.of("Москва", "Участник"), report.getRows().get(0).getValues());
+
+        Map<List<String>, Long> overTime = counts(
+                service.pivot(List.of(ReportDimension.CREATED_DATE, ReportDimension.STATUS)));
+        assertEquals(Map.of(
+                List.of("2025-05-01", "оплачена"), 1L,
+                List.of("2025-05-01", "ожидает оплаты"), 1L,
+                List.of("2025-05-02", "ожидает оплаты"), 1L,
+                List.of("2025-05-03", "оплачена"), 1L), overTime);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pivot_AfterWrite_AppliesOnlyChangedRows() {
+        givenSnapshot(new ArrayList<>(List.of(
+                row(1, "Участник", "Москва", true, DAY_ONE, null),
+                row(2, "Участник", "Тула", false, DAY_ONE, null))));
+        service.pivot(List.of(ReportDimension.STATUS));
+
+        // Регистрация 1 оплачена, регистрация 3 создана
+        when(jdbcTemplate.query(contains("WHERE registration_created_at >= ?"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of(
+                        row(1, "Участник", "Москва", true, DAY_ONE, DAY_ONE.plusHours(2)),
+                        row(3, "Участник", "Тула", false, DAY_ONE.plusHours(3), null)));
+        dataVersion.bump();
+
+        PivotReport report = service.pivot(List.of(ReportDimension.STATUS, ReportDimension.NEED_ACCOMMODATION));
+
+        assertEquals(3, report.getTotal());
+        assertEquals(Map.of(
+                List.of("оплачена", "да"), 1L,
+                List.of("ожидает оплаты", "нет"), 2L), counts(report));
+        verify(jdbcTemplate, times(1)).query(contains("FROM registrations"), any(RowMapper.class));
+    }
+
+    @Test
+    void pivot_UnchangedData_DoesNotQueryAgain() {
+        givenSnapshot(List.of(row(1, "Участник", "Москва", true, DAY_ONE, null)));
+
+        service.pivot(List.of(ReportDimension.CITY));
+        service.pivot(List.of(ReportDimension.ROLE));
+
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class));
+    }
+
+    @Test
+    void pivot_ManyRowsAndSparseCombinations_MatchesNaiveCount() {
+        List<RegistrationColumns.Row> rows = new ArrayList<>();
+        Map<List<String>, Long> expected = new HashMap<>();
+        for (long id = 1; id <= 30_000; id++) {
+            String city = "Город " + (id % 997);
+            String church = "Церковь " + (id % 389);
+            LocalDateTime createdAt = DAY_ONE.plusDays(id % 120);
+            rows.add(new RegistrationColumns.Row(id, "Участник", city, church, false, false, "01/01/2010",
+                    createdAt, null));
+            expected.merge(List.of(city, church, createdAt.toLocalDate().toString()), 1L, Long::sum);
+        }
+        givenSnapshot(rows);
+
+        // 997 × 389 × 120 сочетаний - считается по хэш-таблицам в нескольких порциях параллельно
+        PivotReport report = service.pivot(
+                List.of(ReportDimension.CITY, ReportDimension.CHURCH, ReportDimension.CREATED_DATE));
+
+        assertEquals(30_000, report.getTotal());
+        assertEquals(expected, counts(report));
+    }
+
+    @Test
+    void pivot_InvalidDimensions_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.pivot(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> service.pivot(List.of(ReportDimension.CITY,
+                ReportDimension.ROLE, ReportDimension.CHURCH, ReportDimension.STATUS)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.pivot(List.of(ReportDimension.CITY, ReportDimension.CITY)));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
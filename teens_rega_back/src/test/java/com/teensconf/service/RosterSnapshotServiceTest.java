@@ -0,0 +1,124 @@
+package com.teensconf.service;
+
+import com.teensconf.dto.RosterRow;
+import com.teensconf.dto.RosterSnapshot;
+import com.teensconf.repository.RegistrationRepository;
+import com.teensconf.util.RosterSnapshotReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RosterSnapshotServiceTest {
+
+    private static final LocalDateTime COMPLETED_AT = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Mock
+    private RegistrationRepository registrationRepository;
+
+    @InjectMocks
+    private RosterSnapshotService rosterSnapshotService;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void build_FullSnapshot_LookupByIdAndName() throws Exception {
+        when(registrationRepository.findRosterSnapshot()).thenReturn(List.of(
+                new RosterRow(7L, "Анна", "Пётрова", "leader", "Казань", true, false, COMPLETED_AT, COMPLETED_AT.plusDays(3)),
+                new RosterRow(3L, "Иван", "Петров", "participant", "Москва", false, true, COMPLETED_AT.plusDays(1), null),
+                new RosterRow(5L, "Олег", "Сидоров", "participant", "Москва", false, false, COMPLETED_AT, null)));
+
+        RosterSnapshot snapshot = rosterSnapshotService.build(null);
+        RosterSnapshotReader reader = RosterSnapshotReader.open(write(snapshot));
+
+        assertFalse(reader.isDelta());
+        assertEquals(3, reader.size());
+        assertEquals(millis(COMPLETED_AT.plusDays(3)), reader.getVersion());
+        assertEquals(snapshot.getVersion(), reader.getVersion());
+
+        RosterSnapshotReader.Entry anna = reader.findById(7L);
+        assertEquals("Анна", anna.getFirstName());
+        assertEquals("Пётрова", anna.getLastName());
+        assertEquals("Казань", anna.getCity());
+        assertTrue(anna.isNeedAccommodation());
+        assertTrue(anna.isCheckedIn());
+        assertEquals(millis(COMPLETED_AT.plusDays(3)), anna.getCheckedInAt().toEpochMilli());
+
+        RosterSnapshotReader.Entry ivan = reader.findById(3L);
+        assertTrue(ivan.isUnder14());
+        assertFalse(ivan.isCheckedIn());
+        assertNull(ivan.getCheckedInAt());
+        assertNull(reader.findById(4L));
+
+        // Регистр и ё не учитываются, совпадения идут по алфавиту
+        assertEquals(List.of(3L, 7L), ids(reader.findByNamePrefix("ПЕТ", 10)));
+        assertEquals(List.of(3L), ids(reader.findByNamePrefix("петров и", 10)));
+        assertEquals(List.of(3L), ids(reader.findByNamePrefix("пет", 1)));
+        assertTrue(reader.findByNamePrefix("смирнов", 10).isEmpty());
+    }
+
+    @Test
+    void build_Delta_QueriesChangesSinceVersion() throws Exception {
+        long since = millis(COMPLETED_AT.plusDays(2));
+        when(registrationRepository.findRosterSnapshotChangedSince(any(LocalDateTime.class))).thenReturn(List.of(
+                new RosterRow(7L, "Анна", "Пётрова", "leader", "Казань", true, false, COMPLETED_AT, COMPLETED_AT.plusDays(3))));
+
+        RosterSnapshotReader reader = RosterSnapshotReader.open(write(rosterSnapshotService.build(since)));
+
+        assertTrue(reader.isDelta());
+        assertEquals(since, reader.getBaseVersion());
+        assertEquals(millis(COMPLETED_AT.plusDays(3)), reader.getVersion());
+        assertEquals(1, reader.size());
+        assertTrue(reader.findById(7L).isCheckedIn());
+        verify(registrationRepository, never()).findRosterSnapshot();
+    }
+
+    @Test
+    void build_EmptyDelta_KeepsVersion() {
+        long since = millis(COMPLETED_AT);
+        when(registrationRepository.findRosterSnapshotChangedSince(any(LocalDateTime.class))).thenReturn(List.of());
+
+        RosterSnapshot snapshot = rosterSnapshotService.build(since);
+
+        assertEquals(since, snapshot.getVersion());
+        assertEquals(0, RosterSnapshotReader.wrap(snapshot.getContent()).size());
+    }
+
+    @Test
+    void open_CorruptedFile_Rejected() throws Exception {
+        when(registrationRepository.findRosterSnapshot()).thenReturn(List.of(
+                new RosterRow(1L, "Иван", "Петров", "participant", "Москва", false, false, COMPLETED_AT, null)));
+        byte[] content = rosterSnapshotService.build(null).getContent();
+        content[content.length - 1] ^= 1;
+
+        assertThrows(IllegalArgumentException.class, () -> RosterSnapshotReader.wrap(content));
+    }
+
+    private Path write(RosterSnapshot snapshot) throws Exception {
+        Path file = tempDir.resolve("roster-" + snapshot.getVersion() + ".bin");
+        Files.write(file, snapshot.getContent());
+        return file;
+    }
+
+    private static List<Long> ids(List<RosterSnapshotReader.Entry> entries) {
+        return entries.stream().map(RosterSnapshotReader.Entry::getId).collect(Collectors.toList());
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,93 @@
+package com.teensconf.service;
+
+import com.teensconf.entity.Registration;
+import com.teensconf.util.Base45;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketCodecTest {
+
+    private final TicketCodec ticketCodec = new TicketCodec("test-secret");
+
+    @Test
+    void issue_RoundTripsRegistrationData() {
+        Registration registration = new Registration();
+        registration.setId(1234L);
+        registration.setNeedAccommodation(true);
+        registration.setConsentUnder14(false);
+        LocalDateTime completedAt = LocalDateTime.of(2025, 6, 1, 12, 30);
+        registration.setRegistrationCompletedAt(completedAt);
+
+        String payload = ticketCodec.issue(registration);
+        TicketCodec.Ticket ticket = ticketCodec.decode(payload);
+
+        assertTrue(payload.startsWith(TicketCodec.PREFIX));
+        assertTrue(payload.length() <= 32);
+        assertEquals(1234L, ticket.getRegistrationId());
+        assertEquals(completedAt.atZone(ZoneId.systemDefault()).toInstant(), ticket.getIssuedAt());
+        assertTrue(ticket.hasFlag(TicketCodec.FLAG_PAID));
+        assertTrue(ticket.hasFlag(TicketCodec.FLAG_ACCOMMODATION));
+        assertFalse(ticket.hasFlag(TicketCodec.FLAG_UNDER_14));
+    }
+
+    @Test
+    void issue_SameRegistration_SamePayload() {
+        Registration registration = new Registration();
+        registration.setId(7L);
+        registration.setRegistrationCreatedAt(LocalDateTime.of(2025, 5, 1, 10, 0));
+
+        assertEquals(ticketCodec.issue(registration), ticketCodec.issue(registration));
+    }
+
+    @Test
+    void decode_TamperedPayload_Rejected() {
+        String payload = ticketCodec.encode(42L, 1_700_000_000L, TicketCodec.FLAG_PAID);
+        byte[] data = Base45.decode(payload.substring(TicketCodec.PREFIX.length()));
+        // Подменяем id регистрации, подпись оставляем прежней
+        data[4] ^= 0x01;
+        String forged = TicketCodec.PREFIX + Base45.encode(data);
+
+        assertThrows(IllegalArgumentException.class, () -> ticketCodec.decode(forged));
+    }
+
+    @Test
+    void decode_OtherKey_Rejected() {
+        String payload = new TicketCodec("other-secret").encode(42L, 1_700_000_000L, TicketCodec.FLAG_PAID);
+
+        assertThrows(IllegalArgumentException.class, () -> ticketCodec.decode(payload));
+    }
+
+    @Test
+    void decode_Garbage_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> ticketCodec.decode("Подтверждение регистрации ТИНС"));
+        assertThrows(IllegalArgumentException.class, () -> ticketCodec.decode("TINS:abc"));
+        assertThrows(IllegalArgumentException.class, () -> ticketCodec.decode("TINS:00"));
+    }
+
+    @Test
+    void missingSecret_FailsOutsideDevAndTest() {
+        MockEnvironment production = new MockEnvironment();
+        production.setActiveProfiles("prod");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new TicketCodec("", production));
+        assertTrue(e.getMessage().contains("app.ticket.secret"));
+        assertThrows(IllegalStateException.class, () -> new TicketCodec(" "));
+    }
+
+    @Test
+    void missingSecret_RandomKeyInTestProfile() {
+        MockEnvironment test = new MockEnvironment();
+        test.setActiveProfiles("test");
+        TicketCodec codec = new TicketCodec("", test);
+
+        String payload = codec.encode(42L, 1_700_000_000L, TicketCodec.FLAG_PAID);
+
+        assertEquals(42L, codec.decode(payload).getRegistrationId());
+        assertThrows(IllegalArgumentException.class, () -> ticketCodec.decode(payload));
+    }
+}
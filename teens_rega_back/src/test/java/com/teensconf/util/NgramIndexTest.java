@@ -0,0 +1,69 @@
+package com.teensconf.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NgramIndexTest {
+
+    private NgramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NgramIndex();
+        index.put(1, "Петров", "Иван", "ivan@mail.ru", "+7 (926) 123-45-67", "Москва", "Благодать");
+        index.put(2, "Пётрова", "Анна", "anna@ya.ru", "89161112233", "Казань", "Слово жизни");
+        index.put(3, "Сидоров", "Олег", "oleg@example.com", "+79035550000", "Москва", "Благодать");
+    }
+
+    @Test
+    void search_PrefixOfName_IgnoresCaseAndYo() {
+        assertEquals(List.of(2L, 1L), ids("ПЁТ"));
+    }
+
+    @Test
+    void search_WholeWordRanksAboveLongerWord() {
+        assertEquals(List.of(1L, 2L), ids("петров"));
+    }
+
+    @Test
+    void search_PhoneWithFormatting() {
+        assertEquals(List.of(1L), ids("926 123"));
+        assertEquals(List.of(2L), ids("1112"));
+    }
+
+    @Test
+    void search_Typo_StillFound() {
+        assertTrue(ids("сидроов").contains(3L));
+        assertTrue(ids("петрв").contains(1L));
+    }
+
+    @Test
+    void search_NoMatch() {
+        assertTrue(ids("zzz").isEmpty());
+    }
+
+    @Test
+    void put_SameIdReplacesDocument() {
+        index.put(3, "Смирнов", "Олег", "oleg@example.com", "+79035550000", "Москва", "Благодать");
+
+        assertTrue(ids("сидоров").isEmpty());
+        assertEquals(List.of(3L), ids("смирнов"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void normalize_CollapsesPhoneSeparators() {
+        assertEquals("79261234567 елкина", NgramIndex.normalize("+7 (926) 123-45-67 Ёлкина"));
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, 10, NgramIndex.DEFAULT_THRESHOLD).stream()
+                .map(NgramIndex.Hit::getId)
+                .collect(Collectors.toList());
+    }
+}
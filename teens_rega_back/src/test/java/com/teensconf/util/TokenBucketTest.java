@@ -0,0 +1,49 @@
+package com.teensconf.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void tryAcquire_BurstThenRate() {
+        TokenBucket bucket = new TokenBucket(2, 3, clock::get);
+
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+
+        long wait = bucket.tryAcquire();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), wait);
+
+        clock.addAndGet(wait);
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    void refill_CappedAtBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, clock::get);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        assertEquals(2.0, bucket.available(), 1e-9);
+    }
+
+    @Test
+    void drain_DropsAccumulatedTokens() {
+        TokenBucket bucket = new TokenBucket(1, 5, clock::get);
+
+        bucket.drain();
+
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.tryAcquire());
+    }
+}
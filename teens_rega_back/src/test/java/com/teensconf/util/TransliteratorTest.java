@@ -0,0 +1,23 @@
+package com.teensconf.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransliteratorTest {
+
+    @Test
+    void transliterate_MapsCyrillicAndKeepsCase() {
+        assertEquals("Schukin", Transliterator.transliterate("Щукин"));
+        assertEquals("Yuliya_Zhuravleva", Transliterator.transliterate("Юлия Журавлева"));
+        assertEquals("ELENA", Transliterator.transliterate("ЕЛЕНА"));
+        assertEquals("Ann", Transliterator.transliterate("Ann"));
+    }
+
+    @Test
+    void transliterate_CollapsesSeparators() {
+        assertEquals("Anna_Mariya_2", Transliterator.transliterate("  Анна -- Мария / 2 "));
+        assertEquals("", Transliterator.transliterate("?!"));
+        assertEquals("", Transliterator.transliterate(null));
+    }
+}
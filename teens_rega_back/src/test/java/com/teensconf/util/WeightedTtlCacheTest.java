@@ -0,0 +1,47 @@
+package com.teensconf.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedTtlCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WeightedTtlCache<String> cache(long maxWeightBytes, long ttlSeconds) {
+        return new WeightedTtlCache<>("test.cache", maxWeightBytes, ttlSeconds, value -> value.length() * 2L,
+                meterRegistry);
+    }
+
+    @Test
+    void get_NotCurrent_RemovesEntryAndCountsMiss() {
+        WeightedTtlCache<String> cache = cache(1024, 60);
+        cache.put("key", "v1");
+
+        assertNull(cache.get("key", value -> value.equals("v2")));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        assertEquals(1.0, meterRegistry.get("test.cache").tag("result", "miss").counter().count());
+        assertEquals(1.0, meterRegistry.get("test.cache.evictions").counter().count());
+    }
+
+    @Test
+    void put_ReplacesEntryAndKeepsWeightConsistent() {
+        WeightedTtlCache<String> cache = cache(1024, 60);
+        cache.put("key", "short");
+        cache.put("key", "a bit longer");
+
+        assertEquals("a bit longer", cache.get("key"));
+        assertEquals(128 + 3 * 2 + 12 * 2, cache.weight());
+    }
+
+    @Test
+    void put_HeavierThanLimit_NotStored() {
+        WeightedTtlCache<String> cache = cache(200, 60);
+        cache.put("key", "x".repeat(100));
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.weight());
+    }
+}
@@ -9,7 +9,8 @@ import {
   Space,
   Typography,
   Alert,
-  Tag
+  Tag,
+  Input
 } from 'antd';
 import { 
   DownloadOutlined, 
@@ -30,38 +31,104 @@ interface Registration {
   city: string;
   role: string;
   needAccommodation: boolean;
+  registrationCreatedAt: string;
   registrationCompletedAt: string | null;
-  paymentReceipt: {
-    id: number;
-    fileName: string;
-  } | null;
+  receiptFileName: string | null;
+}
+
+interface RegistrationPage {
+  items: Registration[];
+  nextCursor: string | null;
+  approximateTotal: number | null;
+}
+
+const PAGE_SIZE = 50;
+
+interface StatsCounts {
+  total: number;
+  completed: number;
 }
 
 interface Stats {
   totalRegistrations: number;
   completedRegistrations: number;
   pendingRegistrations: number;
+  needAccommodation: StatsCounts;
+  byRole: Record<string, StatsCounts>;
+  byCity: Record<string, StatsCounts>;
+  byChurch: Record<string, StatsCounts>;
+  byAgeGroup: Record<string, StatsCounts>;
+}
+
+const renderBreakdown = (title: string, breakdown: Record<string, StatsCounts>, limit = 5) => (
+  <Card size="small" title={title}>
+    {Object.entries(breakdown).slice(0, limit).map(([key, counts]) => (
+      <div key={key} style={{ display: 'flex', justifyContent: 'space-between' }}>
+        <span>{key}</span>
+        <span>{counts.completed} / {counts.total}</span>
+      </div>
+    ))}
+  </Card>
+);
+
+interface FeedUpdate {
+  change: 'CREATED' | 'COMPLETED';
+  registration: Registration;
+  totalDelta: number;
+  completedDelta: number;
+  pendingDelta: number;
 }
 
 const AdminPage: React.FC = () => {
   const [registrations, setRegistrations] = useState<Registration[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [approximateTotal, setApproximateTotal] = useState<number | null>(null);
   const [stats, setStats] = useState<Stats | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState('');
+  const [searchResults, setSearchResults] = useState<Registration[] | null>(null);
+  const [searching, setSearching] = useState(false);
 
   useEffect(() => {
     fetchData();
   }, []);
 
+  // Живая лента: новые и оплаченные регистрации приходят с сервера без перезагрузки списка
+  useEffect(() => {
+    // EventSource не передаёт заголовок Authorization, поэтому токен идёт параметром
+    const token = localStorage.getItem('adminToken') ?? '';
+    const source = new EventSource(`/api/admin/stream?access_token=${encodeURIComponent(token)}`);
+    source.addEventListener('registration', (event) => {
+      const update: FeedUpdate = JSON.parse((event as MessageEvent).data);
+      setStats(prev => prev && {
+        ...prev,
+        totalRegistrations: prev.totalRegistrations + update.totalDelta,
+        completedRegistrations: prev.completedRegistrations + update.completedDelta,
+        pendingRegistrations: prev.pendingRegistrations + update.pendingDelta
+      });
+      setRegistrations(prev => update.change === 'CREATED'
+        ? [update.registration, ...prev.filter(r => r.id !== update.registration.id)]
+        : prev.map(r => r.id === update.registration.id ? { ...r, ...update.registration } : r));
+    });
+    // Сервер пропустил часть событий для этого подключения - перечитываем всё
+    source.addEventListener('resync', () => fetchData());
+    return () => source.close();
+  }, []);
+
   const fetchData = async () => {
     try {
       setLoading(true);
       const [registrationsRes, statsRes] = await Promise.all([
-        axios.get('/api/admin/registrations'),
+        axios.get<RegistrationPage>('/api/admin/registrations', {
+          params: { size: PAGE_SIZE, withTotal: true }
+        }),
         axios.get('/api/admin/stats')
       ]);
       
-      setRegistrations(registrationsRes.data.content || registrationsRes.data);
+      setRegistrations(registrationsRes.data.items);
+      setNextCursor(registrationsRes.data.nextCursor);
+      setApproximateTotal(registrationsRes.data.approximateTotal);
       setStats(statsRes.data);
     } catch (err) {
       setError('Ошибка загрузки данных');
@@ -71,6 +138,44 @@ const AdminPage: React.FC = () => {
     }
   };
 
+  const fetchMore = async () => {
+    if (!nextCursor) {
+      return;
+    }
+    try {
+      setLoadingMore(true);
+      const response = await axios.get<RegistrationPage>('/api/admin/registrations', {
+        params: { cursor: nextCursor, size: PAGE_SIZE }
+      });
+      setRegistrations(prev => [...prev, ...response.data.items]);
+      setNextCursor(response.data.nextCursor);
+    } catch (err) {
+      setError('Ошибка загрузки данных');
+      console.error('Admin data fetch error:', err);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
+  const search = async (query: string) => {
+    if (query.trim().length < 2) {
+      setSearchResults(null);
+      return;
+    }
+    try {
+      setSearching(true);
+      const response = await axios.get<Registration[]>('/api/admin/registrations/search', {
+        params: { q: query.trim(), limit: 50 }
+      });
+      setSearchResults(response.data);
+    } catch (err) {
+      setError('Ошибка поиска');
+      console.error('Admin search error:', err);
+    } finally {
+      setSearching(false);
+    }
+  };
+
   const downloadReceipt = async (registrationId: number, fileName: string) => {
     try {
       const response = await axios.get(`/api/admin/registrations/${registrationId}/receipt`, {
@@ -148,11 +253,11 @@ const AdminPage: React.FC = () => {
       key: 'actions',
       render: (record: Registration) => (
         <Space>
-          {record.paymentReceipt && (
+          {record.receiptFileName && (
             <Button
               icon={<DownloadOutlined />}
               size="small"
-              onClick={() => downloadReceipt(record.id, record.paymentReceipt!.fileName)}
+              onClick={() => downloadReceipt(record.id, record.receiptFileName!)}
             >
               Чек
             </Button>
@@ -205,23 +310,60 @@ const AdminPage: React.FC = () => {
         </Row>
       )}
 
+      {stats && (
+        <Row gutter={16} style={{ marginBottom: 24 }}>
+          <Col span={6}>
+            <Card size="small" title="Нужно проживание">
+              {stats.needAccommodation.completed} / {stats.needAccommodation.total}
+            </Card>
+          </Col>
+          <Col span={6}>{renderBreakdown('По возрасту', stats.byAgeGroup)}</Col>
+          <Col span={6}>{renderBreakdown('По ролям', stats.byRole)}</Col>
+          <Col span={6}>{renderBreakdown('По городам', stats.byCity)}</Col>
+        </Row>
+      )}
+
       {/* Таблица регистраций */}
       <Card>
         <div style={{ marginBottom: 16, display: 'flex', justifyContent: 'space-between', alignItems: 'center' }}>
-          <Title level={4} style={{ margin: 0 }}>Список регистраций</Title>
-          <Button onClick={fetchData} loading={loading}>
-            Обновить
-          </Button>
+          <Title level={4} style={{ margin: 0 }}>
+            Список регистраций
+            {approximateTotal !== null && (
+              <Typography.Text type="secondary" style={{ fontSize: 14, marginLeft: 8 }}>
+                ≈ {approximateTotal}
+              </Typography.Text>
+            )}
+          </Title>
+          <Space>
+            <Input.Search
+              placeholder="Имя, телефон, email, город"
+              allowClear
+              loading={searching}
+              onSearch={search}
+              onChange={e => !e.target.value && setSearchResults(null)}
+              style={{ width: 320 }}
+            />
+            <Button onClick={fetchData} loading={loading}>
+              Обновить
+            </Button>
+          </Space>
         </div>
         
         <Table
           columns={columns}
-          dataSource={registrations}
+          dataSource={searchResults ?? registrations}
           rowKey="id"
-          loading={loading}
+          loading={loading || searching}
           pagination={{ pageSize: 10 }}
           scroll={{ x: 1000 }}
         />
+        {nextCursor && searchResults === null && (
+          <div style={{ marginTop: 16, textAlign: 'center' }}>
+            <Button onClick={fetchMore} loading={loadingMore}>
+              Загрузить ещё
+            </Button>
+          </div>
+        )}
       </Card>
     </div>
   );